@@ -0,0 +1,70 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аналитика посещаемости ({@link AttendanceAnalytics}) за все месяцы списка на разном количестве потоков,
+ * чтобы проверить масштабирование по ядрам, и построение списка риска из готового результата.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyticsBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private Roster roster;
+    private LocalDate from;
+    private LocalDate to;
+    private AttendanceAnalytics.Result result;
+
+    @Setup(Level.Trial)
+    public void setUp(Roster roster) {
+        this.roster = roster;
+        pool = new ForkJoinPool(threads);
+        from = RosterGenerator.START;
+        to = RosterGenerator.START.plusMonths(Roster.MONTHS).minusDays(1);
+        result = AttendanceAnalytics.compute(roster.store.getStudents(), from, to, pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public AttendanceAnalytics.Result compute() {
+        return AttendanceAnalytics.compute(roster.store.getStudents(), from, to, pool);
+    }
+
+    @Benchmark
+    public List<AttendanceAnalytics.StudentRate> atRisk() {
+        return result.atRisk(0.8, AttendanceAnalytics.DEFAULT_MIN_MARKS);
+    }
+}
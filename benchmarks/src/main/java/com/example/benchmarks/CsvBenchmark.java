@@ -0,0 +1,85 @@
+package com.example.benchmarks;
+
+import com.example.CsvExporter;
+import com.example.CsvImporter;
+import com.example.ExcelImporter;
+import com.example.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение в CSV и загрузка из CSV на 1 и 4 потоках. Файл на 100 000 студентов за учебный год
+ * занимает около 350 МБ и сравним по объему с книгой {@link ExcelBenchmark} на том же размере.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private List<Student> students;
+    private LocalDate from;
+    private LocalDate to;
+    private ForkJoinPool pool;
+    private File saved;
+    private File loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        students = RosterGenerator.students(size, Roster.MONTHS, RosterGenerator.DEFAULT_SEED);
+        from = RosterGenerator.START;
+        to = RosterGenerator.START.plusMonths(Roster.MONTHS).minusDays(1);
+        pool = new ForkJoinPool(threads);
+        saved = File.createTempFile("bench-save", ".csv");
+        loaded = File.createTempFile("bench-load", ".csv");
+        new CsvExporter(students, from, to).export(loaded, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(saved.toPath());
+        Files.deleteIfExists(loaded.toPath());
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        new CsvExporter(students, from, to).export(saved, null, null);
+        return saved.length();
+    }
+
+    @Benchmark
+    public ExcelImporter.Result load() throws IOException {
+        return new CsvImporter(loaded, pool).read(null, null);
+    }
+}
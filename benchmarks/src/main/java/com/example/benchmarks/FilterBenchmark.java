@@ -0,0 +1,73 @@
+package com.example.benchmarks;
+
+import com.example.Student;
+import com.example.StudentFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтрация студентов для каждого типа фильтра окна ({@code MainFrame.applyFilter}),
+ * а также набор ФИО по одному символу, как при поиске по мере ввода.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    private static final String TYPED_NAME = "петров сер";
+
+    @Param({"NAME", "GROUP", "DATE_PRESENT", "DATE_ABSENT"})
+    public StudentFilter.Type type;
+
+    private StudentFilter filter;
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp(Roster roster) {
+        filter = new StudentFilter(roster.store);
+        switch (type) {
+            case NAME:
+                input = "ров сер";
+                break;
+            case GROUP:
+                input = RosterGenerator.group(roster.size / 2);
+                break;
+            default:
+                input = RosterGenerator.START.plusDays(2).toString(); // Будний день
+                break;
+        }
+    }
+
+    @Benchmark
+    public List<Student> apply() {
+        return filter.apply(type, input);
+    }
+
+    @Benchmark
+    public int typeName() {
+        int found = 0;
+        for (int length = 1; length <= TYPED_NAME.length(); length++) {
+            found += filter.apply(StudentFilter.Type.NAME, TYPED_NAME.substring(0, length)).size();
+        }
+        return found;
+    }
+}
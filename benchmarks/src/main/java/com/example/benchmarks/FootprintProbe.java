@@ -0,0 +1,96 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceStore;
+import com.example.GroupDictionary;
+import com.example.NameDictionary;
+import com.example.Student;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Замер памяти, занимаемой студентами в хранилище.
+ * <p>
+ * Создает {@code count} студентов ({@link RosterGenerator}, по умолчанию 1 000 000) с отметками
+ * за {@code months} месяцев (по умолчанию 0 - только ФИО и группа), помещает их в {@link AttendanceStore}
+ * и печатает прирост занятой кучи на одного студента после сборки мусора, а также верх гистограммы
+ * классов (то же, что {@code jcmd <pid> GC.class_histogram}). Если прирост больше
+ * {@link #TARGET_BYTES_PER_STUDENT} (цель для студентов без отметок), программа завершается с кодом 1.
+ * </p>
+ * Запуск: {@code java -cp target/benchmarks.jar com.example.benchmarks.FootprintProbe [count] [months]}.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class FootprintProbe {
+
+    /**
+     * Цель: байт на студента без отметок, вместе с хранилищем и его индексами
+     * (64-битная JVM со сжатыми ссылками).
+     */
+    public static final long TARGET_BYTES_PER_STUDENT = 240;
+
+    private static final int HISTOGRAM_LINES = 15;
+
+    private FootprintProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int months = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        long before = usedHeap();
+        List<Student> students = RosterGenerator.students(count, months, RosterGenerator.DEFAULT_SEED);
+        AttendanceStore store = new AttendanceStore();
+        store.putAll(students);
+        students = null;
+        long after = usedHeap();
+
+        long perStudent = (after - before) / count;
+        System.out.printf("Студентов: %d, месяцев с отметками: %d%n", store.size(), months);
+        System.out.printf("Словарь имен: %d, словарь групп: %d%n", NameDictionary.size(), GroupDictionary.size());
+        System.out.printf("Прирост кучи: %d КБ, на студента: %d байт (цель без отметок: %d)%n",
+                (after - before) / 1024, perStudent, TARGET_BYTES_PER_STUDENT);
+        System.out.println();
+        System.out.println(histogram());
+
+        // Хранилище должно дожить до замера
+        if (store.size() != count) {
+            throw new IllegalStateException("Хранилище заполнено не полностью");
+        }
+        if (months == 0 && perStudent > TARGET_BYTES_PER_STUDENT) {
+            System.out.println("Цель не достигнута");
+            System.exit(1);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Несколько сборок подряд: до стабилизации занятого объема
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static String histogram() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String text = (String) server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "gcClassHistogram", new Object[]{null}, new String[]{String[].class.getName()});
+            String[] lines = text.split("\n");
+            StringBuilder top = new StringBuilder();
+            for (int i = 0; i < Math.min(lines.length, HISTOGRAM_LINES + 2); i++) {
+                top.append(lines[i]).append('\n');
+            }
+            return top.toString();
+        } catch (Exception ex) {
+            return "Гистограмма классов недоступна: " + ex.getMessage();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceStore;
+import com.example.Student;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Общий для бенчмарков список студентов заданного размера с отметками за три месяца.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@State(Scope.Benchmark)
+public class Roster {
+
+    /**
+     * Количество месяцев с отметками.
+     */
+    public static final int MONTHS = 3;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    public AttendanceStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = RosterGenerator.store(size, MONTHS, RosterGenerator.DEFAULT_SEED);
+    }
+
+    /**
+     * Получить студента по номеру, приведенному к размеру списка.
+     *
+     * @param index Любое неотрицательное число.
+     * @return Студент.
+     */
+    public Student student(int index) {
+        return store.get(index % size);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceState;
+import com.example.AttendanceStore;
+import com.example.Student;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор синтетического списка студентов для бенчмарков.
+ * <p>
+ * ФИО собираются из списков фамилий, имен и отчеств; после исчерпания сочетаний к фамилии
+ * добавляется номер, поэтому все ФИО различны. Отметки ставятся по будним дням начиная
+ * с {@link #START}: примерно 85% присутствий, 10% отсутствий, остальные дни без отметки.
+ * При одинаковом зерне генерируются одинаковые данные.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class RosterGenerator {
+
+    /**
+     * Первый день отметок.
+     */
+    public static final LocalDate START = LocalDate.of(2024, 9, 1);
+
+    /**
+     * Зерно генератора по умолчанию.
+     */
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] LAST_NAMES = {
+            "Иванов", "Петров", "Сидоров", "Смирнов", "Кузнецов", "Попов", "Васильев", "Соколов",
+            "Михайлов", "Новиков", "Федоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семенов",
+            "Егоров", "Павлов", "Козлов", "Степанов", "Николаев", "Орлов", "Андреев", "Макаров",
+            "Никитин", "Захаров", "Зайцев", "Соловьев", "Борисов", "Яковлев", "Григорьев", "Романов"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Алексей", "Артем", "Илья",
+            "Кирилл", "Михаил", "Никита", "Матвей", "Роман", "Егор", "Арсений", "Иван",
+            "Денис", "Евгений", "Даниил", "Тимофей", "Владислав", "Игорь", "Владимир", "Павел"
+    };
+
+    private static final String[] PATRONYMICS = {
+            "Александрович", "Дмитриевич", "Сергеевич", "Андреевич", "Алексеевич", "Михайлович",
+            "Иванович", "Николаевич", "Владимирович", "Павлович", "Игоревич", "Евгеньевич",
+            "Викторович", "Олегович", "Юрьевич", "Петрович"
+    };
+
+    private static final int NAME_COMBINATIONS = LAST_NAMES.length * FIRST_NAMES.length * PATRONYMICS.length;
+
+    private RosterGenerator() {
+    }
+
+    /**
+     * Создать студентов с отметками.
+     *
+     * @param count  Количество студентов.
+     * @param months Количество месяцев с отметками начиная с {@link #START}.
+     * @param seed   Зерно генератора.
+     * @return Студенты, не привязанные к хранилищу.
+     */
+    public static List<Student> students(int count, int months, long seed) {
+        Random random = new Random(seed);
+        long firstDay = START.toEpochDay();
+        long lastDay = START.plusMonths(months).toEpochDay() - 1;
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Student student = new Student(lastName(i), FIRST_NAMES[(i / LAST_NAMES.length) % FIRST_NAMES.length],
+                    PATRONYMICS[(i / (LAST_NAMES.length * FIRST_NAMES.length)) % PATRONYMICS.length], group(i));
+            for (long day = firstDay; day <= lastDay; day++) {
+                if (isWeekend(day)) {
+                    continue;
+                }
+                int roll = random.nextInt(100);
+                if (roll < 85) {
+                    student.setState(day, AttendanceState.PRESENT);
+                } else if (roll < 95) {
+                    student.setState(day, AttendanceState.ABSENT);
+                }
+            }
+            students.add(student);
+        }
+        return students;
+    }
+
+    /**
+     * Создать хранилище, заполненное студентами с отметками.
+     *
+     * @param count  Количество студентов.
+     * @param months Количество месяцев с отметками.
+     * @param seed   Зерно генератора.
+     * @return Заполненное хранилище.
+     */
+    public static AttendanceStore store(int count, int months, long seed) {
+        AttendanceStore store = new AttendanceStore();
+        store.putAll(students(count, months, seed));
+        return store;
+    }
+
+    /**
+     * Получить номер группы студента: 30 студентов в группе.
+     *
+     * @param index Номер студента.
+     * @return Номер группы.
+     */
+    public static String group(int index) {
+        return "ИВТ-" + (100 + index / 30);
+    }
+
+    private static String lastName(int index) {
+        String lastName = LAST_NAMES[index % LAST_NAMES.length];
+        int round = index / NAME_COMBINATIONS;
+        return round == 0 ? lastName : lastName + round;
+    }
+
+    private static boolean isWeekend(long epochDay) {
+        DayOfWeek dayOfWeek = LocalDate.ofEpochDay(epochDay).getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+    }
+}
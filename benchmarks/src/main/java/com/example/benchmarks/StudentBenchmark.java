@@ -0,0 +1,111 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceState;
+import com.example.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции с одним студентом: отметки, их чтение, поиск по ФИО и построение ФИО.
+ * Студент выбирается по кругу из списка, чтобы учитывались промахи кэша на больших списках.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentBenchmark {
+
+    private static final int DAYS = 90;
+
+    private String[] dates;
+    private long[] days;
+    private String[] names;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(Roster roster) {
+        dates = new String[DAYS];
+        days = new long[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            dates[i] = RosterGenerator.START.plusDays(i).toString();
+            days[i] = RosterGenerator.START.toEpochDay() + i;
+        }
+        names = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            // Поиск в хранилище учитывает регистр, поэтому ФИО берется как есть
+            names[i] = roster.student(i * 7919).getFullName();
+            if (roster.store.get(names[i]) == null) {
+                throw new IllegalStateException("Студент не найден по ФИО: " + names[i]);
+            }
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 7919) & Integer.MAX_VALUE; // Простое число: обход не попадает в соседние записи
+        return cursor;
+    }
+
+    @Benchmark
+    public Student addAttendanceDate(Roster roster) {
+        int i = next();
+        Student student = roster.student(i);
+        student.addAttendanceDate(dates[i % DAYS]);
+        return student;
+    }
+
+    @Benchmark
+    public Student addAbsenceDate(Roster roster) {
+        int i = next();
+        Student student = roster.student(i);
+        student.addAbsenceDate(dates[i % DAYS]);
+        return student;
+    }
+
+    @Benchmark
+    public AttendanceState getState(Roster roster) {
+        int i = next();
+        return roster.student(i).getState(days[i % DAYS]);
+    }
+
+    @Benchmark
+    public int countPresentForMonth(Roster roster) {
+        return roster.student(next()).countPresent(days[0], days[29]);
+    }
+
+    @Benchmark
+    public Set<String> getAttendanceDates(Roster roster) {
+        return roster.student(next()).getAttendanceDates();
+    }
+
+    @Benchmark
+    public Student findByName(Roster roster) {
+        return roster.store.get(names[next() & (names.length - 1)]);
+    }
+
+    @Benchmark
+    public String getFullName(Roster roster) {
+        return roster.student(next()).getFullName();
+    }
+
+    @Benchmark
+    public String toStringStudent(Roster roster) {
+        return roster.student(next()).toString();
+    }
+}
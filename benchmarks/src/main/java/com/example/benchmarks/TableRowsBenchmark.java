@@ -0,0 +1,76 @@
+package com.example.benchmarks;
+
+import com.example.AttendanceTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение строк таблицы за месяц - то, что раньше делал {@code MainFrame.updateDisplayArea},
+ * а теперь {@link AttendanceTableModel}: полный обход ячеек (как при прокрутке всей таблицы)
+ * и один экран из 40 строк.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TableRowsBenchmark {
+
+    private static final int SCREEN_ROWS = 40;
+
+    private AttendanceTableModel model;
+    private int firstRow;
+    private int monthIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(Roster roster) {
+        model = new AttendanceTableModel(roster.store, YearMonth.from(RosterGenerator.START.plusMonths(1)));
+    }
+
+    @Benchmark
+    public void allRows(Blackhole blackhole) {
+        int rows = model.getRowCount();
+        int columns = model.getColumnCount();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                blackhole.consume(model.getValueAt(row, column));
+            }
+        }
+    }
+
+    @Benchmark
+    public void visibleScreen(Blackhole blackhole) {
+        int rows = model.getRowCount();
+        int columns = model.getColumnCount();
+        firstRow = (firstRow + 7919) % Math.max(1, rows - SCREEN_ROWS);
+        for (int row = firstRow; row < Math.min(rows, firstRow + SCREEN_ROWS); row++) {
+            for (int column = 0; column < columns; column++) {
+                blackhole.consume(model.getValueAt(row, column));
+            }
+        }
+    }
+
+    @Benchmark
+    public int switchMonth() {
+        monthIndex = (monthIndex + 1) % Roster.MONTHS;
+        model.setMonth(YearMonth.from(RosterGenerator.START).plusMonths(monthIndex));
+        return model.getColumnCount();
+    }
+}
@@ -0,0 +1,303 @@
+package com.example;
+
+import com.toedter.calendar.JDateChooser;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Окно аналитики посещаемости за период: итоги групп, посещаемость по неделям и студенты ниже порога.
+ * <p>
+ * Расчет выполняет {@link AttendanceAnalytics} в фоне; повторный расчет того же периода без изменений
+ * в данных берется из кэша, а смена порога или минимального количества отметок только перестраивает
+ * список риска из готового результата. Вкладка "По неделям" показывает выбранную группу или всех студентов.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AnalyticsDialog extends JDialog {
+
+    private final AttendanceAnalytics analytics;
+    private final TaskRunner tasks;
+    private final JDateChooser fromChooser;
+    private final JDateChooser toChooser;
+    private final JSpinner thresholdSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) Math.round(AttendanceAnalytics.DEFAULT_THRESHOLD * 100), 0, 100, 5));
+    private final JSpinner minMarksSpinner = new JSpinner(new SpinnerNumberModel(AttendanceAnalytics.DEFAULT_MIN_MARKS, 1, 1000, 1));
+    private final JLabel statusLabel = new JLabel(" ");
+    private final GroupsModel groupsModel = new GroupsModel();
+    private final WeeksModel weeksModel = new WeeksModel();
+    private final RiskModel riskModel = new RiskModel();
+    private final JTable groupsTable = new JTable(groupsModel);
+    private AttendanceAnalytics.Result result;
+
+    /**
+     * Создать окно аналитики.
+     *
+     * @param owner     Главное окно.
+     * @param analytics Аналитика хранилища.
+     * @param tasks     Исполнитель фоновых задач.
+     * @param from      Начало периода по умолчанию.
+     * @param to        Конец периода по умолчанию.
+     */
+    public AnalyticsDialog(Frame owner, AttendanceAnalytics analytics, TaskRunner tasks, LocalDate from, LocalDate to) {
+        super(owner, "Аналитика посещаемости", false);
+        this.analytics = analytics;
+        this.tasks = tasks;
+        setSize(900, 600);
+        setLayout(new BorderLayout(5, 5));
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        fromChooser = new JDateChooser(toDate(from), "yyyy-MM-dd");
+        toChooser = new JDateChooser(toDate(to), "yyyy-MM-dd");
+        fromChooser.setPreferredSize(new Dimension(130, fromChooser.getPreferredSize().height));
+        toChooser.setPreferredSize(new Dimension(130, toChooser.getPreferredSize().height));
+        JButton computeButton = new JButton("Рассчитать");
+        computeButton.addActionListener(e -> compute());
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        topPanel.add(new JLabel("С:"));
+        topPanel.add(fromChooser);
+        topPanel.add(new JLabel("По:"));
+        topPanel.add(toChooser);
+        topPanel.add(new JLabel("Порог, %:"));
+        topPanel.add(thresholdSpinner);
+        topPanel.add(new JLabel("Мин. отметок:"));
+        topPanel.add(minMarksSpinner);
+        topPanel.add(computeButton);
+        add(topPanel, BorderLayout.NORTH);
+
+        groupsTable.setAutoCreateRowSorter(true);
+        groupsTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        groupsTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showWeeks();
+            }
+        });
+        JTable riskTable = new JTable(riskModel);
+        riskTable.getColumnModel().getColumn(1).setPreferredWidth(250);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Группы", new JScrollPane(groupsTable));
+        tabs.addTab("По неделям", new JScrollPane(new JTable(weeksModel)));
+        tabs.addTab("В зоне риска", new JScrollPane(riskTable));
+        add(tabs, BorderLayout.CENTER);
+
+        thresholdSpinner.addChangeListener(e -> showRisk());
+        minMarksSpinner.addChangeListener(e -> showRisk());
+
+        JButton closeButton = new JButton("Закрыть");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(closeButton, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+
+        setLocationRelativeTo(owner);
+        compute();
+    }
+
+    private void compute() {
+        if (fromChooser.getDate() == null || toChooser.getDate() == null) {
+            JOptionPane.showMessageDialog(this, "Укажите период", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        LocalDate from = toLocalDate(fromChooser.getDate());
+        LocalDate to = toLocalDate(toChooser.getDate());
+        if (from.isAfter(to)) {
+            JOptionPane.showMessageDialog(this, "Начало периода позже его конца", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        statusLabel.setText("Расчет...");
+        long started = System.nanoTime();
+        long hits = analytics.getHits();
+        tasks.submit("analytics", null, context -> analytics.analyze(from, to), new TaskRunner.Callback<AttendanceAnalytics.Result>() {
+            @Override
+            public void succeeded(AttendanceAnalytics.Result computed) {
+                result = computed;
+                groupsModel.fireTableDataChanged();
+                showWeeks();
+                showRisk();
+                AttendanceAnalytics.GroupRate total = computed.getTotal();
+                statusLabel.setText(String.format("Студентов: %,d, посещаемость: %s, %s за %,d мс",
+                        total.getStudents(), percent(total.getRate()),
+                        analytics.getHits() > hits ? "из кэша" : "рассчитано",
+                        (System.nanoTime() - started) / 1_000_000));
+            }
+
+            @Override
+            public void failed(Throwable error) {
+                statusLabel.setText(" ");
+                JOptionPane.showMessageDialog(AnalyticsDialog.this, "Ошибка расчета: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    private void showWeeks() {
+        int row = groupsTable.getSelectedRow();
+        if (result == null) {
+            weeksModel.group = null;
+        } else if (row >= 0) {
+            weeksModel.group = result.getGroups().get(groupsTable.convertRowIndexToModel(row));
+        } else {
+            weeksModel.group = result.getTotal();
+        }
+        weeksModel.fireTableDataChanged();
+    }
+
+    private void showRisk() {
+        riskModel.rows = result == null ? Collections.<AttendanceAnalytics.StudentRate>emptyList()
+                : result.atRisk(((Integer) thresholdSpinner.getValue()) / 100.0, (Integer) minMarksSpinner.getValue());
+        riskModel.fireTableDataChanged();
+    }
+
+    private static String percent(double rate) {
+        return Double.isNaN(rate) ? "-" : String.format("%.1f%%", rate * 100);
+    }
+
+    private static String points(double change) {
+        return Double.isNaN(change) ? "-" : String.format("%+.1f", change * 100);
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Итоги групп.
+     */
+    private final class GroupsModel extends AbstractTableModel {
+        private final String[] columns = {"Группа", "Студентов", "Присутствий", "Отсутствий", "Посещаемость", "За неделю, п.п."};
+
+        @Override
+        public int getRowCount() {
+            return result == null ? 0 : result.getGroups().size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? Integer.class : column == 2 || column == 3 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            AttendanceAnalytics.GroupRate group = result.getGroups().get(row);
+            switch (column) {
+                case 0:
+                    return group.getName();
+                case 1:
+                    return group.getStudents();
+                case 2:
+                    return group.getPresent();
+                case 3:
+                    return group.getAbsent();
+                case 4:
+                    return percent(group.getRate());
+                default:
+                    return points(group.getTrend());
+            }
+        }
+    }
+
+    /**
+     * Посещаемость выбранной группы по неделям.
+     */
+    private final class WeeksModel extends AbstractTableModel {
+        private final String[] columns = {"Неделя с", "Присутствий", "Отсутствий", "Посещаемость", "К прошлой неделе, п.п."};
+        private AttendanceAnalytics.GroupRate group;
+
+        @Override
+        public int getRowCount() {
+            return group == null ? 0 : result.getWeekCount();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:
+                    return result.getWeekStart(row);
+                case 1:
+                    return group.getWeekPresent(row);
+                case 2:
+                    return group.getWeekAbsent(row);
+                case 3:
+                    return percent(group.getWeekRate(row));
+                default:
+                    return row == 0 ? "-" : points(group.getWeekRate(row) - group.getWeekRate(row - 1));
+            }
+        }
+    }
+
+    /**
+     * Студенты ниже порога, от самой низкой посещаемости.
+     */
+    private static final class RiskModel extends AbstractTableModel {
+        private final String[] columns = {"№", "ФИО", "Группа", "Присутствий", "Отсутствий", "Посещаемость", "За неделю, п.п."};
+        private List<AttendanceAnalytics.StudentRate> rows = Collections.emptyList();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            AttendanceAnalytics.StudentRate rate = rows.get(row);
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return rate.getStudent().getFullName();
+                case 2:
+                    return rate.getStudent().getGroup();
+                case 3:
+                    return rate.getPresent();
+                case 4:
+                    return rate.getAbsent();
+                case 5:
+                    return percent(rate.getRate());
+                default:
+                    return points(rate.getTrend());
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кэш количества присутствий и отсутствий по месяцам: для каждого студента и для каждой группы.
+ * <p>
+ * Значение вычисляется при первом обращении (промах) и дальше поддерживается по событиям
+ * {@link AttendanceStore}: отметка или снятие отметки меняет счетчики студента и его группы
+ * на единицу, поэтому повторное чтение итога не обходит дни месяца. Удаление студента,
+ * смена группы и добавление студентов сбрасывают только затронутые записи: записи каждого
+ * студента и каждой группы учитываются отдельно, поэтому сброс не обходит весь кэш.
+ * </p>
+ * Размер кэша ограничен: при превышении {@link #getMaxEntries()} вытесняются записи, к которым
+ * дольше всего не обращались (обычно это старые месяцы, которые никто не открывает).
+ * Методы синхронизированы, поэтому кэш можно читать из фоновых задач.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceAggregates implements AttendanceStore.Listener {
+
+    /**
+     * Размер кэша по умолчанию (записей студентов и групп вместе).
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 200_000;
+
+    /**
+     * Ключ записи: студент (по ссылке) или группа и номер месяца.
+     */
+    private static final class Key {
+        final Student student;
+        final String group;
+        final int month;
+
+        Key(Student student, String group, int month) {
+            this.student = student;
+            this.group = group;
+            this.month = month;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return student == other.student && month == other.month
+                    && (group == null ? other.group == null : group.equals(other.group));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = student != null ? System.identityHashCode(student) : group.hashCode();
+            return hash * 31 + month;
+        }
+    }
+
+    private final AttendanceStore store;
+    private final int maxEntries;
+
+    // Значение - {присутствия, отсутствия}; порядок доступа для вытеснения давно не читаемых записей
+    private final LinkedHashMap<Key, long[]> entries;
+
+    // Ключи записей каждого студента (по ссылке) и каждой группы для сброса без обхода кэша
+    private final Map<Student, Set<Key>> studentKeys = new IdentityHashMap<>();
+    private final Map<String, Set<Key>> groupKeys = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Создать кэш с размером по умолчанию и подписать его на хранилище.
+     *
+     * @param store Хранилище студентов.
+     */
+    public AttendanceAggregates(AttendanceStore store) {
+        this(store, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Создать кэш и подписать его на хранилище.
+     *
+     * @param store      Хранилище студентов.
+     * @param maxEntries Максимальное количество записей.
+     */
+    public AttendanceAggregates(AttendanceStore store, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным: " + maxEntries);
+        }
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, long[]>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, long[]> eldest) {
+                if (size() > AttendanceAggregates.this.maxEntries) {
+                    evictions++;
+                    unindex(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        store.addListener(this);
+    }
+
+    /**
+     * Получить количество присутствий студента за месяц.
+     *
+     * @param student Студент хранилища.
+     * @param month   Месяц.
+     * @return Количество присутствий.
+     */
+    public synchronized int countPresent(Student student, YearMonth month) {
+        return (int) studentCounts(student, monthIndex(month))[0];
+    }
+
+    /**
+     * Получить количество отсутствий студента за месяц.
+     *
+     * @param student Студент хранилища.
+     * @param month   Месяц.
+     * @return Количество отсутствий.
+     */
+    public synchronized int countAbsent(Student student, YearMonth month) {
+        return (int) studentCounts(student, monthIndex(month))[1];
+    }
+
+    /**
+     * Получить количество присутствий студента за несколько месяцев (например, за семестр).
+     *
+     * @param student Студент хранилища.
+     * @param from    Первый месяц (включительно).
+     * @param to      Последний месяц (включительно).
+     * @return Количество присутствий.
+     */
+    public synchronized int countPresent(Student student, YearMonth from, YearMonth to) {
+        long total = 0;
+        for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+            total += studentCounts(student, month)[0];
+        }
+        return (int) total;
+    }
+
+    /**
+     * Получить количество отсутствий студента за несколько месяцев.
+     *
+     * @param student Студент хранилища.
+     * @param from    Первый месяц (включительно).
+     * @param to      Последний месяц (включительно).
+     * @return Количество отсутствий.
+     */
+    public synchronized int countAbsent(Student student, YearMonth from, YearMonth to) {
+        long total = 0;
+        for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+            total += studentCounts(student, month)[1];
+        }
+        return (int) total;
+    }
+
+    /**
+     * Получить количество присутствий всех студентов группы за месяц.
+     *
+     * @param group Номер группы (без учета регистра).
+     * @param month Месяц.
+     * @return Количество присутствий.
+     */
+    public synchronized long groupPresent(String group, YearMonth month) {
+        return groupCounts(group, monthIndex(month))[0];
+    }
+
+    /**
+     * Получить количество отсутствий всех студентов группы за месяц.
+     *
+     * @param group Номер группы (без учета регистра).
+     * @param month Месяц.
+     * @return Количество отсутствий.
+     */
+    public synchronized long groupAbsent(String group, YearMonth month) {
+        return groupCounts(group, monthIndex(month))[1];
+    }
+
+    /**
+     * Получить количество присутствий группы за несколько месяцев.
+     *
+     * @param group Номер группы.
+     * @param from  Первый месяц (включительно).
+     * @param to    Последний месяц (включительно).
+     * @return Количество присутствий.
+     */
+    public synchronized long groupPresent(String group, YearMonth from, YearMonth to) {
+        long total = 0;
+        for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+            total += groupCounts(group, month)[0];
+        }
+        return total;
+    }
+
+    /**
+     * Получить количество отсутствий группы за несколько месяцев.
+     *
+     * @param group Номер группы.
+     * @param from  Первый месяц (включительно).
+     * @param to    Последний месяц (включительно).
+     * @return Количество отсутствий.
+     */
+    public synchronized long groupAbsent(String group, YearMonth from, YearMonth to) {
+        long total = 0;
+        for (int month = monthIndex(from); month <= monthIndex(to); month++) {
+            total += groupCounts(group, month)[1];
+        }
+        return total;
+    }
+
+    /**
+     * Получить количество чтений, обслуженных из кэша.
+     *
+     * @return Количество попаданий.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Получить количество чтений, потребовавших подсчета.
+     *
+     * @return Количество промахов.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Получить количество записей, вытесненных из-за ограничения размера.
+     *
+     * @return Количество вытеснений.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Получить текущее количество записей.
+     *
+     * @return Количество записей.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Получить максимальное количество записей.
+     *
+     * @return Размер кэша.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Удалить все записи. Счетчики попаданий и промахов сохраняются.
+     */
+    public synchronized void invalidateAll() {
+        clear();
+    }
+
+    @Override
+    public synchronized void studentsAdded(int fromIndex, int toIndex) {
+        // Итоги групп новых студентов устарели
+        Set<String> groups = new HashSet<>();
+        for (int i = fromIndex; i <= toIndex; i++) {
+            groups.add(AttendanceStore.groupKey(store.get(i).getGroup()));
+        }
+        for (String group : groups) {
+            invalidateGroup(group);
+        }
+    }
+
+    @Override
+    public synchronized void studentRemoved(Student student, int index) {
+        invalidate(studentKeys.remove(student));
+        invalidateGroup(AttendanceStore.groupKey(student.getGroup()));
+    }
+
+    @Override
+    public synchronized void storeCleared() {
+        clear();
+    }
+
+    @Override
+    public synchronized void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        int month = monthIndex(epochDay);
+        // Меняются только уже посчитанные записи
+        adjust(entries.get(new Key(student, null, month)), oldState, newState);
+        adjust(entries.get(new Key(null, AttendanceStore.groupKey(student.getGroup()), month)), oldState, newState);
+    }
+
+    @Override
+    public synchronized void groupChanged(Student student, String oldGroup) {
+        invalidateGroup(AttendanceStore.groupKey(oldGroup));
+        invalidateGroup(AttendanceStore.groupKey(student.getGroup()));
+    }
+
+    private void invalidateGroup(String group) {
+        invalidate(groupKeys.remove(group));
+    }
+
+    private void invalidate(Set<Key> keys) {
+        if (keys != null) {
+            for (Key key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    private void clear() {
+        entries.clear();
+        studentKeys.clear();
+        groupKeys.clear();
+    }
+
+    private void put(Key key, long[] counts) {
+        entries.put(key, counts); // Может вытеснить старую запись
+        Set<Key> keys = key.student != null
+                ? studentKeys.computeIfAbsent(key.student, student -> new HashSet<>())
+                : groupKeys.computeIfAbsent(key.group, group -> new HashSet<>());
+        keys.add(key);
+    }
+
+    private void unindex(Key key) {
+        Map<?, Set<Key>> index = key.student != null ? studentKeys : groupKeys;
+        Object owner = key.student != null ? key.student : key.group;
+        Set<Key> keys = index.get(owner);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(owner);
+        }
+    }
+
+    private long[] studentCounts(Student student, int month) {
+        Key key = new Key(student, null, month);
+        long[] counts = entries.get(key);
+        if (counts != null) {
+            hits++;
+            return counts;
+        }
+        misses++;
+        long firstDay = firstDay(month);
+        long lastDay = firstDay(month + 1) - 1;
+        counts = new long[]{student.countPresent(firstDay, lastDay), student.countAbsent(firstDay, lastDay)};
+        put(key, counts);
+        return counts;
+    }
+
+    private long[] groupCounts(String group, int month) {
+        Key key = new Key(null, AttendanceStore.groupKey(group), month);
+        long[] counts = entries.get(key);
+        if (counts != null) {
+            hits++;
+            return counts;
+        }
+        misses++;
+        long firstDay = firstDay(month);
+        long lastDay = firstDay(month + 1) - 1;
+        counts = new long[2];
+        for (Student student : store.getByGroup(group)) {
+            counts[0] += student.countPresent(firstDay, lastDay);
+            counts[1] += student.countAbsent(firstDay, lastDay);
+        }
+        put(key, counts);
+        return counts;
+    }
+
+    private static void adjust(long[] counts, AttendanceState oldState, AttendanceState newState) {
+        if (counts == null) {
+            return;
+        }
+        if (oldState != AttendanceState.UNKNOWN) {
+            counts[oldState == AttendanceState.PRESENT ? 0 : 1]--;
+        }
+        if (newState != AttendanceState.UNKNOWN) {
+            counts[newState == AttendanceState.PRESENT ? 0 : 1]++;
+        }
+    }
+
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static int monthIndex(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static long firstDay(int monthIndex) {
+        return LocalDate.of(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1, 1).toEpochDay();
+    }
+}
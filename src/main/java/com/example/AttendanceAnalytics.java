@@ -0,0 +1,693 @@
+package com.example;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Аналитика посещаемости за произвольный период: доля присутствий по группам и студентам,
+ * изменение посещаемости от недели к неделе и список студентов ниже порога.
+ * <p>
+ * Расчет выполняется в {@link ForkJoinPool}: список студентов делится пополам, пока в части не
+ * останется {@link #LEAF_SIZE} студентов, и каждая часть считается независимо. Отметки читаются
+ * прямо из блоков {@link AttendanceCalendar} (64 дня в двух битовых масках), поэтому студент
+ * обходится за время, пропорциональное количеству его отметок за период, без разбора дат.
+ * Счетчики студентов пишутся в общие массивы по номеру студента, а итоги групп каждой части
+ * складываются при объединении частей, так что потоки не блокируют друг друга и расчет
+ * масштабируется по ядрам.
+ * </p>
+ * <p>
+ * Результаты кэшируются для последних {@link #CACHE_SIZE} периодов и действительны, пока
+ * хранилище не изменилось ({@link AttendanceStore#getModCount()}). Порог и минимальное количество
+ * отметок в кэш не входят: список студентов в зоне риска строится из готовых счетчиков
+ * ({@link Result#atRisk(double, int)}), поэтому смена порога не требует пересчета.
+ * </p>
+ * Расчет можно выполнять в фоновом потоке, пока окно изменяет хранилище: если данные изменились
+ * во время чтения, расчет повторяется.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceAnalytics {
+
+    /**
+     * Порог посещаемости по умолчанию (доля присутствий).
+     */
+    public static final double DEFAULT_THRESHOLD = 0.75;
+
+    /**
+     * Минимальное количество отметок за период, начиная с которого студент попадает в список риска.
+     */
+    public static final int DEFAULT_MIN_MARKS = 3;
+
+    /**
+     * Количество студентов, которое считается одной задачей без дальнейшего деления.
+     */
+    public static final int LEAF_SIZE = 2048;
+
+    /**
+     * Количество периодов, результаты которых хранятся в кэше.
+     */
+    public static final int CACHE_SIZE = 8;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Ключ кэша: период в днях.
+     */
+    private static final class Range {
+        final long from;
+        final long to;
+
+        Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Range)) {
+                return false;
+            }
+            Range other = (Range) o;
+            return from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(from) * 31 + Long.hashCode(to);
+        }
+    }
+
+    private final AttendanceStore store;
+    private final ForkJoinPool pool;
+    private final Map<Range, Result> cache = new LinkedHashMap<Range, Result>(CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Range, Result> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private long hits;
+    private long misses;
+
+    /**
+     * Создать аналитику хранилища, выполняемую в общем пуле потоков.
+     *
+     * @param store Хранилище студентов.
+     */
+    public AttendanceAnalytics(AttendanceStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Создать аналитику хранилища, выполняемую в указанном пуле.
+     *
+     * @param store Хранилище студентов.
+     * @param pool  Пул потоков расчета.
+     */
+    public AttendanceAnalytics(AttendanceStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    /**
+     * Получить аналитику за период из кэша или рассчитать ее.
+     *
+     * @param from Первый день периода.
+     * @param to   Последний день периода (включительно).
+     * @return Результат расчета.
+     * @throws IllegalArgumentException если начало периода позже конца.
+     */
+    public Result analyze(LocalDate from, LocalDate to) {
+        Range range = new Range(from.toEpochDay(), to.toEpochDay());
+        synchronized (this) {
+            Result cached = cache.get(range);
+            if (cached != null && cached.modCount == store.getModCount()) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        long started = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            int modCount = store.getModCount();
+            try {
+                Result result = compute(new ArrayList<>(store.getStudents()), from, to, pool);
+                Metrics.get().recordSince("analytics", started);
+                if (store.getModCount() == modCount) {
+                    result.modCount = modCount;
+                    synchronized (this) {
+                        cache.put(range, result);
+                    }
+                    return result;
+                }
+                if (attempt == MAX_ATTEMPTS) {
+                    return result; // Данные меняются непрерывно: результат приблизительный и не кэшируется
+                }
+            } catch (RuntimeException e) {
+                if (store.getModCount() == modCount || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Рассчитать аналитику для списка студентов без кэширования.
+     *
+     * @param students Студенты; список не должен изменяться во время расчета.
+     * @param from     Первый день периода.
+     * @param to       Последний день периода (включительно).
+     * @param pool     Пул потоков расчета.
+     * @return Результат расчета.
+     * @throws IllegalArgumentException если начало периода позже конца.
+     */
+    public static Result compute(List<Student> students, LocalDate from, LocalDate to, ForkJoinPool pool) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало периода позже его конца: " + from + " > " + to);
+        }
+        long started = System.nanoTime();
+        Result result = new Result(students, from, to);
+        Map<String, GroupRate> groups = pool.invoke(new StatsTask(result, 0, students.size()));
+        GroupRate total = new GroupRate("", result.weekCount);
+        for (GroupRate group : groups.values()) {
+            total.add(group);
+            result.groups.add(group);
+        }
+        result.groups.sort(Comparator.comparing(GroupRate::getName));
+        result.total = total;
+        result.elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Получить количество запросов, обслуженных из кэша.
+     *
+     * @return Количество попаданий.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Получить количество запросов, потребовавших расчета.
+     *
+     * @return Количество промахов.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Удалить все результаты из кэша.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Расчет части списка студентов. Возвращает итоги групп этой части по нормализованному номеру группы.
+     */
+    private static final class StatsTask extends RecursiveTask<Map<String, GroupRate>> {
+        private final Result result;
+        private final int fromIndex;
+        private final int toIndex;
+
+        StatsTask(Result result, int fromIndex, int toIndex) {
+            this.result = result;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected Map<String, GroupRate> compute() {
+            if (toIndex - fromIndex <= LEAF_SIZE) {
+                return computeLeaf();
+            }
+            int middle = (fromIndex + toIndex) >>> 1;
+            StatsTask left = new StatsTask(result, fromIndex, middle);
+            left.fork();
+            Map<String, GroupRate> right = new StatsTask(result, middle, toIndex).compute();
+            Map<String, GroupRate> merged = left.join();
+            for (Map.Entry<String, GroupRate> entry : right.entrySet()) {
+                GroupRate group = merged.get(entry.getKey());
+                if (group == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    group.add(entry.getValue());
+                }
+            }
+            return merged;
+        }
+
+        private Map<String, GroupRate> computeLeaf() {
+            Map<String, GroupRate> groups = new HashMap<>();
+            long from = result.fromDay;
+            long to = result.toDay;
+            int fromKey = (int) (from >> 6);
+            int toKey = (int) (to >> 6);
+            long firstWeekDay = result.firstWeekDay;
+            GroupRate group = null;
+            String groupName = null;
+            for (int i = fromIndex; i < toIndex; i++) {
+                Student student = result.students.get(i);
+                String name = student.getGroup() == null ? "" : student.getGroup();
+                // Студенты одной группы обычно идут подряд
+                if (group == null || !name.equals(groupName)) {
+                    groupName = name;
+                    group = groups.computeIfAbsent(AttendanceStore.groupKey(name), key -> new GroupRate(name, result.weekCount));
+                }
+                group.students++;
+
+                AttendanceCalendar calendar = student.getAttendance();
+                int present = 0;
+                int absent = 0;
+                int blocks = calendar.blockCount();
+                for (int b = 0; b < blocks; b++) {
+                    int key = calendar.blockKeyAt(b);
+                    if (key < fromKey) {
+                        continue;
+                    }
+                    if (key > toKey) {
+                        break;
+                    }
+                    long mask = -1L;
+                    if (key == fromKey) {
+                        mask &= -1L << (from & 63);
+                    }
+                    if (key == toKey) {
+                        mask &= -1L >>> (63 - (to & 63));
+                    }
+                    long presentBits = calendar.presentBitsAt(b) & mask;
+                    long absentBits = calendar.absentBitsAt(b) & mask;
+                    present += Long.bitCount(presentBits);
+                    absent += Long.bitCount(absentBits);
+                    long blockStart = ((long) key << 6) - firstWeekDay;
+                    for (; presentBits != 0; presentBits &= presentBits - 1) {
+                        group.weekPresent[(int) ((blockStart + Long.numberOfTrailingZeros(presentBits)) / 7)]++;
+                    }
+                    for (; absentBits != 0; absentBits &= absentBits - 1) {
+                        group.weekAbsent[(int) ((blockStart + Long.numberOfTrailingZeros(absentBits)) / 7)]++;
+                    }
+                }
+                result.present[i] = present;
+                result.absent[i] = absent;
+                group.present += present;
+                group.absent += absent;
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Доля присутствий или {@link Double#NaN}, если отметок нет.
+     */
+    private static double rate(long present, long absent) {
+        return present + absent == 0 ? Double.NaN : (double) present / (present + absent);
+    }
+
+    /**
+     * Результат расчета за период.
+     */
+    public static final class Result {
+        private final List<Student> students;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final long fromDay;
+        private final long toDay;
+        private final long firstWeekDay;
+        private final int weekCount;
+        private final int[] present;
+        private final int[] absent;
+        private final List<GroupRate> groups = new ArrayList<>();
+        private GroupRate total;
+        private long elapsedMillis;
+        private int modCount;
+
+        private Result(List<Student> students, LocalDate from, LocalDate to) {
+            this.students = students;
+            this.from = from;
+            this.to = to;
+            this.fromDay = from.toEpochDay();
+            this.toDay = to.toEpochDay();
+            // Недели начинаются с понедельника; первая неделя может быть неполной
+            this.firstWeekDay = fromDay - (from.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+            this.weekCount = (int) ((toDay - firstWeekDay) / 7) + 1;
+            this.present = new int[students.size()];
+            this.absent = new int[students.size()];
+        }
+
+        /**
+         * Получить первый день периода.
+         *
+         * @return Дата.
+         */
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        /**
+         * Получить последний день периода.
+         *
+         * @return Дата.
+         */
+        public LocalDate getTo() {
+            return to;
+        }
+
+        /**
+         * Получить количество недель периода (неполные первая и последняя недели считаются).
+         *
+         * @return Количество недель.
+         */
+        public int getWeekCount() {
+            return weekCount;
+        }
+
+        /**
+         * Получить понедельник недели периода.
+         *
+         * @param week Номер недели от 0.
+         * @return Дата понедельника (для первой недели может быть раньше начала периода).
+         */
+        public LocalDate getWeekStart(int week) {
+            return LocalDate.ofEpochDay(firstWeekDay + week * 7L);
+        }
+
+        /**
+         * Получить итоги по всем студентам.
+         *
+         * @return Итоги с пустым именем группы.
+         */
+        public GroupRate getTotal() {
+            return total;
+        }
+
+        /**
+         * Получить итоги групп.
+         *
+         * @return Группы по алфавиту.
+         */
+        public List<GroupRate> getGroups() {
+            return Collections.unmodifiableList(groups);
+        }
+
+        /**
+         * Получить студентов, для которых выполнен расчет.
+         *
+         * @return Студенты в порядке хранилища.
+         */
+        public List<Student> getStudents() {
+            return Collections.unmodifiableList(students);
+        }
+
+        /**
+         * Получить количество присутствий студента за период.
+         *
+         * @param index Номер студента в {@link #getStudents()}.
+         * @return Количество присутствий.
+         */
+        public int getPresent(int index) {
+            return present[index];
+        }
+
+        /**
+         * Получить количество отсутствий студента за период.
+         *
+         * @param index Номер студента в {@link #getStudents()}.
+         * @return Количество отсутствий.
+         */
+        public int getAbsent(int index) {
+            return absent[index];
+        }
+
+        /**
+         * Получить долю присутствий студента за период.
+         *
+         * @param index Номер студента в {@link #getStudents()}.
+         * @return Доля от 0 до 1 или {@link Double#NaN}, если отметок нет.
+         */
+        public double getRate(int index) {
+            return rate(present[index], absent[index]);
+        }
+
+        /**
+         * Получить время расчета.
+         *
+         * @return Миллисекунды.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Построить список студентов с посещаемостью ниже порога, от самой низкой.
+         * При равной посещаемости выше стоит студент с большим количеством пропусков, затем - по порядку списка.
+         *
+         * @param threshold Порог (доля присутствий от 0 до 1).
+         * @param minMarks  Минимальное количество отметок за период; студенты с меньшим количеством не оцениваются.
+         * @return Студенты в зоне риска.
+         */
+        public List<StudentRate> atRisk(double threshold, int minMarks) {
+            List<StudentRate> ranked = new ArrayList<>();
+            int required = Math.max(1, minMarks);
+            for (int i = 0; i < students.size(); i++) {
+                int marks = present[i] + absent[i];
+                if (marks >= required && present[i] < threshold * marks) {
+                    ranked.add(new StudentRate(this, i, present[i], absent[i]));
+                }
+            }
+            ranked.sort((a, b) -> {
+                int order = Double.compare(a.rate, b.rate);
+                if (order == 0) {
+                    order = Integer.compare(b.absent, a.absent);
+                }
+                return order != 0 ? order : Integer.compare(a.index, b.index);
+            });
+            return ranked;
+        }
+
+        /**
+         * Изменение посещаемости студента за последнюю неделю периода по сравнению с предыдущей.
+         */
+        private double studentTrend(Student student) {
+            if (weekCount < 2) {
+                return Double.NaN;
+            }
+            long lastWeek = firstWeekDay + (weekCount - 1) * 7L;
+            long previousWeek = lastWeek - 7;
+            double last = rate(student.countPresent(lastWeek, toDay), student.countAbsent(lastWeek, toDay));
+            double previous = rate(student.countPresent(Math.max(previousWeek, fromDay), lastWeek - 1),
+                    student.countAbsent(Math.max(previousWeek, fromDay), lastWeek - 1));
+            return last - previous;
+        }
+    }
+
+    /**
+     * Итоги группы (или всех студентов) за период, в том числе по неделям.
+     */
+    public static final class GroupRate {
+        private final String name;
+        private int students;
+        private long present;
+        private long absent;
+        private final long[] weekPresent;
+        private final long[] weekAbsent;
+
+        private GroupRate(String name, int weekCount) {
+            this.name = name;
+            this.weekPresent = new long[weekCount];
+            this.weekAbsent = new long[weekCount];
+        }
+
+        private void add(GroupRate other) {
+            students += other.students;
+            present += other.present;
+            absent += other.absent;
+            for (int week = 0; week < weekPresent.length; week++) {
+                weekPresent[week] += other.weekPresent[week];
+                weekAbsent[week] += other.weekAbsent[week];
+            }
+        }
+
+        /**
+         * Получить номер группы.
+         *
+         * @return Номер группы в написании первого встреченного студента.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Получить количество студентов.
+         *
+         * @return Количество студентов.
+         */
+        public int getStudents() {
+            return students;
+        }
+
+        /**
+         * Получить количество присутствий за период.
+         *
+         * @return Количество присутствий.
+         */
+        public long getPresent() {
+            return present;
+        }
+
+        /**
+         * Получить количество отсутствий за период.
+         *
+         * @return Количество отсутствий.
+         */
+        public long getAbsent() {
+            return absent;
+        }
+
+        /**
+         * Получить долю присутствий за период.
+         *
+         * @return Доля от 0 до 1 или {@link Double#NaN}, если отметок нет.
+         */
+        public double getRate() {
+            return rate(present, absent);
+        }
+
+        /**
+         * Получить количество присутствий за неделю.
+         *
+         * @param week Номер недели ({@link Result#getWeekStart(int)}).
+         * @return Количество присутствий.
+         */
+        public long getWeekPresent(int week) {
+            return weekPresent[week];
+        }
+
+        /**
+         * Получить количество отсутствий за неделю.
+         *
+         * @param week Номер недели.
+         * @return Количество отсутствий.
+         */
+        public long getWeekAbsent(int week) {
+            return weekAbsent[week];
+        }
+
+        /**
+         * Получить долю присутствий за неделю.
+         *
+         * @param week Номер недели.
+         * @return Доля от 0 до 1 или {@link Double#NaN}, если отметок нет.
+         */
+        public double getWeekRate(int week) {
+            return rate(weekPresent[week], weekAbsent[week]);
+        }
+
+        /**
+         * Получить изменение посещаемости от недели к неделе: разность долей присутствий
+         * последней недели с отметками и предыдущей недели с отметками.
+         *
+         * @return Изменение доли (положительное - посещаемость растет) или {@link Double#NaN},
+         * если отметки есть меньше чем в двух неделях.
+         */
+        public double getTrend() {
+            int last = lastMarkedWeek(weekPresent.length - 1);
+            int previous = last < 0 ? -1 : lastMarkedWeek(last - 1);
+            return previous < 0 ? Double.NaN : getWeekRate(last) - getWeekRate(previous);
+        }
+
+        private int lastMarkedWeek(int fromWeek) {
+            for (int week = fromWeek; week >= 0; week--) {
+                if (weekPresent[week] + weekAbsent[week] > 0) {
+                    return week;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Студент в списке риска.
+     */
+    public static final class StudentRate {
+        private final Result result;
+        private final int index;
+        private final int present;
+        private final int absent;
+        private final double rate;
+
+        private StudentRate(Result result, int index, int present, int absent) {
+            this.result = result;
+            this.index = index;
+            this.present = present;
+            this.absent = absent;
+            this.rate = AttendanceAnalytics.rate(present, absent);
+        }
+
+        /**
+         * Получить номер студента в {@link Result#getStudents()}.
+         *
+         * @return Номер.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Получить студента.
+         *
+         * @return Студент.
+         */
+        public Student getStudent() {
+            return result.students.get(index);
+        }
+
+        /**
+         * Получить количество присутствий за период.
+         *
+         * @return Количество присутствий.
+         */
+        public int getPresent() {
+            return present;
+        }
+
+        /**
+         * Получить количество отсутствий за период.
+         *
+         * @return Количество отсутствий.
+         */
+        public int getAbsent() {
+            return absent;
+        }
+
+        /**
+         * Получить долю присутствий за период.
+         *
+         * @return Доля от 0 до 1.
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * Получить изменение посещаемости за последнюю неделю периода по сравнению с предыдущей.
+         * Вычисляется при обращении, поэтому длинный список риска строится быстро, а таблица
+         * считает изменение только для видимых строк.
+         *
+         * @return Изменение доли или {@link Double#NaN}, если в одной из недель нет отметок.
+         */
+        public double getTrend() {
+            return result.studentTrend(getStudent());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Компактное хранилище отметок посещаемости одного студента.
+ * <p>
+ * Дни задаются номером эпохи ({@link java.time.LocalDate#toEpochDay()}) и группируются
+ * в блоки по 64 дня. Для каждого блока хранятся две битовые маски: присутствия и отсутствия.
+ * Блоки лежат в отсортированных примитивных массивах, поэтому учебный год занимает
+ * около шести блоков (≈ 120 байт) вместо сотен строк в {@code HashSet}.
+ * Запросы состояния дня и подсчета за диапазон не создают объектов.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class AttendanceCalendar {
+
+    /**
+     * Обработчик для обхода всех отмеченных дней.
+     */
+    public interface DayVisitor {
+        /**
+         * Вызывается для каждого отмеченного дня в порядке возрастания.
+         *
+         * @param epochDay Номер дня.
+         * @param state    Состояние за этот день ({@link AttendanceState#PRESENT} или {@link AttendanceState#ABSENT}).
+         */
+        void visit(long epochDay, AttendanceState state);
+    }
+
+    private static final int BLOCK_SHIFT = 6; // 64 дня в блоке
+    private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+    // Общие пустые массивы: студент без отметок не занимает памяти под блоки
+    private static final int[] NO_KEYS = new int[0];
+    private static final long[] NO_BITS = new long[0];
+
+    private int[] keys = NO_KEYS;
+    private long[] present = NO_BITS;
+    private long[] absent = NO_BITS;
+    private int size;
+
+    /**
+     * Получить состояние за указанный день.
+     *
+     * @param epochDay Номер дня.
+     * @return Состояние за день.
+     */
+    public AttendanceState getState(long epochDay) {
+        int index = Arrays.binarySearch(keys, 0, size, blockKey(epochDay));
+        if (index < 0) {
+            return AttendanceState.UNKNOWN;
+        }
+        long bit = 1L << (epochDay & BLOCK_MASK);
+        if ((present[index] & bit) != 0) {
+            return AttendanceState.PRESENT;
+        }
+        if ((absent[index] & bit) != 0) {
+            return AttendanceState.ABSENT;
+        }
+        return AttendanceState.UNKNOWN;
+    }
+
+    /**
+     * Установить состояние за указанный день.
+     * Отметки "присутствовал" и "отсутствовал" взаимно исключают друг друга.
+     *
+     * @param epochDay Номер дня.
+     * @param state    Новое состояние; {@link AttendanceState#UNKNOWN} снимает отметку.
+     * @return Предыдущее состояние за этот день.
+     */
+    public AttendanceState setState(long epochDay, AttendanceState state) {
+        int key = blockKey(epochDay);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            if (state == AttendanceState.UNKNOWN) {
+                return AttendanceState.UNKNOWN;
+            }
+            index = insertBlock(-index - 1, key);
+        }
+        long bit = 1L << (epochDay & BLOCK_MASK);
+        AttendanceState previous = (present[index] & bit) != 0 ? AttendanceState.PRESENT
+                : (absent[index] & bit) != 0 ? AttendanceState.ABSENT
+                : AttendanceState.UNKNOWN;
+
+        present[index] &= ~bit;
+        absent[index] &= ~bit;
+        if (state == AttendanceState.PRESENT) {
+            present[index] |= bit;
+        } else if (state == AttendanceState.ABSENT) {
+            absent[index] |= bit;
+        }
+        return previous;
+    }
+
+    /**
+     * Подсчитать количество дней с заданным состоянием в диапазоне.
+     *
+     * @param fromEpochDay Первый день диапазона (включительно).
+     * @param toEpochDay   Последний день диапазона (включительно).
+     * @param state        {@link AttendanceState#PRESENT} или {@link AttendanceState#ABSENT}.
+     * @return Количество дней.
+     */
+    public int count(long fromEpochDay, long toEpochDay, AttendanceState state) {
+        if (state == AttendanceState.UNKNOWN || fromEpochDay > toEpochDay || size == 0) {
+            return 0;
+        }
+        long[] bits = state == AttendanceState.PRESENT ? present : absent;
+        int fromKey = blockKey(fromEpochDay);
+        int toKey = blockKey(toEpochDay);
+        int index = Arrays.binarySearch(keys, 0, size, fromKey);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        int total = 0;
+        for (; index < size && keys[index] <= toKey; index++) {
+            long word = bits[index];
+            if (keys[index] == fromKey) {
+                word &= -1L << (fromEpochDay & BLOCK_MASK);
+            }
+            if (keys[index] == toKey) {
+                word &= -1L >>> (BLOCK_MASK - (toEpochDay & BLOCK_MASK));
+            }
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    /**
+     * Подсчитать общее количество дней с заданным состоянием.
+     *
+     * @param state {@link AttendanceState#PRESENT} или {@link AttendanceState#ABSENT}.
+     * @return Количество дней.
+     */
+    public int count(AttendanceState state) {
+        if (state == AttendanceState.UNKNOWN) {
+            return 0;
+        }
+        long[] bits = state == AttendanceState.PRESENT ? present : absent;
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += Long.bitCount(bits[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Записать состояния подряд идущих дней в массив порядковых номеров {@link AttendanceState}.
+     * Используется для отрисовки большого количества дней без обращения к каждому дню отдельно.
+     *
+     * @param fromEpochDay Первый день.
+     * @param target       Массив для состояний; день {@code fromEpochDay + i} записывается в {@code target[i]}.
+     * @param length       Количество дней.
+     */
+    public void getStates(long fromEpochDay, byte[] target, int length) {
+        Arrays.fill(target, 0, length, (byte) AttendanceState.UNKNOWN.ordinal());
+        if (size == 0 || length == 0) {
+            return;
+        }
+        long toEpochDay = fromEpochDay + length - 1;
+        int toKey = blockKey(toEpochDay);
+        int index = Arrays.binarySearch(keys, 0, size, blockKey(fromEpochDay));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (; index < size && keys[index] <= toKey; index++) {
+            long base = (long) keys[index] << BLOCK_SHIFT;
+            long marked = present[index] | absent[index];
+            while (marked != 0) {
+                int offset = Long.numberOfTrailingZeros(marked);
+                marked &= marked - 1;
+                long day = base + offset;
+                if (day >= fromEpochDay && day <= toEpochDay) {
+                    target[(int) (day - fromEpochDay)] = (byte) ((present[index] & (1L << offset)) != 0
+                            ? AttendanceState.PRESENT.ordinal() : AttendanceState.ABSENT.ordinal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Обойти все отмеченные дни в порядке возрастания.
+     *
+     * @param visitor Обработчик дней.
+     */
+    public void forEach(DayVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            long base = (long) keys[i] << BLOCK_SHIFT;
+            long marked = present[i] | absent[i];
+            while (marked != 0) {
+                int offset = Long.numberOfTrailingZeros(marked);
+                marked &= marked - 1;
+                AttendanceState state = (present[i] & (1L << offset)) != 0
+                        ? AttendanceState.PRESENT : AttendanceState.ABSENT;
+                visitor.visit(base + offset, state);
+            }
+        }
+    }
+
+    /**
+     * Проверить, есть ли хотя бы одна отметка.
+     *
+     * @return {@code true}, если отметок нет.
+     */
+    public boolean isEmpty() {
+        for (int i = 0; i < size; i++) {
+            if ((present[i] | absent[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Создать независимую копию календаря.
+     * Используется фоновыми задачами, чтобы читать отметки без гонок с потоком интерфейса.
+     *
+     * @return Копия календаря.
+     */
+    public AttendanceCalendar copy() {
+        AttendanceCalendar copy = new AttendanceCalendar();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.present = Arrays.copyOf(present, size);
+        copy.absent = Arrays.copyOf(absent, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Удалить все отметки.
+     */
+    public void clear() {
+        keys = NO_KEYS;
+        present = NO_BITS;
+        absent = NO_BITS;
+        size = 0;
+    }
+
+    /**
+     * Получить количество блоков (для сериализации).
+     */
+    int blockCount() {
+        return size;
+    }
+
+    /**
+     * Получить ключ блока (номер дня, деленный на 64).
+     */
+    int blockKeyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Получить маску присутствия блока.
+     */
+    long presentBitsAt(int index) {
+        return present[index];
+    }
+
+    /**
+     * Получить маску отсутствия блока.
+     */
+    long absentBitsAt(int index) {
+        return absent[index];
+    }
+
+    /**
+     * Добавить блок при загрузке. Блоки должны добавляться в порядке возрастания ключей.
+     */
+    void appendBlock(int key, long presentBits, long absentBits) {
+        if (size > 0 && keys[size - 1] >= key) {
+            throw new IllegalArgumentException("Блоки должны идти по возрастанию: " + key);
+        }
+        int index = insertBlock(size, key);
+        present[index] = presentBits & ~absentBits;
+        absent[index] = absentBits;
+    }
+
+    private static int blockKey(long epochDay) {
+        return (int) (epochDay >> BLOCK_SHIFT);
+    }
+
+    private int insertBlock(int index, int key) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            present = Arrays.copyOf(present, capacity);
+            absent = Arrays.copyOf(absent, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(present, index, present, index + 1, size - index);
+        System.arraycopy(absent, index, absent, index + 1, size - index);
+        keys[index] = key;
+        present[index] = 0L;
+        absent[index] = 0L;
+        size++;
+        return index;
+    }
+}
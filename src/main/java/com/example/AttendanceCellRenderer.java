@@ -0,0 +1,71 @@
+package com.example;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+
+/**
+ * Рендерер ячеек с отметками посещаемости.
+ * <p>
+ * Модель таблицы возвращает для колонок дней {@link AttendanceState}, поэтому рендерер назначается
+ * таблице один раз для этого типа ({@link JTable#setDefaultRenderer(Class, javax.swing.table.TableCellRenderer)})
+ * и переживает смену месяца. Цвета заранее созданы, а текст отметки - константа перечисления,
+ * поэтому отрисовка ячейки не создает объектов.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceCellRenderer extends DefaultTableCellRenderer {
+
+    /**
+     * Цвет отметки "присутствовал".
+     */
+    public static final Color PRESENT_COLOR = new Color(102, 255, 102);
+
+    /**
+     * Цвет отметки "отсутствовал".
+     */
+    public static final Color ABSENT_COLOR = new Color(255, 102, 102);
+
+    /**
+     * Цвет дня без отметки.
+     */
+    public static final Color EMPTY_COLOR = Color.WHITE;
+
+    /**
+     * Создать рендерер с выравниванием отметок по центру.
+     */
+    public AttendanceCellRenderer() {
+        setHorizontalAlignment(CENTER);
+    }
+
+    /**
+     * Получить цвет состояния.
+     *
+     * @param state Состояние отметки.
+     * @return Цвет фона ячейки.
+     */
+    public static Color colorOf(AttendanceState state) {
+        switch (state) {
+            case PRESENT:
+                return PRESENT_COLOR;
+            case ABSENT:
+                return ABSENT_COLOR;
+            default:
+                return EMPTY_COLOR;
+        }
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        AttendanceState state = value instanceof AttendanceState ? (AttendanceState) value : AttendanceState.UNKNOWN;
+        super.getTableCellRendererComponent(table, state.getMark(), isSelected, hasFocus, row, column);
+        if (!isSelected) {
+            setBackground(colorOf(state));
+            setForeground(Color.BLACK);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,490 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Пакетный режим без графического интерфейса: импорт нескольких книг Excel и выгрузок CSV, объединение,
+ * подсчет посещений по месяцам и группам, сводный отчет (xlsx или csv - по расширению {@code --out}).
+ * <p>
+ * Файлы читаются параллельно на всех ядрах ({@link WorkbookImport}), а объединяются в порядке
+ * аргументов в то же {@link AttendanceStore}, что использует окно. Студенты сопоставляются по ФИО;
+ * расхождение отметок за один день разрешается правилом {@code --policy} (по умолчанию побеждает
+ * файл, указанный позже).
+ * </p>
+ * <p>
+ * Ошибки в строках файлов (некорректное ФИО, пустая группа, нераспознанная отметка) не прерывают
+ * обработку: такие строки пропускаются, а параметр {@code --errors} сохраняет все нарушения в один CSV.
+ * </p>
+ * С параметром {@code --analytics} итог дополняется аналитикой {@link AttendanceAnalytics} за период отчета.
+ * Итог выводится в JSON (в файл {@code --summary} или в стандартный вывод), чтобы его можно было
+ * разобрать в следующем шаге планировщика. Коды завершения:
+ * <ul>
+ *     <li>{@link #EXIT_OK} - все файлы обработаны;</li>
+ *     <li>{@link #EXIT_PARTIAL} - часть файлов не прочитана, отчет построен по остальным;</li>
+ *     <li>{@link #EXIT_USAGE} - неверные аргументы;</li>
+ *     <li>{@link #EXIT_FAILURE} - ни один файл не прочитан или не удалось записать отчет.</li>
+ * </ul>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class AttendanceCli {
+
+    /**
+     * Все файлы обработаны.
+     */
+    public static final int EXIT_OK = 0;
+
+    /**
+     * Часть файлов не прочитана.
+     */
+    public static final int EXIT_PARTIAL = 1;
+
+    /**
+     * Неверные аргументы командной строки.
+     */
+    public static final int EXIT_USAGE = 2;
+
+    /**
+     * Ни один файл не прочитан или не удалось записать результат.
+     */
+    public static final int EXIT_FAILURE = 3;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Использование: java -cp <classpath> com.example.AttendanceCli [параметры] <файл.xlsx|файл.csv|каталог>...",
+            "  --out <файл.xlsx|.csv>  записать сводный отчет (csv - строка на каждую отметку)",
+            "  --layout month|group    раскладка отчета xlsx (по умолчанию month)",
+            "  --from <гггг-мм-дд>     начало периода отчета (по умолчанию первая отметка)",
+            "  --to <гггг-мм-дд>       конец периода отчета (по умолчанию последняя отметка)",
+            "  --summary <файл.json>   записать итог в файл вместо стандартного вывода",
+            "  --errors <файл.csv>     записать сводный отчет об ошибках в строках всех файлов",
+            "  --threads <n>           количество потоков импорта и аналитики (по умолчанию число ядер)",
+            "  --analytics <порог %>   добавить в итог аналитику за период: группы, недели и студентов",
+            "                          с посещаемостью ниже порога",
+            "  --min-marks <n>         минимум отметок за период для списка риска (по умолчанию 3)",
+            "  --policy latest|present|absent|keep",
+            "                          правило для расхождений в одном дне: более поздний файл (по умолчанию),",
+            "                          присутствие, отсутствие или первая отметка",
+            "Каталоги просматриваются рекурсивно, берутся файлы *.xlsx и *.csv.");
+
+    /**
+     * Разобранные параметры командной строки.
+     */
+    private static final class Options {
+        final List<File> inputs = new ArrayList<>();
+        File out;
+        ExcelExporter.Layout layout = ExcelExporter.Layout.BY_MONTH;
+        LocalDate from;
+        LocalDate to;
+        Path summary;
+        Path errors;
+        int threads = Runtime.getRuntime().availableProcessors();
+        WorkbookImport.ConflictPolicy policy = WorkbookImport.ConflictPolicy.LATEST_FILE_WINS;
+        Double threshold;
+        int minMarks = AttendanceAnalytics.DEFAULT_MIN_MARKS;
+    }
+
+    private AttendanceCli() {
+    }
+
+    /**
+     * Точка входа пакетного режима.
+     *
+     * @param args Параметры командной строки; без параметров выводится справка.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Выполнить пакетную обработку.
+     *
+     * @param args Параметры командной строки.
+     * @param out  Поток для итога в JSON.
+     * @param err  Поток для сообщений об ошибках.
+     * @return Код завершения.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        long started = System.nanoTime();
+        Options options;
+        List<File> files;
+        try {
+            options = parse(args);
+            files = WorkbookImport.expand(options.inputs);
+        } catch (IllegalArgumentException | IOException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (files.isEmpty()) {
+            err.println("Не найдено ни одного файла xlsx или csv");
+            return EXIT_USAGE;
+        }
+
+        WorkbookImport.Merged merged = new WorkbookImport(files, options.policy, options.threads).read(null, null);
+        AttendanceStore store = new AttendanceStore();
+        WorkbookImport.apply(store, merged.getStudents(), options.policy);
+        RecordValidator.Report errors = new RecordValidator.Report();
+        for (WorkbookImport.FileReport file : merged.getFiles()) {
+            if (file.getResult() == null) {
+                err.println(file.getFile() + ": " + file.getError());
+            } else {
+                errors.addAll(file.getFile().toString(), file.getResult().getReport());
+            }
+        }
+
+        int failed = merged.getFailedCount();
+        int exitCode = failed == 0 ? EXIT_OK : failed < files.size() ? EXIT_PARTIAL : EXIT_FAILURE;
+        if (options.errors != null) {
+            try {
+                errors.writeTo(options.errors);
+            } catch (IOException e) {
+                err.println(options.errors + ": " + e.getMessage());
+                exitCode = EXIT_FAILURE;
+            }
+        }
+        String reportError = null;
+        if (exitCode != EXIT_FAILURE && options.out != null) {
+            reportError = writeReport(store, options);
+            if (reportError != null) {
+                err.println(options.out + ": " + reportError);
+                exitCode = EXIT_FAILURE;
+            }
+        }
+
+        String json = summaryJson(merged, store, options, reportError, exitCode,
+                (System.nanoTime() - started) / 1_000_000);
+        try {
+            if (options.summary != null) {
+                try (Writer writer = new OutputStreamWriter(Files.newOutputStream(options.summary), StandardCharsets.UTF_8)) {
+                    writer.write(json);
+                }
+            } else {
+                out.println(json);
+            }
+        } catch (IOException e) {
+            err.println(options.summary + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        return exitCode;
+    }
+
+    private static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                options.inputs.add(new File(arg));
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение параметра " + arg);
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--out":
+                        options.out = new File(value);
+                        break;
+                    case "--layout":
+                        options.layout = "group".equalsIgnoreCase(value) ? ExcelExporter.Layout.BY_GROUP
+                                : "month".equalsIgnoreCase(value) ? ExcelExporter.Layout.BY_MONTH : null;
+                        if (options.layout == null) {
+                            throw new IllegalArgumentException("Неизвестная раскладка: " + value);
+                        }
+                        break;
+                    case "--from":
+                        options.from = LocalDate.parse(value);
+                        break;
+                    case "--to":
+                        options.to = LocalDate.parse(value);
+                        break;
+                    case "--summary":
+                        options.summary = Paths.get(value);
+                        break;
+                    case "--errors":
+                        options.errors = Paths.get(value);
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        if (options.threads < 1) {
+                            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + value);
+                        }
+                        break;
+                    case "--policy":
+                        options.policy = parsePolicy(value);
+                        break;
+                    case "--analytics":
+                        options.threshold = Double.parseDouble(value) / 100;
+                        if (options.threshold < 0 || options.threshold > 1) {
+                            throw new IllegalArgumentException("Порог должен быть от 0 до 100: " + value);
+                        }
+                        break;
+                    case "--min-marks":
+                        options.minMarks = Integer.parseInt(value);
+                        if (options.minMarks < 1) {
+                            throw new IllegalArgumentException("Минимум отметок должен быть положительным: " + value);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+                }
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное значение параметра " + arg + ": " + value);
+            }
+        }
+        if (options.inputs.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны файлы для импорта");
+        }
+        if (options.from != null && options.to != null && options.from.isAfter(options.to)) {
+            throw new IllegalArgumentException("Начало периода позже его конца: " + options.from + " > " + options.to);
+        }
+        return options;
+    }
+
+    private static WorkbookImport.ConflictPolicy parsePolicy(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "latest":
+                return WorkbookImport.ConflictPolicy.LATEST_FILE_WINS;
+            case "present":
+                return WorkbookImport.ConflictPolicy.PRESENT_WINS;
+            case "absent":
+                return WorkbookImport.ConflictPolicy.ABSENT_WINS;
+            case "keep":
+                return WorkbookImport.ConflictPolicy.KEEP_EXISTING;
+            default:
+                throw new IllegalArgumentException("Неизвестное правило: " + value);
+        }
+    }
+
+    private static String writeReport(AttendanceStore store, Options options) {
+        LocalDate from = options.from;
+        LocalDate to = options.to;
+        if (from == null || to == null) {
+            long[] range = markedRange(store);
+            if (range == null) {
+                return "Нет отметок для отчета";
+            }
+            from = from != null ? from : LocalDate.ofEpochDay(range[0]);
+            to = to != null ? to : LocalDate.ofEpochDay(range[1]);
+        }
+        try {
+            if (CsvImporter.isCsv(options.out)) {
+                new CsvExporter(store.getStudents(), from, to).export(options.out, null, null);
+            } else {
+                new ExcelExporter(store.getStudents(), from, to, options.layout).export(options.out, null, null);
+            }
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static long[] markedRange(AttendanceStore store) {
+        long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+        for (Student student : store.getStudents()) {
+            student.getAttendance().forEach((day, state) -> {
+                range[0] = Math.min(range[0], day);
+                range[1] = Math.max(range[1], day);
+            });
+        }
+        return range[0] <= range[1] ? range : null;
+    }
+
+    private static String summaryJson(WorkbookImport.Merged merged, AttendanceStore store, Options options,
+                                      String reportError, int exitCode, long elapsedMillis) {
+        // Количество присутствий и отсутствий по месяцам и группам
+        Map<YearMonth, long[]> months = new TreeMap<>();
+        Map<String, long[]> groups = new TreeMap<>();
+        long marks = 0;
+        for (Student student : store.getStudents()) {
+            long[] group = groups.computeIfAbsent(student.getGroup() == null ? "" : student.getGroup(), k -> new long[3]);
+            group[0]++;
+            long[] studentMarks = new long[1];
+            student.getAttendance().forEach((day, state) -> {
+                int slot = state == AttendanceState.PRESENT ? 0 : 1;
+                months.computeIfAbsent(YearMonth.from(LocalDate.ofEpochDay(day)), k -> new long[2])[slot]++;
+                group[1 + slot]++;
+                studentMarks[0]++;
+            });
+            marks += studentMarks[0];
+        }
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"exitCode\":").append(exitCode)
+                .append(",\"elapsedMillis\":").append(elapsedMillis)
+                .append(",\"students\":").append(store.size())
+                .append(",\"marks\":").append(marks)
+                .append(",\"policy\":\"").append(options.policy.name()).append('"')
+                .append(",\"importMillis\":").append(merged.getElapsedMillis())
+                .append(",\"marksPerSecond\":").append(merged.getMarksPerSecond())
+                .append(",\"files\":[");
+        List<WorkbookImport.FileReport> files = merged.getFiles();
+        for (int i = 0; i < files.size(); i++) {
+            WorkbookImport.FileReport file = files.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"path\":").append(quote(file.getFile().toString()))
+                    .append(",\"elapsedMillis\":").append(file.getElapsedMillis());
+            if (file.getResult() != null) {
+                json.append(",\"ok\":true,\"students\":").append(file.getStudents())
+                        .append(",\"marks\":").append(file.getMarks())
+                        .append(",\"newStudents\":").append(file.getNewStudents())
+                        .append(",\"addedMarks\":").append(file.getAddedMarks())
+                        .append(",\"conflicts\":").append(file.getConflicts())
+                        .append(",\"warnings\":").append(file.getResult().getReport().size());
+            } else {
+                json.append(",\"ok\":false,\"error\":").append(quote(file.getError()));
+            }
+            json.append('}');
+        }
+        json.append("],\"months\":[");
+        boolean first = true;
+        for (Map.Entry<YearMonth, long[]> month : months.entrySet()) {
+            json.append(first ? "" : ",").append("{\"month\":\"").append(month.getKey())
+                    .append("\",\"present\":").append(month.getValue()[0])
+                    .append(",\"absent\":").append(month.getValue()[1]).append('}');
+            first = false;
+        }
+        json.append("],\"groups\":[");
+        first = true;
+        for (Map.Entry<String, long[]> group : groups.entrySet()) {
+            json.append(first ? "" : ",").append("{\"group\":").append(quote(group.getKey()))
+                    .append(",\"students\":").append(group.getValue()[0])
+                    .append(",\"present\":").append(group.getValue()[1])
+                    .append(",\"absent\":").append(group.getValue()[2]).append('}');
+            first = false;
+        }
+        json.append("]");
+        if (options.threshold != null) {
+            appendAnalytics(json, store, options);
+        }
+        if (options.out != null) {
+            json.append(",\"report\":{\"path\":").append(quote(options.out.getPath()))
+                    .append(",\"ok\":").append(reportError == null && exitCode != EXIT_FAILURE);
+            if (reportError != null) {
+                json.append(",\"error\":").append(quote(reportError));
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Добавить в итог аналитику за период отчета ({@link AttendanceAnalytics}), рассчитанную на {@code --threads} потоках.
+     */
+    private static void appendAnalytics(StringBuilder json, AttendanceStore store, Options options) {
+        LocalDate from = options.from;
+        LocalDate to = options.to;
+        if (from == null || to == null) {
+            long[] range = markedRange(store);
+            if (range == null) {
+                json.append(",\"analytics\":null");
+                return;
+            }
+            from = from != null ? from : LocalDate.ofEpochDay(range[0]);
+            to = to != null ? to : LocalDate.ofEpochDay(range[1]);
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        AttendanceAnalytics.Result result;
+        try {
+            result = AttendanceAnalytics.compute(store.getStudents(), from, to, pool);
+        } finally {
+            pool.shutdown();
+        }
+        json.append(",\"analytics\":{\"from\":\"").append(from).append("\",\"to\":\"").append(to)
+                .append("\",\"elapsedMillis\":").append(result.getElapsedMillis())
+                .append(",\"threshold\":").append(options.threshold)
+                .append(",\"rate\":").append(number(result.getTotal().getRate()))
+                .append(",\"trend\":").append(number(result.getTotal().getTrend()))
+                .append(",\"weeks\":[");
+        for (int week = 0; week < result.getWeekCount(); week++) {
+            json.append(week == 0 ? "" : ",").append("{\"start\":\"").append(result.getWeekStart(week))
+                    .append("\",\"present\":").append(result.getTotal().getWeekPresent(week))
+                    .append(",\"absent\":").append(result.getTotal().getWeekAbsent(week)).append('}');
+        }
+        json.append("],\"groups\":[");
+        boolean first = true;
+        for (AttendanceAnalytics.GroupRate group : result.getGroups()) {
+            json.append(first ? "" : ",").append("{\"group\":").append(quote(group.getName()))
+                    .append(",\"students\":").append(group.getStudents())
+                    .append(",\"rate\":").append(number(group.getRate()))
+                    .append(",\"trend\":").append(number(group.getTrend()))
+                    .append(",\"weeklyRates\":[");
+            for (int week = 0; week < result.getWeekCount(); week++) {
+                json.append(week == 0 ? "" : ",").append(number(group.getWeekRate(week)));
+            }
+            json.append("]}");
+            first = false;
+        }
+        json.append("],\"atRisk\":[");
+        first = true;
+        for (AttendanceAnalytics.StudentRate rate : result.atRisk(options.threshold, options.minMarks)) {
+            json.append(first ? "" : ",").append("{\"name\":").append(quote(rate.getStudent().getFullName()))
+                    .append(",\"group\":").append(quote(rate.getStudent().getGroup()))
+                    .append(",\"present\":").append(rate.getPresent())
+                    .append(",\"absent\":").append(rate.getAbsent())
+                    .append(",\"rate\":").append(number(rate.getRate()))
+                    .append(",\"trend\":").append(number(rate.getTrend())).append('}');
+            first = false;
+        }
+        json.append("]}");
+    }
+
+    /**
+     * Доля с четырьмя знаками; {@link Double#NaN} (нет отметок) записывается как {@code null}.
+     */
+    private static String number(double value) {
+        return Double.isNaN(value) ? "null" : String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
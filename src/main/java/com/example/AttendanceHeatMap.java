@@ -0,0 +1,255 @@
+package com.example;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.time.LocalDate;
+import java.time.Year;
+
+/**
+ * Тепловая карта посещаемости: строка в несколько пикселей на студента и столбец на каждый день года.
+ * <p>
+ * Студенты и их порядок берутся из {@link AttendanceTableModel}, поэтому карта учитывает фильтр таблицы.
+ * Отрисовываются только видимые строки: состояния дней читаются из {@link AttendanceCalendar} сразу
+ * за весь год ({@link AttendanceCalendar#getStates(long, byte[], int)}) и записываются прямо в массив
+ * пикселей переиспользуемого изображения, которое выводится одной операцией. Поэтому прокрутка
+ * остается плавной и на сотнях тысяч строк. Подробности о дне показываются во всплывающей подсказке.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceHeatMap extends JComponent implements Scrollable, TableModelListener, AttendanceStore.Listener {
+
+    /**
+     * Ширина столбца дня, пикселей.
+     */
+    public static final int DAY_WIDTH = 3;
+
+    /**
+     * Высота строки студента, пикселей.
+     */
+    public static final int ROW_HEIGHT = 3;
+
+    private static final int HEADER_HEIGHT = 18;
+    private static final Color MONTH_LINE_COLOR = new Color(160, 160, 160);
+    private static final String[] MONTH_NAMES = {"Янв", "Фев", "Мар", "Апр", "Май", "Июн",
+            "Июл", "Авг", "Сен", "Окт", "Ноя", "Дек"};
+
+    // Цвета пикселей по порядковому номеру AttendanceState
+    private static final int[] STATE_RGB = new int[AttendanceState.values().length];
+
+    static {
+        for (AttendanceState state : AttendanceState.values()) {
+            STATE_RGB[state.ordinal()] = AttendanceCellRenderer.colorOf(state).getRGB();
+        }
+    }
+
+    private final AttendanceTableModel model;
+    private final JComponent header = new MonthHeader();
+    private long firstDay;
+    private int dayCount;
+    private int[] monthStarts = new int[0];
+
+    // Буферы отрисовки, переиспользуются между кадрами
+    private BufferedImage image;
+    private int[] pixels;
+    private byte[] states = new byte[0];
+
+    /**
+     * Создать карту для строк модели таблицы.
+     *
+     * @param model Модель таблицы посещаемости.
+     * @param store Хранилище, изменения отметок в котором перерисовывают карту.
+     * @param year  Отображаемый год.
+     */
+    public AttendanceHeatMap(AttendanceTableModel model, AttendanceStore store, int year) {
+        this.model = model;
+        setOpaque(true);
+        setBackground(AttendanceCellRenderer.EMPTY_COLOR);
+        setToolTipText(""); // Включает подсказки; текст вычисляется по положению мыши
+        setYear(year);
+        model.addTableModelListener(this);
+        store.addListener(this);
+    }
+
+    /**
+     * Сменить отображаемый год.
+     *
+     * @param year Год.
+     */
+    public void setYear(int year) {
+        LocalDate first = LocalDate.of(year, 1, 1);
+        if (dayCount > 0 && first.toEpochDay() == firstDay) {
+            return;
+        }
+        firstDay = first.toEpochDay();
+        dayCount = Year.of(year).length();
+        monthStarts = new int[12];
+        for (int month = 0; month < 12; month++) {
+            monthStarts[month] = (int) (first.plusMonths(month).toEpochDay() - firstDay);
+        }
+        if (states.length < dayCount) {
+            states = new byte[dayCount];
+        }
+        revalidate();
+        repaint();
+        header.repaint();
+    }
+
+    /**
+     * Получить заголовок с названиями месяцев для {@link JScrollPane#setColumnHeaderView(Component)}.
+     *
+     * @return Компонент заголовка.
+     */
+    public JComponent getHeader() {
+        return header;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(dayCount * DAY_WIDTH, Math.max(1, model.getRowCount()) * ROW_HEIGHT);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int rowCount = model.getRowCount();
+        int firstRow = Math.max(0, clip.y / ROW_HEIGHT);
+        int lastRow = Math.min(rowCount - 1, (clip.y + clip.height - 1) / ROW_HEIGHT);
+        if (firstRow <= lastRow) {
+            int width = dayCount * DAY_WIDTH;
+            int height = (lastRow - firstRow + 1) * ROW_HEIGHT;
+            ensureImage(width, height);
+            int stride = image.getWidth();
+            for (int row = firstRow; row <= lastRow; row++) {
+                model.getStudentAt(row).getAttendance().getStates(firstDay, states, dayCount);
+                int offset = (row - firstRow) * ROW_HEIGHT * stride;
+                int x = offset;
+                for (int day = 0; day < dayCount; day++) {
+                    int rgb = STATE_RGB[states[day]];
+                    for (int i = 0; i < DAY_WIDTH; i++) {
+                        pixels[x++] = rgb;
+                    }
+                }
+                // Остальные линии строки повторяют первую
+                for (int line = 1; line < ROW_HEIGHT; line++) {
+                    System.arraycopy(pixels, offset, pixels, offset + line * stride, width);
+                }
+            }
+            int top = firstRow * ROW_HEIGHT;
+            g.drawImage(image, 0, top, width, top + height, 0, 0, width, height, null);
+        }
+
+        // Границы месяцев
+        g.setColor(MONTH_LINE_COLOR);
+        for (int month = 1; month < monthStarts.length; month++) {
+            int x = monthStarts[month] * DAY_WIDTH;
+            g.drawLine(x, clip.y, x, clip.y + clip.height - 1);
+        }
+    }
+
+    private void ensureImage(int width, int height) {
+        if (image == null || image.getWidth() < width || image.getHeight() < height) {
+            int newWidth = image == null ? width : Math.max(width, image.getWidth());
+            int newHeight = image == null ? height : Math.max(height, image.getHeight());
+            image = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int row = event.getY() / ROW_HEIGHT;
+        int day = event.getX() / DAY_WIDTH;
+        if (row < 0 || row >= model.getRowCount() || day < 0 || day >= dayCount) {
+            return null;
+        }
+        Student student = model.getStudentAt(row);
+        long epochDay = firstDay + day;
+        String mark = student.getState(epochDay).getMark();
+        return student.getFullName() + " (" + student.getGroup() + "), " + LocalDate.ofEpochDay(epochDay)
+                + (mark.isEmpty() ? "" : ": " + mark);
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        // Строки добавлены, удалены или отфильтрованы: меняется высота карты
+        if (e.getType() != TableModelEvent.UPDATE || e.getLastRow() == Integer.MAX_VALUE) {
+            revalidate();
+            repaint();
+        }
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        long day = epochDay - firstDay;
+        if (!isShowing() || day < 0 || day >= dayCount) {
+            return;
+        }
+        int row = model.rowOf(student);
+        if (row >= 0) {
+            repaint((int) day * DAY_WIDTH, row * ROW_HEIGHT, DAY_WIDTH, ROW_HEIGHT);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(dayCount * DAY_WIDTH, 400);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? ROW_HEIGHT * 10 : DAY_WIDTH * 7;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Заголовок карты с названиями месяцев.
+     */
+    private final class MonthHeader extends JComponent {
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(dayCount * DAY_WIDTH, HEADER_HEIGHT);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(UIManager.getColor("Panel.background"));
+            g.fillRect(0, 0, getWidth(), getHeight());
+            FontMetrics metrics = g.getFontMetrics();
+            int baseline = (HEADER_HEIGHT + metrics.getAscent() - metrics.getDescent()) / 2;
+            for (int month = 0; month < monthStarts.length; month++) {
+                int x = monthStarts[month] * DAY_WIDTH;
+                g.setColor(MONTH_LINE_COLOR);
+                g.drawLine(x, 0, x, HEADER_HEIGHT);
+                g.setColor(getForeground());
+                g.drawString(MONTH_NAMES[month], x + 3, baseline);
+            }
+        }
+    }
+}
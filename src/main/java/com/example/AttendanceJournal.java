@@ -0,0 +1,721 @@
+package com.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.*;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений посещаемости с периодическими снимками.
+ * <p>
+ * Каждое изменение хранилища (новый студент, отметка, снятие отметки, удаление, очистка,
+ * смена группы) дописывается в двоичный журнал {@code attendance-<поколение>.journal}.
+ * Запись кодируется в потоке, выполнившем изменение, а на диск ее выводит фоновый поток:
+ * все записи, накопившиеся за время предыдущего {@code fsync}, сбрасываются одной операцией
+ * (групповая фиксация). Каждая запись защищена CRC32, поэтому недописанный при сбое хвост
+ * отбрасывается при восстановлении.
+ * </p>
+ * <p>
+ * Когда журнал вырастает больше {@link #SNAPSHOT_THRESHOLD_BYTES}, начинается новое поколение:
+ * журнал переключается на новый файл, а копия данных записывается в фоне в снимок
+ * {@code attendance-<поколение>.snapshot}. После записи снимка файлы старых поколений удаляются.
+ * Время восстановления поэтому ограничено размером снимка и одного журнала. Поколение
+ * переключается только в согласованной точке - после всех уведомлений об изменении
+ * и вне пакета {@link AttendanceStore#runBatch(Runnable)}: иначе снимок уже содержал бы изменение,
+ * часть записей о котором попала бы в новый журнал и применилась при восстановлении повторно.
+ * </p>
+ * <p>
+ * Ошибка записи журнала на диск отключает журнал: данные в памяти не теряются, но дальнейшие
+ * изменения не сохраняются между запусками, о чем сообщается обработчику
+ * {@link #setFailureHandler(Consumer)} в потоке интерфейса.
+ * </p>
+ * При запуске {@link #open(Path, AttendanceStore)} загружает последний целый снимок через
+ * отображение файла в память и применяет журналы того же и более новых поколений.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceJournal implements AttendanceStore.Listener, AutoCloseable {
+
+    /**
+     * Размер журнала, после которого создается новый снимок.
+     */
+    public static final long SNAPSHOT_THRESHOLD_BYTES = 8L * 1024 * 1024;
+
+    private static final int JOURNAL_MAGIC = 0x414A4E4C;  // "AJNL"
+    private static final int SNAPSHOT_MAGIC = 0x41534E50; // "ASNP"
+    private static final int SNAPSHOT_END = 0x454E4421;   // "END!"
+    private static final short FORMAT_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 4 + 2 + 8;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_MARK = 2;
+    private static final byte OP_REMOVE = 3;
+    private static final byte OP_CLEAR = 4;
+    private static final byte OP_GROUP = 5;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String FILE_PREFIX = "attendance-";
+
+    private static final Logger LOGGER = LogManager.getLogger(AttendanceJournal.class);
+
+    /**
+     * Буфер записи с доступом к внутреннему массиву без копирования.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private final Path directory;
+    private final AttendanceStore store;
+    private final long snapshotThreshold;
+
+    // Буфер записей, ожидающих вывода на диск; защищен lock
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+
+    // Файл журнала; защищен ioLock, который всегда берется раньше lock
+    private final Object ioLock = new Object();
+    private FileChannel channel;
+    private long generation;
+
+    // Кодирование записей выполняется в потоке, изменяющем хранилище
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private long bytesSinceSnapshot;
+    private boolean snapshotNeeded;
+    private boolean inBatch;
+
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+    private final Thread writer;
+    private volatile boolean closing;
+    private boolean closed;
+    private volatile boolean failed;
+    private volatile Consumer<IOException> failureHandler;
+
+    private AttendanceJournal(Path directory, AttendanceStore store, long snapshotThreshold, long generation,
+                              long validLength, long replayedBytes) throws IOException {
+        this.directory = directory;
+        this.store = store;
+        this.snapshotThreshold = snapshotThreshold;
+        this.generation = generation;
+        this.bytesSinceSnapshot = replayedBytes;
+        this.channel = openJournal(generation, validLength);
+
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::runWriter, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Восстановить данные в хранилище и начать журналирование его изменений.
+     * Хранилище очищается и заполняется данными из снимка и журналов.
+     * Журнал закрывается автоматически при завершении программы.
+     *
+     * @param directory Каталог с файлами журнала (создается при необходимости).
+     * @param store     Хранилище студентов.
+     * @return Открытый журнал.
+     * @throws IOException при ошибке чтения или записи файлов.
+     */
+    public static AttendanceJournal open(Path directory, AttendanceStore store) throws IOException {
+        return open(directory, store, SNAPSHOT_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Открыть журнал с заданным порогом снимка (для проверки смены поколений на малых данных).
+     */
+    static AttendanceJournal open(Path directory, AttendanceStore store, long snapshotThreshold) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = listFiles(directory, SNAPSHOT_SUFFIX);
+        TreeMap<Long, Path> journals = listFiles(directory, JOURNAL_SUFFIX);
+
+        // Последний целый снимок
+        long snapshotGeneration = 0;
+        List<Student> students = new ArrayList<>();
+        for (Long candidate : snapshots.descendingKeySet()) {
+            List<Student> loaded = loadSnapshot(snapshots.get(candidate), candidate);
+            if (loaded != null) {
+                snapshotGeneration = candidate;
+                students = loaded;
+                break;
+            }
+        }
+        store.clear();
+        store.putAll(students);
+
+        // Журналы того же и более новых поколений
+        long generation = snapshotGeneration;
+        long validLength = 0;
+        long replayedBytes = 0;
+        for (Long journalGeneration : journals.tailMap(snapshotGeneration, true).keySet()) {
+            validLength = replay(journals.get(journalGeneration), journalGeneration, store);
+            replayedBytes += validLength;
+            generation = journalGeneration;
+        }
+
+        AttendanceJournal journal = new AttendanceJournal(directory, store, snapshotThreshold, generation,
+                validLength, replayedBytes);
+        store.addListener(journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-shutdown"));
+        if (replayedBytes > snapshotThreshold) {
+            journal.startSnapshot();
+        }
+        return journal;
+    }
+
+    /**
+     * Записать на диск все накопленные записи и закрыть журнал.
+     */
+    @Override
+    public void close() {
+        synchronized (ioLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        store.removeListener(this);
+        closing = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            writer.join(5000);
+            snapshotExecutor.shutdown();
+            snapshotExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                if (!failed) {
+                    flushPending();
+                }
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error("Ошибка закрытия журнала изменений", e);
+            }
+        }
+    }
+
+    /**
+     * Задать обработчик отказа журнала. Вызывается в потоке интерфейса один раз, после того как
+     * ошибка записи отключила журнал.
+     *
+     * @param handler Обработчик ({@code null} - не сообщать).
+     */
+    public void setFailureHandler(Consumer<IOException> handler) {
+        this.failureHandler = handler;
+    }
+
+    /**
+     * Проверить, отключен ли журнал из-за ошибки записи.
+     *
+     * @return {@code true}, если изменения больше не сохраняются.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Получить текущее поколение журнала.
+     *
+     * @return Номер поколения.
+     */
+    public long getGeneration() {
+        synchronized (ioLock) {
+            return generation;
+        }
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i <= toIndex; i++) {
+            try {
+                recordOut.writeByte(OP_ADD);
+                recordOut.writeInt(i);
+                writeStudent(recordOut, store.get(i));
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // Запись в память не выбрасывает IOException
+            }
+            append();
+        }
+        snapshotIfConsistent();
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        try {
+            recordOut.writeByte(OP_REMOVE);
+            recordOut.writeInt(index);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+        snapshotIfConsistent();
+    }
+
+    @Override
+    public void storeCleared() {
+        try {
+            recordOut.writeByte(OP_CLEAR);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+        snapshotIfConsistent();
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        try {
+            recordOut.writeByte(OP_MARK);
+            recordOut.writeInt(store.indexOf(student));
+            recordOut.writeInt((int) epochDay);
+            recordOut.writeByte(newState.ordinal());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+        snapshotIfConsistent();
+    }
+
+    @Override
+    public void groupChanged(Student student, String oldGroup) {
+        try {
+            recordOut.writeByte(OP_GROUP);
+            recordOut.writeInt(store.indexOf(student));
+            writeString(recordOut, student.getGroup());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+        snapshotIfConsistent();
+    }
+
+    @Override
+    public void batchStarted() {
+        inBatch = true;
+    }
+
+    @Override
+    public void batchFinished() {
+        inBatch = false;
+        snapshotIfConsistent();
+    }
+
+    /**
+     * Переложить закодированную запись в буфер ожидания: длина, данные, CRC32.
+     */
+    private void append() {
+        if (failed) {
+            record.reset();
+            return;
+        }
+        int length = record.size();
+        crc.reset();
+        crc.update(record.array(), 0, length);
+        int checksum = (int) crc.getValue();
+
+        synchronized (lock) {
+            if (pending.remaining() < length + 8) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length + 8));
+                ((Buffer) pending).flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.putInt(length);
+            pending.put(record.array(), 0, length);
+            pending.putInt(checksum);
+            lock.notifyAll();
+        }
+        record.reset();
+
+        bytesSinceSnapshot += length + 8;
+        if (bytesSinceSnapshot > snapshotThreshold) {
+            snapshotNeeded = true; // Снимок - только после всех уведомлений об этом изменении
+        }
+    }
+
+    /**
+     * Начать новое поколение, если журнал вырос, а записанные события полностью описывают
+     * текущее состояние хранилища. Внутри пакета удаление нескольких студентов приходит серией
+     * уведомлений уже после изменения списка, поэтому поколение переключается в конце пакета.
+     */
+    private void snapshotIfConsistent() {
+        if (snapshotNeeded && !inBatch && !closing && !failed) {
+            snapshotNeeded = false;
+            startSnapshot();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: ожидание записей и их вывод на диск с fsync.
+     */
+    private void runWriter() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.position() == 0 && !closing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return; // Закрытие и записей больше нет
+                }
+            }
+            synchronized (ioLock) {
+                if (failed) {
+                    return;
+                }
+                try {
+                    flushPending();
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Вывести накопленные записи в текущий файл журнала. Вызывается под ioLock.
+     */
+    private void flushPending() throws IOException {
+        ByteBuffer data;
+        synchronized (lock) {
+            if (pending.position() == 0) {
+                return;
+            }
+            data = pending;
+            pending = spare;
+            spare = data;
+        }
+        try {
+            ((Buffer) data).flip();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        } finally {
+            ((Buffer) data).clear(); // Буфер снова станет буфером ожидания, даже если запись не удалась
+        }
+    }
+
+    /**
+     * Отключить журнал после ошибки записи. Вызывается под ioLock.
+     * Файл журнала после частичной записи не дописывается: при восстановлении все после
+     * поврежденной записи отбрасывается, поэтому продолжать запись бессмысленно.
+     */
+    private void fail(IOException error) {
+        if (failed) {
+            return;
+        }
+        failed = true;
+        LOGGER.error("Ошибка записи журнала изменений, изменения больше не сохраняются между запусками", error);
+        store.removeListener(this);
+        synchronized (lock) {
+            ((Buffer) pending).clear();
+            ((Buffer) spare).clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Ошибка закрытия журнала изменений", e);
+        }
+        Consumer<IOException> handler = failureHandler;
+        if (handler != null) {
+            SwingUtilities.invokeLater(() -> handler.accept(error));
+        }
+    }
+
+    /**
+     * Начать новое поколение: переключить журнал на новый файл и записать снимок в фоне.
+     * Вызывается в потоке, изменяющем хранилище, в согласованной точке ({@link #snapshotIfConsistent()}),
+     * поэтому копия данных согласована с журналом.
+     */
+    private void startSnapshot() {
+        if (!snapshotInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        List<Student> copies = new ArrayList<>(store.size());
+        for (Student student : store.getStudents()) {
+            copies.add(student.copy());
+        }
+        long newGeneration;
+        synchronized (ioLock) {
+            if (failed) {
+                snapshotInProgress.set(false);
+                return;
+            }
+            try {
+                flushPending();
+                channel.close();
+                newGeneration = generation + 1;
+                channel = openJournal(newGeneration, 0);
+                generation = newGeneration;
+            } catch (IOException e) {
+                snapshotInProgress.set(false);
+                fail(e);
+                return;
+            }
+        }
+        bytesSinceSnapshot = 0;
+
+        snapshotExecutor.execute(() -> {
+            try {
+                writeSnapshot(newGeneration, copies);
+                deleteOlderThan(newGeneration);
+            } catch (IOException e) {
+                // Старые снимок и журналы не удалены, поэтому восстановление по ним остается возможным;
+                // следующая попытка - когда журнал снова вырастет
+                LOGGER.error("Ошибка записи снимка поколения " + newGeneration, e);
+            } finally {
+                snapshotInProgress.set(false);
+            }
+        });
+    }
+
+    private FileChannel openJournal(long journalGeneration, long validLength) throws IOException {
+        Path path = directory.resolve(FILE_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+        FileChannel journalChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validLength < JOURNAL_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putShort(FORMAT_VERSION).putLong(journalGeneration);
+            ((Buffer) header).flip();
+            journalChannel.truncate(0);
+            while (header.hasRemaining()) {
+                journalChannel.write(header);
+            }
+            journalChannel.force(true);
+        } else {
+            journalChannel.truncate(validLength); // Отбросить недописанный хвост
+            journalChannel.position(validLength);
+        }
+        return journalChannel;
+    }
+
+    private void writeSnapshot(long snapshotGeneration, List<Student> students) throws IOException {
+        Path target = directory.resolve(FILE_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve(FILE_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(snapshotChannel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 256 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(students.size());
+            for (Student student : students) {
+                writeStudent(out, student);
+            }
+            out.writeInt(SNAPSHOT_END);
+            out.flush();
+            snapshotChannel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteOlderThan(long keepGeneration) throws IOException {
+        for (Path path : listFiles(directory, SNAPSHOT_SUFFIX).headMap(keepGeneration).values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : listFiles(directory, JOURNAL_SUFFIX).headMap(keepGeneration).values()) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Прочитать снимок через отображение файла в память.
+     *
+     * @return Студенты или {@code null}, если снимок поврежден или не дописан.
+     */
+    private static List<Student> loadSnapshot(Path path, long expectedGeneration) throws IOException {
+        try (FileChannel snapshotChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = snapshotChannel.map(FileChannel.MapMode.READ_ONLY, 0, snapshotChannel.size());
+            if (buffer.remaining() < 18 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getShort() != FORMAT_VERSION
+                    || buffer.getLong() != expectedGeneration) {
+                return null;
+            }
+            int count = buffer.getInt();
+            List<Student> students = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                students.add(readStudent(buffer));
+            }
+            return buffer.remaining() >= 4 && buffer.getInt() == SNAPSHOT_END ? students : null;
+        } catch (RuntimeException e) {
+            return null; // Обрезанный или поврежденный файл
+        }
+    }
+
+    /**
+     * Применить записи журнала к хранилищу.
+     *
+     * @return Длина целой части журнала в байтах (0, если заголовок некорректен).
+     */
+    private static long replay(Path path, long expectedGeneration, AttendanceStore store) throws IOException {
+        try (FileChannel journalChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = journalChannel.map(FileChannel.MapMode.READ_ONLY, 0, journalChannel.size());
+            if (buffer.remaining() < JOURNAL_HEADER_SIZE || buffer.getInt() != JOURNAL_MAGIC
+                    || buffer.getShort() != FORMAT_VERSION || buffer.getLong() != expectedGeneration) {
+                return 0;
+            }
+            CRC32 checksum = new CRC32();
+            byte[] payload = new byte[256];
+            while (buffer.remaining() >= 4) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if (length <= 0 || buffer.remaining() < length + 4) {
+                    return start; // Недописанная запись
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                buffer.get(payload, 0, length);
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != buffer.getInt()) {
+                    return start; // Поврежденная запись
+                }
+                apply(ByteBuffer.wrap(payload, 0, length), store);
+            }
+            return buffer.position();
+        }
+    }
+
+    private static void apply(ByteBuffer record, AttendanceStore store) {
+        byte op = record.get();
+        switch (op) {
+            case OP_ADD:
+                record.getInt(); // Номер совпадает с концом списка
+                store.put(readStudent(record));
+                break;
+            case OP_MARK: {
+                Student student = store.get(record.getInt());
+                student.setState(record.getInt(), AttendanceState.ofOrdinal(record.get()));
+                break;
+            }
+            case OP_REMOVE:
+                store.remove(store.get(record.getInt()));
+                break;
+            case OP_CLEAR:
+                store.clear();
+                break;
+            case OP_GROUP: {
+                Student student = store.get(record.getInt());
+                student.setGroup(readString(record));
+                break;
+            }
+            default:
+                throw new IllegalStateException("Неизвестная операция журнала: " + op);
+        }
+    }
+
+    private static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        writeString(out, student.getLastName());
+        writeString(out, student.getFirstName());
+        writeString(out, student.getPatronymic());
+        writeString(out, student.getGroup());
+        writeString(out, student.getLastName() == null ? student.getFullName() : null);
+        AttendanceCalendar attendance = student.getAttendance();
+        out.writeInt(attendance.blockCount());
+        for (int i = 0; i < attendance.blockCount(); i++) {
+            out.writeInt(attendance.blockKeyAt(i));
+            out.writeLong(attendance.presentBitsAt(i));
+            out.writeLong(attendance.absentBitsAt(i));
+        }
+    }
+
+    private static Student readStudent(ByteBuffer in) {
+        String lastName = readString(in);
+        String firstName = readString(in);
+        String patronymic = readString(in);
+        String group = readString(in);
+        String fullName = readString(in);
+        Student student = lastName != null
+                ? new Student(lastName, firstName, patronymic, group)
+                : new Student(fullName, group);
+        int blocks = in.getInt();
+        for (int i = 0; i < blocks; i++) {
+            student.getAttendance().appendBlock(in.getInt(), in.getLong(), in.getLong());
+        }
+        return student;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static TreeMap<Long, Path> listFiles(Path directory, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + suffix)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - suffix.length())), path);
+                } catch (NumberFormatException e) {
+                    // Посторонний файл
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,521 @@
+package com.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Хранение студентов и отметок во встроенной базе данных H2 (локальный файл, без сервера).
+ * <p>
+ * Таблицы: {@code student_group} - группы, {@code student} - студенты с уникальным ключом
+ * по нормализованному ФИО ({@link AttendanceStore#normalizeName(String)}) и индексом по группе,
+ * {@code mark_block} - отметки блоками по 64 дня в том же виде, что и в {@link AttendanceCalendar}:
+ * ключ блока и две битовые маски. Год отметок студента занимает около шести строк, а индекс
+ * по ключу блока позволяет быстро найти отметки за день.
+ * </p>
+ * <p>
+ * Запись ({@link #saveAll(Collection, ProgressListener, BooleanSupplier)}) объединяет студентов
+ * с уже сохраненными по ФИО и выполняется пакетами JDBC в одной транзакции. Чтение постраничное:
+ * {@link #loadPage(int, int, long, long)} читает страницу по номеру первой строки,
+ * {@link #loadPageAfter(long, int, int, long, long)} и {@link #loadPageBefore(long, int, int, long, long)} -
+ * по ключу рядом с уже прочитанной страницей (для видимой части таблицы, {@link PagedStudentTableModel}),
+ * {@link #forEachPage(int, long, long, Consumer)} обходит всю базу страницами. Отметки читаются
+ * только за указанный диапазон дней, поэтому многолетняя история не попадает в память целиком.
+ * </p>
+ * Методы синхронизированы: соединение одно, обращаться к хранилищу можно из любого потока.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceRepository implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(AttendanceRepository.class);
+
+    /**
+     * Имя файла базы без расширения (H2 добавляет {@code .mv.db}).
+     */
+    public static final String DATABASE_NAME = "attendance-db";
+
+    /**
+     * Количество строк в одном пакете JDBC.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS student_group ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "name VARCHAR(64) NOT NULL UNIQUE)",
+            "CREATE TABLE IF NOT EXISTS student ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "name_key VARCHAR(512) NOT NULL UNIQUE, "
+                    + "last_name VARCHAR(255), "
+                    + "first_name VARCHAR(255), "
+                    + "patronymic VARCHAR(255), "
+                    + "full_name VARCHAR(512) NOT NULL, "
+                    + "group_id INT REFERENCES student_group(id))",
+            "CREATE INDEX IF NOT EXISTS student_group_idx ON student(group_id)",
+            // H2 читает первичный ключ только по возрастанию; обратный индекс нужен для loadPageBefore
+            "CREATE INDEX IF NOT EXISTS student_id_desc_idx ON student(id DESC)",
+            "CREATE TABLE IF NOT EXISTS mark_block ("
+                    + "student_id BIGINT NOT NULL REFERENCES student(id) ON DELETE CASCADE, "
+                    + "block INT NOT NULL, "
+                    + "present BIGINT NOT NULL, "
+                    + "absent BIGINT NOT NULL, "
+                    + "PRIMARY KEY (student_id, block))",
+            "CREATE INDEX IF NOT EXISTS mark_block_block_idx ON mark_block(block)"
+    };
+
+    private static final String SELECT_STUDENTS = "SELECT s.id, s.last_name, s.first_name, s.patronymic, s.full_name, g.name "
+            + "FROM student s LEFT JOIN student_group g ON g.id = s.group_id ";
+
+    private final Path file;
+    private final Connection connection;
+    private final Map<String, Integer> groupIds = new HashMap<>();
+
+    private AttendanceRepository(Path file, Connection connection) {
+        this.file = file;
+        this.connection = connection;
+    }
+
+    /**
+     * Открыть базу в каталоге, создав файл и таблицы при необходимости.
+     *
+     * @param directory Каталог базы.
+     * @return Открытое хранилище.
+     * @throws SQLException при ошибке открытия базы.
+     * @throws IOException  если каталог не удалось создать.
+     */
+    public static AttendanceRepository open(Path directory) throws SQLException, IOException {
+        Files.createDirectories(directory);
+        Path file = directory.toAbsolutePath().resolve(DATABASE_NAME);
+        Connection connection = DriverManager.getConnection("jdbc:h2:file:" + file + ";DB_CLOSE_ON_EXIT=FALSE", "sa", "");
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+            AttendanceRepository repository = new AttendanceRepository(file, connection);
+            repository.loadGroups();
+            connection.commit();
+            return repository;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Получить путь к файлу базы (без расширения).
+     *
+     * @return Путь.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Получить количество студентов в базе.
+     *
+     * @return Количество студентов.
+     * @throws SQLException при ошибке запроса.
+     */
+    public synchronized int countStudents() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM student")) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    /**
+     * Получить названия групп, в которых есть студенты.
+     *
+     * @return Группы по алфавиту.
+     * @throws SQLException при ошибке запроса.
+     */
+    public synchronized List<String> getGroups() throws SQLException {
+        List<String> groups = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT g.name FROM student_group g "
+                     + "WHERE EXISTS (SELECT 1 FROM student s WHERE s.group_id = g.id) ORDER BY g.name")) {
+            while (rows.next()) {
+                groups.add(rows.getString(1));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Прочитать страницу студентов в порядке добавления в базу.
+     *
+     * @param offset  Номер первого студента страницы.
+     * @param limit   Количество студентов.
+     * @param fromDay Первый день отметок ({@link java.time.LocalDate#toEpochDay()}) или {@link Long#MIN_VALUE}.
+     * @param toDay   Последний день отметок или {@link Long#MAX_VALUE}.
+     * @return Студенты страницы с отметками за блоки, пересекающиеся с диапазоном дней.
+     * @throws SQLException при ошибке запроса.
+     */
+    public synchronized List<Student> loadPage(int offset, int limit, long fromDay, long toDay) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_STUDENTS + "ORDER BY s.id LIMIT ? OFFSET ?")) {
+            statement.setInt(1, limit);
+            statement.setInt(2, offset);
+            return readPage(statement, fromDay, toDay).students;
+        }
+    }
+
+    /**
+     * Прочитать страницу студентов, следующих за студентом с известным идентификатором.
+     * Поиск начинается по ключу, поэтому время чтения зависит только от {@code skip},
+     * а не от положения страницы в базе: соседняя с уже прочитанной страница читается так же
+     * быстро, как первая.
+     *
+     * @param afterId Идентификатор, после которого начинается чтение, или {@link Long#MIN_VALUE} - с начала.
+     * @param skip    Сколько студентов пропустить после {@code afterId}.
+     * @param limit   Количество студентов.
+     * @param fromDay Первый день отметок или {@link Long#MIN_VALUE}.
+     * @param toDay   Последний день отметок или {@link Long#MAX_VALUE}.
+     * @return Страница; для пустой страницы {@link Page#getLastId()} равен {@code afterId}.
+     * @throws SQLException при ошибке запроса.
+     */
+    public synchronized Page loadPageAfter(long afterId, int skip, int limit, long fromDay, long toDay) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_STUDENTS + "WHERE s.id > ? ORDER BY s.id LIMIT ? OFFSET ?")) {
+            statement.setLong(1, afterId);
+            statement.setInt(2, limit);
+            statement.setInt(3, skip);
+            Page page = readPage(statement, fromDay, toDay);
+            if (page.students.isEmpty()) {
+                page.firstId = afterId;
+                page.lastId = afterId;
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Прочитать страницу студентов, предшествующих студенту с известным идентификатором,
+     * например последнюю страницу базы. Поиск идет от {@code beforeId} к началу базы,
+     * студенты страницы возвращаются в обычном порядке.
+     *
+     * @param beforeId Идентификатор, перед которым заканчивается страница, или {@link Long#MAX_VALUE} - конец базы.
+     * @param skip     Сколько студентов пропустить перед {@code beforeId}.
+     * @param limit    Количество студентов.
+     * @param fromDay  Первый день отметок или {@link Long#MIN_VALUE}.
+     * @param toDay    Последний день отметок или {@link Long#MAX_VALUE}.
+     * @return Страница; для пустой страницы {@link Page#getFirstId()} равен {@code beforeId}.
+     * @throws SQLException при ошибке запроса.
+     */
+    public synchronized Page loadPageBefore(long beforeId, int skip, int limit, long fromDay, long toDay) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_STUDENTS + "WHERE s.id < ? ORDER BY s.id DESC LIMIT ? OFFSET ?")) {
+            statement.setLong(1, beforeId);
+            statement.setInt(2, limit);
+            statement.setInt(3, skip);
+            Page page = readPage(statement, fromDay, toDay);
+            Collections.reverse(page.students);
+            if (page.students.isEmpty()) {
+                page.firstId = beforeId;
+                page.lastId = beforeId;
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Обойти всех студентов базы страницами. Страницы выбираются по ключу, а не по смещению,
+     * поэтому чтение последних страниц не медленнее первых.
+     *
+     * @param pageSize Количество студентов на странице.
+     * @param fromDay  Первый день отметок или {@link Long#MIN_VALUE}.
+     * @param toDay    Последний день отметок или {@link Long#MAX_VALUE}.
+     * @param page     Получатель страниц.
+     * @throws SQLException при ошибке запроса.
+     */
+    public void forEachPage(int pageSize, long fromDay, long toDay, Consumer<List<Student>> page) throws SQLException {
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            Page next = loadPageAfter(lastId, 0, pageSize, fromDay, toDay);
+            if (next.students.isEmpty()) {
+                return;
+            }
+            page.accept(next.students);
+            if (next.students.size() < pageSize) {
+                return;
+            }
+            lastId = next.lastId;
+        }
+    }
+
+    /**
+     * Прочитать студентов запроса и их блоки отметок.
+     */
+    private Page readPage(PreparedStatement statement, long fromDay, long toDay) throws SQLException {
+        Page page = new Page();
+        List<Student> students = page.students;
+        Map<Long, Student> byId = new HashMap<>();
+        long firstId = Long.MAX_VALUE;
+        long lastId = Long.MIN_VALUE;
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                long id = rows.getLong(1);
+                String lastName = rows.getString(2);
+                String group = rows.getString(6);
+                Student student = lastName != null
+                        ? new Student(lastName, rows.getString(3), rows.getString(4), group)
+                        : new Student(rows.getString(5), group);
+                students.add(student);
+                byId.put(id, student);
+                firstId = Math.min(firstId, id);
+                lastId = Math.max(lastId, id);
+            }
+        }
+        page.firstId = firstId;
+        page.lastId = lastId;
+        if (students.isEmpty()) {
+            return page;
+        }
+        try (PreparedStatement blocks = connection.prepareStatement("SELECT student_id, block, present, absent FROM mark_block "
+                + "WHERE student_id BETWEEN ? AND ? AND block BETWEEN ? AND ? ORDER BY student_id, block")) {
+            blocks.setLong(1, firstId);
+            blocks.setLong(2, lastId);
+            blocks.setInt(3, blockKey(fromDay));
+            blocks.setInt(4, blockKey(toDay));
+            try (ResultSet rows = blocks.executeQuery()) {
+                while (rows.next()) {
+                    Student student = byId.get(rows.getLong(1));
+                    if (student != null) {
+                        student.getAttendance().appendBlock(rows.getInt(2), rows.getLong(3), rows.getLong(4));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Сохранить студентов и их отметки. Студенты с тем же ФИО, что уже есть в базе, обновляются,
+     * блоки отметок заменяются блоками студента; блоки, которых у студента нет (например, не
+     * загруженные годы), в базе остаются. Вся запись - одна транзакция: при ошибке или отмене
+     * база остается в прежнем состоянии.
+     *
+     * @param students  Студенты; не должны изменяться во время записи (передавайте копии).
+     * @param progress  Получатель хода записи в студентах (может быть {@code null}).
+     * @param cancelled Признак отмены, проверяется после каждого пакета (может быть {@code null}).
+     * @return Количество записанных блоков отметок.
+     * @throws SQLException          при ошибке записи.
+     * @throws CancellationException если запись была отменена.
+     */
+    public synchronized int saveAll(Collection<Student> students, ProgressListener progress, BooleanSupplier cancelled)
+            throws SQLException {
+        int blockCount = 0;
+        try (PreparedStatement upsertStudent = connection.prepareStatement("MERGE INTO student "
+                + "(name_key, last_name, first_name, patronymic, full_name, group_id) KEY (name_key) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement selectIds = connection.prepareStatement("SELECT name_key, id FROM student WHERE name_key = ANY(?)");
+             PreparedStatement upsertBlock = connection.prepareStatement("MERGE INTO mark_block "
+                     + "(student_id, block, present, absent) KEY (student_id, block) VALUES (?, ?, ?, ?)")) {
+            List<Student> batch = new ArrayList<>(BATCH_SIZE);
+            int done = 0;
+            for (Student student : students) {
+                batch.add(student);
+                if (batch.size() == BATCH_SIZE) {
+                    blockCount += writeBatch(batch, upsertStudent, selectIds, upsertBlock);
+                    done += batch.size();
+                    batch.clear();
+                    if (progress != null) {
+                        progress.onProgress(done, students.size());
+                    }
+                    if (cancelled != null && cancelled.getAsBoolean()) {
+                        throw new CancellationException("Запись в базу отменена");
+                    }
+                }
+            }
+            blockCount += writeBatch(batch, upsertStudent, selectIds, upsertBlock);
+            connection.commit();
+            if (progress != null) {
+                progress.onProgress(students.size(), students.size());
+            }
+            return blockCount;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            // Группы, добавленные в отмененной транзакции, больше не существуют
+            groupIds.clear();
+            loadGroups();
+            throw e;
+        }
+    }
+
+    private int writeBatch(List<Student> batch, PreparedStatement upsertStudent, PreparedStatement selectIds,
+                           PreparedStatement upsertBlock) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        String[] keys = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Student student = batch.get(i);
+            keys[i] = AttendanceStore.normalizeName(student.getFullName());
+            upsertStudent.setString(1, keys[i]);
+            setNullableString(upsertStudent, 2, student.getLastName());
+            setNullableString(upsertStudent, 3, student.getFirstName());
+            setNullableString(upsertStudent, 4, student.getPatronymic());
+            upsertStudent.setString(5, student.getFullName());
+            Integer groupId = groupId(student.getGroup());
+            if (groupId == null) {
+                upsertStudent.setNull(6, Types.INTEGER);
+            } else {
+                upsertStudent.setInt(6, groupId);
+            }
+            upsertStudent.addBatch();
+        }
+        upsertStudent.executeBatch();
+
+        // Идентификаторы студентов пакета одним запросом
+        Map<String, Long> ids = new HashMap<>(batch.size() * 2);
+        selectIds.setObject(1, keys);
+        try (ResultSet rows = selectIds.executeQuery()) {
+            while (rows.next()) {
+                ids.put(rows.getString(1), rows.getLong(2));
+            }
+        }
+
+        int blocks = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            AttendanceCalendar attendance = batch.get(i).getAttendance();
+            long id = ids.get(keys[i]);
+            for (int b = 0; b < attendance.blockCount(); b++) {
+                upsertBlock.setLong(1, id);
+                upsertBlock.setInt(2, attendance.blockKeyAt(b));
+                upsertBlock.setLong(3, attendance.presentBitsAt(b));
+                upsertBlock.setLong(4, attendance.absentBitsAt(b));
+                upsertBlock.addBatch();
+                if (++blocks % BATCH_SIZE == 0) {
+                    upsertBlock.executeBatch();
+                }
+            }
+        }
+        upsertBlock.executeBatch();
+        return blocks;
+    }
+
+    /**
+     * Получить идентификатор группы, добавив ее в базу при необходимости.
+     */
+    private Integer groupId(String group) throws SQLException {
+        if (group == null || group.isEmpty()) {
+            return null;
+        }
+        Integer id = groupIds.get(group);
+        if (id != null) {
+            return id;
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO student_group (name) VALUES (?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, group);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                id = keys.getInt(1);
+            }
+        }
+        groupIds.put(group, id);
+        return id;
+    }
+
+    private void loadGroups() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id, name FROM student_group")) {
+            while (rows.next()) {
+                groupIds.put(rows.getString(2), rows.getInt(1));
+            }
+        }
+    }
+
+    private static void setNullableString(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    private static int blockKey(long epochDay) {
+        if (epochDay <= (long) Integer.MIN_VALUE << 6) {
+            return Integer.MIN_VALUE;
+        }
+        if (epochDay >= (long) Integer.MAX_VALUE << 6) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) (epochDay >> 6);
+    }
+
+    /**
+     * Страница студентов, прочитанная из базы.
+     */
+    public static final class Page {
+        private final List<Student> students = new ArrayList<>();
+        private long firstId;
+        private long lastId;
+
+        private Page() {
+        }
+
+        /**
+         * Получить студентов страницы в порядке базы.
+         *
+         * @return Студенты.
+         */
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        /**
+         * Получить идентификатор первого студента страницы, перед которым можно продолжить чтение.
+         *
+         * @return Идентификатор для {@link #loadPageBefore(long, int, int, long, long)}.
+         */
+        public long getFirstId() {
+            return firstId;
+        }
+
+        /**
+         * Получить идентификатор последнего студента страницы, с которого можно продолжить чтение.
+         *
+         * @return Идентификатор для {@link #loadPageAfter(long, int, int, long, long)}.
+         */
+        public long getLastId() {
+            return lastId;
+        }
+    }
+
+    /**
+     * Закрыть соединение с базой.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Ошибка закрытия базы данных", e);
+        }
+    }
+}
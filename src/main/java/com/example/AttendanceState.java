@@ -0,0 +1,72 @@
+package com.example;
+
+/**
+ * Состояние отметки студента за конкретный день.
+ * Используется вместо строковых отметок "✓"/"✗" во внутренних структурах.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public enum AttendanceState {
+    /**
+     * Отметки за день нет.
+     */
+    UNKNOWN(""),
+
+    /**
+     * Студент присутствовал.
+     */
+    PRESENT("✓"),
+
+    /**
+     * Студент отсутствовал.
+     */
+    ABSENT("✗");
+
+    private static final AttendanceState[] VALUES = values();
+
+    private final String mark;
+
+    AttendanceState(String mark) {
+        this.mark = mark;
+    }
+
+    /**
+     * Получить символ отметки, который отображается в таблице и пишется в Excel.
+     *
+     * @return "✓", "✗" или пустая строка.
+     */
+    public String getMark() {
+        return mark;
+    }
+
+    /**
+     * Получить состояние по его порядковому номеру без создания массива {@code values()}.
+     *
+     * @param ordinal Порядковый номер состояния.
+     * @return Состояние.
+     */
+    public static AttendanceState ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Распознать отметку из ячейки таблицы или Excel.
+     *
+     * @param mark Текст отметки.
+     * @return Соответствующее состояние; {@link #UNKNOWN}, если отметка не распознана.
+     */
+    public static AttendanceState fromMark(String mark) {
+        if (mark == null) {
+            return UNKNOWN;
+        }
+        String trimmed = mark.trim();
+        if (PRESENT.mark.equals(trimmed)) {
+            return PRESENT;
+        }
+        if (ABSENT.mark.equals(trimmed)) {
+            return ABSENT;
+        }
+        return UNKNOWN;
+    }
+}
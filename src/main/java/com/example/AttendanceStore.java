@@ -0,0 +1,562 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище студентов с индексами для быстрого поиска.
+ * <p>
+ * Является единственным источником данных для {@link MainFrame}. Содержит:
+ * <ul>
+ *     <li>первичный индекс по ФИО и порядковый список студентов (номер студента = номер строки);</li>
+ *     <li>вторичный индекс по группе;</li>
+ *     <li>обратный индекс по дням: для каждого дня битовая маска номеров студентов, имеющих отметку.</li>
+ * </ul>
+ * Изменения отметок у добавленных студентов автоматически попадают в индексы,
+ * а подписчики {@link Listener} получают уведомления о каждом изменении.
+ * Хранилище не потокобезопасно: изменения выполняются из потока обработки событий Swing.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceStore {
+
+    /**
+     * Подписчик на изменения хранилища.
+     */
+    public interface Listener {
+        /**
+         * В конец списка добавлены студенты.
+         *
+         * @param fromIndex Номер первого добавленного студента.
+         * @param toIndex   Номер последнего добавленного студента (включительно).
+         */
+        default void studentsAdded(int fromIndex, int toIndex) {
+        }
+
+        /**
+         * Студент удален из хранилища.
+         *
+         * @param student Удаленный студент.
+         * @param index   Номер, который студент занимал до удаления.
+         */
+        default void studentRemoved(Student student, int index) {
+        }
+
+        /**
+         * Хранилище очищено.
+         */
+        default void storeCleared() {
+        }
+
+        /**
+         * Изменилась отметка студента за день.
+         *
+         * @param student  Студент.
+         * @param epochDay Номер дня.
+         * @param oldState Предыдущее состояние.
+         * @param newState Новое состояние.
+         */
+        default void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        }
+
+        /**
+         * Студент переведен в другую группу.
+         *
+         * @param student  Студент.
+         * @param oldGroup Прежняя группа.
+         */
+        default void groupChanged(Student student, String oldGroup) {
+        }
+
+        /**
+         * Начат пакет изменений ({@link #runBatch(Runnable)}). До {@link #batchFinished()}
+         * события приходят как обычно, но подписчик может отложить дорогую реакцию на них.
+         */
+        default void batchStarted() {
+        }
+
+        /**
+         * Пакет изменений завершен.
+         */
+        default void batchFinished() {
+        }
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final List<Student> students = new ArrayList<>();
+    private final Map<String, Student> byName = new HashMap<>();
+    private final Map<String, List<Student>> byGroup = new HashMap<>();
+    private final Map<Long, BitSet> byDay = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private int batchDepth;
+    private volatile int modCount; // Пишется только потоком интерфейса, читается фоновыми задачами
+
+    /**
+     * Привести ФИО к виду, используемому как ключ: без крайних и повторяющихся пробелов.
+     *
+     * @param fullName ФИО.
+     * @return Нормализованное ФИО.
+     */
+    public static String normalizeName(String fullName) {
+        return fullName == null ? "" : WHITESPACE.matcher(fullName.trim()).replaceAll(" ");
+    }
+
+    /**
+     * Добавить подписчика на изменения.
+     *
+     * @param listener Подписчик.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Удалить подписчика на изменения.
+     *
+     * @param listener Подписчик.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Получить количество студентов.
+     *
+     * @return Количество студентов.
+     */
+    public int size() {
+        return students.size();
+    }
+
+    /**
+     * Получить счетчик изменений. Увеличивается при любом изменении данных,
+     * что позволяет фоновым вычислениям проверить актуальность результата.
+     *
+     * @return Счетчик изменений.
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Получить студента по номеру.
+     *
+     * @param index Номер студента.
+     * @return Студент.
+     */
+    public Student get(int index) {
+        return students.get(index);
+    }
+
+    /**
+     * Найти студента по ФИО.
+     *
+     * @param fullName ФИО студента.
+     * @return Студент или {@code null}, если не найден.
+     */
+    public Student get(String fullName) {
+        return byName.get(normalizeName(fullName));
+    }
+
+    /**
+     * Получить номер студента в хранилище.
+     *
+     * @param student Студент.
+     * @return Номер или -1, если студент не принадлежит хранилищу.
+     */
+    public int indexOf(Student student) {
+        return student.getStore() == this ? student.getStoreIndex() : -1;
+    }
+
+    /**
+     * Получить всех студентов в порядке добавления.
+     *
+     * @return Неизменяемое представление списка студентов.
+     */
+    public List<Student> getStudents() {
+        return Collections.unmodifiableList(students);
+    }
+
+    /**
+     * Получить студентов группы. Регистр символов номера группы не учитывается.
+     *
+     * @param group Номер группы.
+     * @return Неизменяемое представление списка студентов группы.
+     */
+    public List<Student> getByGroup(String group) {
+        List<Student> members = byGroup.get(groupKey(group));
+        return members == null ? Collections.<Student>emptyList() : Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Получить все группы, в которых есть студенты.
+     *
+     * @return Неизменяемое множество номеров групп в нормализованном виде.
+     */
+    public Set<String> getGroups() {
+        return Collections.unmodifiableSet(byGroup.keySet());
+    }
+
+    /**
+     * Обойти студентов, у которых есть отметка (любая) за указанный день.
+     *
+     * @param epochDay Номер дня.
+     * @param action   Действие для каждого студента.
+     */
+    public void forEachMarkedOn(long epochDay, Consumer<Student> action) {
+        BitSet marked = byDay.get(epochDay);
+        if (marked == null) {
+            return;
+        }
+        for (int i = marked.nextSetBit(0); i >= 0; i = marked.nextSetBit(i + 1)) {
+            action.accept(students.get(i));
+        }
+    }
+
+    /**
+     * Подсчитать студентов с отметкой за указанный день.
+     *
+     * @param epochDay Номер дня.
+     * @return Количество студентов.
+     */
+    public int countMarkedOn(long epochDay) {
+        BitSet marked = byDay.get(epochDay);
+        return marked == null ? 0 : marked.cardinality();
+    }
+
+    /**
+     * Выполнить изменения одним пакетом. Подписчики получают {@link Listener#batchStarted()}
+     * до изменений и {@link Listener#batchFinished()} после них (в том числе при исключении),
+     * поэтому таблица может обновиться один раз вместо обновления на каждую отметку.
+     * Вложенные пакеты объединяются с внешним.
+     *
+     * @param changes Изменения.
+     */
+    public void runBatch(Runnable changes) {
+        if (batchDepth++ == 0) {
+            for (Listener listener : listeners) {
+                listener.batchStarted();
+            }
+        }
+        try {
+            changes.run();
+        } finally {
+            if (--batchDepth == 0) {
+                for (Listener listener : listeners) {
+                    listener.batchFinished();
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавить студента в конец списка. Если студент с таким же ФИО уже есть, он удаляется.
+     *
+     * @param student Студент.
+     * @return Замененный студент или {@code null}.
+     */
+    public Student put(Student student) {
+        Student previous = byName.get(normalizeName(student.getFullName()));
+        if (previous != null) {
+            remove(previous);
+        }
+        int index = append(student);
+        for (Listener listener : listeners) {
+            listener.studentsAdded(index, index);
+        }
+        return previous;
+    }
+
+    /**
+     * Добавить нескольких студентов с одним уведомлением подписчиков.
+     * Студенты с уже существующими ФИО заменяют прежних, как в {@link #put(Student)}.
+     *
+     * @param newStudents Добавляемые студенты.
+     */
+    public void putAll(Collection<Student> newStudents) {
+        // Повторы внутри самой коллекции: побеждает последний
+        Map<String, Student> unique = new LinkedHashMap<>();
+        for (Student student : newStudents) {
+            String key = normalizeName(student.getFullName());
+            unique.remove(key);
+            unique.put(key, student);
+        }
+        // Заменяемые студенты удаляются одним проходом, а не по одному
+        List<Student> replaced = new ArrayList<>();
+        for (String key : unique.keySet()) {
+            Student previous = byName.get(key);
+            if (previous != null) {
+                replaced.add(previous);
+            }
+        }
+        removeAll(replaced);
+        if (unique.isEmpty()) {
+            return;
+        }
+        int fromIndex = students.size();
+        for (Student student : unique.values()) {
+            append(student);
+        }
+        for (Listener listener : listeners) {
+            listener.studentsAdded(fromIndex, students.size() - 1);
+        }
+    }
+
+    /**
+     * Удалить студента. Номера следующих студентов сдвигаются на единицу.
+     * Индекс по дням не перестраивается: в масках дней сдвигаются биты выше номера студента.
+     *
+     * @param student Студент.
+     * @return {@code true}, если студент был удален.
+     */
+    public boolean remove(Student student) {
+        if (student.getStore() != this) {
+            return false;
+        }
+        int index = student.getStoreIndex();
+        students.remove(index);
+        byName.remove(normalizeName(student.getFullName()));
+        List<Student> members = byGroup.get(groupKey(student.getGroup()));
+        if (members != null) {
+            members.remove(student);
+            if (members.isEmpty()) {
+                byGroup.remove(groupKey(student.getGroup()));
+            }
+        }
+        student.detach();
+        for (int i = index; i < students.size(); i++) {
+            students.get(i).attach(this, i);
+        }
+        Iterator<Map.Entry<Long, BitSet>> days = byDay.entrySet().iterator();
+        while (days.hasNext()) {
+            Map.Entry<Long, BitSet> day = days.next();
+            BitSet marked = removeBit(day.getValue(), index);
+            if (marked.isEmpty()) {
+                days.remove();
+            } else {
+                day.setValue(marked);
+            }
+        }
+        modCount++;
+
+        for (Listener listener : listeners) {
+            listener.studentRemoved(student, index);
+        }
+        return true;
+    }
+
+    /**
+     * Удалить нескольких студентов за один проход: список сжимается один раз, а маски дней
+     * переносятся на новые номера один раз, поэтому удаление K студентов стоит O(n + отметок), а не K раз столько.
+     * Подписчики получают {@link Listener#studentRemoved(Student, int)} по убыванию прежних номеров,
+     * так что каждый номер верен, как если бы студенты удалялись по одному. Уведомления приходят
+     * внутри пакета ({@link #runBatch(Runnable)}), потому что список к их началу уже изменен целиком.
+     *
+     * @param toRemove Удаляемые студенты; чужие и уже удаленные пропускаются.
+     * @return Количество удаленных студентов.
+     */
+    public int removeAll(Collection<Student> toRemove) {
+        int size = students.size();
+        BitSet gone = new BitSet(size);
+        for (Student student : toRemove) {
+            if (student.getStore() == this) {
+                gone.set(student.getStoreIndex());
+            }
+        }
+        int count = gone.cardinality();
+        if (count == 0) {
+            return 0;
+        }
+        if (count == 1) {
+            remove(students.get(gone.nextSetBit(0)));
+            return 1;
+        }
+
+        // Сжатие списка и новые номера оставшихся студентов
+        Student[] removed = new Student[count];
+        int[] remap = new int[size];
+        Set<String> groups = new HashSet<>();
+        int kept = 0;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            Student student = students.get(i);
+            if (gone.get(i)) {
+                remap[i] = -1;
+                removed[next++] = student;
+                byName.remove(normalizeName(student.getFullName()));
+                groups.add(groupKey(student.getGroup()));
+                student.detach();
+            } else {
+                remap[i] = kept;
+                if (kept != i) {
+                    students.set(kept, student);
+                    student.attach(this, kept);
+                }
+                kept++;
+            }
+        }
+        students.subList(kept, size).clear();
+        for (String group : groups) {
+            List<Student> members = byGroup.get(group);
+            if (members != null) {
+                members.removeIf(member -> member.getStore() != this);
+                if (members.isEmpty()) {
+                    byGroup.remove(group);
+                }
+            }
+        }
+        Iterator<Map.Entry<Long, BitSet>> days = byDay.entrySet().iterator();
+        while (days.hasNext()) {
+            Map.Entry<Long, BitSet> day = days.next();
+            BitSet marked = day.getValue();
+            BitSet moved = new BitSet(kept);
+            for (int i = marked.nextSetBit(0); i >= 0; i = marked.nextSetBit(i + 1)) {
+                if (remap[i] >= 0) {
+                    moved.set(remap[i]);
+                }
+            }
+            if (moved.isEmpty()) {
+                days.remove();
+            } else {
+                day.setValue(moved);
+            }
+        }
+        modCount++;
+
+        // Серия уведомлений - одно изменение: подписчики не должны видеть ее середину как завершенное действие
+        runBatch(() -> {
+            for (int i = count - 1, index = gone.length() - 1; i >= 0; i--, index = gone.previousSetBit(index - 1)) {
+                for (Listener listener : listeners) {
+                    listener.studentRemoved(removed[i], index);
+                }
+            }
+        });
+        return count;
+    }
+
+    /**
+     * Удалить всех студентов.
+     */
+    public void clear() {
+        for (Student student : students) {
+            student.detach();
+        }
+        students.clear();
+        byName.clear();
+        byGroup.clear();
+        byDay.clear();
+        modCount++;
+
+        for (Listener listener : listeners) {
+            listener.storeCleared();
+        }
+    }
+
+    /**
+     * Вызывается студентом при изменении отметки.
+     */
+    void onStateChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        if (oldState == newState) {
+            return;
+        }
+        int index = student.getStoreIndex();
+        if (newState == AttendanceState.UNKNOWN) {
+            BitSet marked = byDay.get(epochDay);
+            if (marked != null) {
+                marked.clear(index);
+                if (marked.isEmpty()) {
+                    byDay.remove(epochDay);
+                }
+            }
+        } else if (oldState == AttendanceState.UNKNOWN) {
+            indexDay(epochDay, index);
+        }
+        modCount++;
+
+        for (Listener listener : listeners) {
+            listener.attendanceChanged(student, epochDay, oldState, newState);
+        }
+    }
+
+    /**
+     * Вызывается студентом при смене группы.
+     */
+    void onGroupChanged(Student student, String oldGroup) {
+        List<Student> members = byGroup.get(groupKey(oldGroup));
+        if (members != null) {
+            members.remove(student);
+            if (members.isEmpty()) {
+                byGroup.remove(groupKey(oldGroup));
+            }
+        }
+        byGroup.computeIfAbsent(groupKey(student.getGroup()), k -> new ArrayList<>()).add(student);
+        modCount++;
+
+        for (Listener listener : listeners) {
+            listener.groupChanged(student, oldGroup);
+        }
+    }
+
+    private int append(Student student) {
+        if (student.getStore() != null) {
+            throw new IllegalArgumentException("Студент уже принадлежит хранилищу: " + student.getFullName());
+        }
+        int index = students.size();
+        students.add(student);
+        byName.put(normalizeName(student.getFullName()), student);
+        student.attach(this, index);
+        byGroup.computeIfAbsent(groupKey(student.getGroup()), k -> new ArrayList<>()).add(student);
+        student.getAttendance().forEach((day, state) -> indexDay(day, index));
+        modCount++;
+        return index;
+    }
+
+    /**
+     * Привести номер группы к ключу индекса: без пробелов по краям и без учета регистра.
+     *
+     * @param group Номер группы (может быть {@code null}).
+     * @return Ключ группы.
+     */
+    static String groupKey(String group) {
+        return group == null ? "" : group.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void indexDay(long epochDay, int index) {
+        byDay.computeIfAbsent(epochDay, k -> new BitSet()).set(index);
+    }
+
+    /**
+     * Убрать бит из маски, сдвинув старшие биты на одну позицию вниз.
+     */
+    private static BitSet removeBit(BitSet marked, int index) {
+        if (index >= marked.length()) {
+            return marked;
+        }
+        long[] words = marked.toLongArray();
+        int word = index >>> 6;
+        long low = words[word] & ((1L << index) - 1); // Биты ниже удаляемого (сдвиг берется по модулю 64)
+        long high = (words[word] >>> 1) & -(1L << index);
+        words[word] = low | high;
+        for (int i = word; i < words.length - 1; i++) {
+            words[i] |= words[i + 1] << 63;
+            words[i + 1] >>>= 1;
+        }
+        return BitSet.valueOf(words);
+    }
+}
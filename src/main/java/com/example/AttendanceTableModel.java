@@ -0,0 +1,327 @@
+package com.example;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Модель таблицы посещаемости, работающая напрямую с {@link AttendanceStore}.
+ * <p>
+ * Значения ячеек не копируются в модель, а вычисляются в {@link #getValueAt(int, int)}
+ * только для строк, которые таблица действительно отрисовывает. Смена месяца меняет лишь
+ * соответствие колонок дням, а изменение одной отметки приводит к обновлению одной ячейки
+ * и счетчика посещений в этой строке.
+ * </p>
+ * Колонки: ФИО, Группа, Посещения и по одной колонке на каждый день выбранного месяца.
+ * Колонки дней возвращают {@link AttendanceState}, отображение отметки выполняет {@link AttendanceCellRenderer}.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceTableModel extends AbstractTableModel implements AttendanceStore.Listener {
+
+    /**
+     * Номер первой колонки с днями месяца.
+     */
+    public static final int FIRST_DAY_COLUMN = 3;
+
+    private final AttendanceStore store;
+    private final AttendanceAggregates aggregates;
+    private MonthView view;
+
+    // Внутри пакета изменений хранилища события копятся и заканчиваются одним обновлением таблицы
+    private boolean inBatch;
+    private boolean batchChanged;
+
+    /**
+     * Отфильтрованные строки; {@code null}, если показываются все студенты хранилища.
+     */
+    private List<Student> filteredRows;
+    private Map<Student, Integer> filteredIndex;
+
+    /**
+     * Создать модель для хранилища и месяца.
+     *
+     * @param store Хранилище студентов.
+     * @param month Отображаемый месяц.
+     */
+    public AttendanceTableModel(AttendanceStore store, YearMonth month) {
+        this(store, month, null);
+    }
+
+    /**
+     * Создать модель, берущую количество посещений из кэша итогов.
+     * Кэш должен быть подписан на хранилище раньше модели.
+     *
+     * @param store      Хранилище студентов.
+     * @param month      Отображаемый месяц.
+     * @param aggregates Кэш итогов по месяцам (может быть {@code null}).
+     */
+    public AttendanceTableModel(AttendanceStore store, YearMonth month, AttendanceAggregates aggregates) {
+        this.store = store;
+        this.aggregates = aggregates;
+        this.view = MonthView.headersOnly(month);
+        store.addListener(this);
+    }
+
+    /**
+     * Получить отображаемый месяц.
+     *
+     * @return Месяц.
+     */
+    public YearMonth getMonth() {
+        return view.getMonth();
+    }
+
+    /**
+     * Сменить отображаемый месяц. Данные не копируются, меняются только колонки.
+     *
+     * @param month Новый месяц.
+     */
+    public void setMonth(YearMonth month) {
+        if (month.equals(view.getMonth())) {
+            return;
+        }
+        view = MonthView.headersOnly(month);
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Сменить отображаемый месяц на заранее подготовленное представление ({@link MonthViewCache}).
+     * Пока представление актуально, количество посещений берется из него.
+     *
+     * @param monthView Представление месяца.
+     */
+    public void setMonth(MonthView monthView) {
+        boolean sameMonth = monthView.getMonth().equals(view.getMonth());
+        view = monthView;
+        if (sameMonth) {
+            fireTableChanged(new TableModelEvent(this, 0, Integer.MAX_VALUE, 2)); // Только счетчик посещений
+        } else {
+            fireTableStructureChanged();
+        }
+    }
+
+    /**
+     * Показывать только указанных студентов.
+     *
+     * @param rows Студенты в порядке отображения.
+     */
+    public void setFilter(List<Student> rows) {
+        filteredRows = new ArrayList<>(rows);
+        filteredIndex = new IdentityHashMap<>(filteredRows.size() * 2);
+        for (int i = 0; i < filteredRows.size(); i++) {
+            filteredIndex.put(filteredRows.get(i), i);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Показывать всех студентов хранилища.
+     */
+    public void clearFilter() {
+        boolean wasFiltered = filteredRows != null;
+        filteredRows = null;
+        filteredIndex = null;
+        if (wasFiltered) {
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Проверить, установлен ли фильтр.
+     *
+     * @return {@code true}, если показываются не все студенты.
+     */
+    public boolean isFiltered() {
+        return filteredRows != null;
+    }
+
+    /**
+     * Получить студента, отображаемого в строке.
+     *
+     * @param row Номер строки.
+     * @return Студент.
+     */
+    public Student getStudentAt(int row) {
+        return filteredRows != null ? filteredRows.get(row) : store.get(row);
+    }
+
+    /**
+     * Найти строку, в которой отображается студент.
+     *
+     * @param student Студент.
+     * @return Номер строки или -1, если студент не отображается.
+     */
+    public int rowOf(Student student) {
+        if (filteredRows == null) {
+            return store.indexOf(student);
+        }
+        Integer row = filteredIndex.get(student);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Получить день, соответствующий колонке.
+     *
+     * @param column Номер колонки.
+     * @return Номер дня ({@link LocalDate#toEpochDay()}) или -1, если колонка не является днем.
+     */
+    public long dayOfColumn(int column) {
+        return column >= FIRST_DAY_COLUMN ? view.getFirstDay() + column - FIRST_DAY_COLUMN : -1;
+    }
+
+    /**
+     * Получить колонку, соответствующую дню.
+     *
+     * @param epochDay Номер дня.
+     * @return Номер колонки или -1, если день не входит в отображаемый месяц.
+     */
+    public int columnOfDay(long epochDay) {
+        long offset = epochDay - view.getFirstDay();
+        return offset >= 0 && offset < view.getDayCount() ? (int) offset + FIRST_DAY_COLUMN : -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return filteredRows != null ? filteredRows.size() : store.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return FIRST_DAY_COLUMN + view.getDayCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        switch (column) {
+            case 0:
+                return "ФИО";
+            case 1:
+                return "Группа";
+            case 2:
+                return "Посещения";
+            default:
+                return view.getDayHeader(column - FIRST_DAY_COLUMN);
+        }
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if (column >= FIRST_DAY_COLUMN) {
+            return AttendanceState.class;
+        }
+        return column == 2 ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column >= FIRST_DAY_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Student student = getStudentAt(row);
+        switch (column) {
+            case 0:
+                return student.getFullName();
+            case 1:
+                return student.getGroup();
+            case 2:
+                if (view.isValidFor(store)) {
+                    return view.getPresentCount(student.getStoreIndex());
+                }
+                return aggregates != null ? aggregates.countPresent(student, view.getMonth())
+                        : student.countPresent(view.getFirstDay(), view.getFirstDay() + view.getDayCount() - 1);
+            default:
+                return student.getState(dayOfColumn(column));
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column < FIRST_DAY_COLUMN) {
+            return;
+        }
+        // Отметка записывается в студента, а таблица обновится через событие хранилища
+        AttendanceState state = value instanceof AttendanceState ? (AttendanceState) value
+                : AttendanceState.fromMark(value == null ? null : value.toString());
+        getStudentAt(row).setState(dayOfColumn(column), state);
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        if (filteredRows == null) {
+            fireOrDefer(() -> fireTableRowsInserted(fromIndex, toIndex));
+        }
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        if (filteredRows == null) {
+            fireOrDefer(() -> fireTableRowsDeleted(index, index));
+            return;
+        }
+        Integer row = filteredIndex.get(student);
+        if (row != null) {
+            filteredRows.remove((int) row);
+            filteredIndex.remove(student);
+            for (int i = row; i < filteredRows.size(); i++) {
+                filteredIndex.put(filteredRows.get(i), i);
+            }
+            fireOrDefer(() -> fireTableRowsDeleted(row, row));
+        }
+    }
+
+    @Override
+    public void storeCleared() {
+        if (filteredRows != null) {
+            filteredRows.clear();
+            filteredIndex.clear();
+        }
+        fireOrDefer(this::fireTableDataChanged);
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        int column = columnOfDay(epochDay);
+        if (column < 0) {
+            return;
+        }
+        int row = rowOf(student);
+        if (row >= 0) {
+            fireOrDefer(() -> {
+                fireTableCellUpdated(row, column);
+                fireTableCellUpdated(row, 2); // Счетчик посещений
+            });
+        }
+    }
+
+    @Override
+    public void batchStarted() {
+        inBatch = true;
+        batchChanged = false;
+    }
+
+    @Override
+    public void batchFinished() {
+        inBatch = false;
+        if (batchChanged) {
+            batchChanged = false;
+            fireTableDataChanged(); // Одно обновление на весь пакет
+        }
+    }
+
+    private void fireOrDefer(Runnable event) {
+        if (inBatch) {
+            batchChanged = true;
+        } else {
+            event.run();
+        }
+    }
+}
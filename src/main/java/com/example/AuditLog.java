@@ -0,0 +1,536 @@
+package com.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал аудита: кто, когда и как изменил посещаемость.
+ * <p>
+ * Каждое изменение хранилища (отметка, новые студенты, удаление, очистка, смена группы), а также
+ * импорт и экспорт файлов записываются в текстовый файл {@code audit.log} строками с полями,
+ * разделенными табуляцией: время, пользователь, вид события, ФИО, группа, дата, прежняя и новая
+ * отметка, подробности.
+ * </p>
+ * <p>
+ * Поток, изменяющий хранилище (обычно поток событий Swing), только заполняет заранее выделенную
+ * ячейку кольцевого буфера примитивными значениями и ссылками - без создания объектов и без
+ * блокировок. Строки формирует и выводит на диск фоновый поток {@code audit-writer}. Если буфер
+ * заполнен (например, при импорте сотен тысяч отметок), записывающий поток ненадолго
+ * приостанавливается: события аудита не теряются. Количество таких ожиданий видно в
+ * {@link Metrics} как {@code audit.waits}.
+ * </p>
+ * При открытии файл больше {@link #ROTATE_BYTES} переименовывается в {@code audit.log.1}.
+ * История отметок студента читается из обоих файлов методом {@link #query(String, LocalDate, LocalDate)}.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AuditLog implements AttendanceStore.Listener, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(AuditLog.class);
+
+    /**
+     * Имя файла журнала аудита.
+     */
+    public static final String FILE_NAME = "audit.log";
+
+    /**
+     * Размер файла, после которого он переносится в архив при открытии.
+     */
+    public static final long ROTATE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Количество ячеек кольцевого буфера (степень двойки).
+     */
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final String NO_VALUE = "-";
+
+    /**
+     * Вид события аудита.
+     */
+    public enum Kind {
+        /** Изменение отметки. */
+        MARK,
+        /** Добавление студентов. */
+        ADD,
+        /** Удаление студента. */
+        REMOVE,
+        /** Очистка списка. */
+        CLEAR,
+        /** Перевод в другую группу. */
+        GROUP,
+        /** Загрузка из файла. */
+        IMPORT,
+        /** Сохранение в файл. */
+        EXPORT
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final AttendanceState[] STATES = AttendanceState.values();
+
+    // Ячейки кольцевого буфера в виде параллельных массивов. Событие с номером seq занимает
+    // ячейку seq & MASK, когда фоновый поток прочитал событие seq - CAPACITY (written),
+    // и становится видно фоновому потоку после записи published[seq & MASK] = seq.
+    // Группа студента может измениться до записи строки, поэтому ее код берется в момент события;
+    // ФИО задается только конструктором студента и читается фоновым потоком
+    private final long[] times = new long[CAPACITY];
+    private final byte[] kinds = new byte[CAPACITY];
+    private final Student[] students = new Student[CAPACITY];
+    private final int[] groups = new int[CAPACITY];
+    private final String[] texts = new String[CAPACITY];
+    private final long[] days = new long[CAPACITY];
+    private final byte[] oldStates = new byte[CAPACITY];
+    private final byte[] newStates = new byte[CAPACITY];
+    private final int[] counts = new int[CAPACITY];
+    private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long written;
+    private volatile long flushed;
+
+    private final Path directory;
+    private final AttendanceStore store;
+    private final String user;
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean closing;
+    private boolean closed;
+
+    // Состояние фонового потока
+    private final StringBuilder line = new StringBuilder(256);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer out = ByteBuffer.allocate(256 * 1024);
+    private final DateTimeFormatter secondFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedPrefix = "";
+    private Student formattedStudent;
+    private String formattedName;
+
+    private AuditLog(Path directory, AttendanceStore store, FileChannel channel) {
+        this.directory = directory;
+        this.store = store;
+        this.channel = channel;
+        this.user = System.getProperty("user.name", NO_VALUE);
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, i - CAPACITY);
+        }
+        this.writer = new Thread(this::runWriter, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Открыть журнал аудита и подписаться на изменения хранилища.
+     * Журнал закрывается автоматически при завершении программы.
+     *
+     * @param directory Каталог журнала (создается при необходимости).
+     * @param store     Хранилище студентов.
+     * @return Открытый журнал.
+     * @throws IOException при ошибке открытия файла.
+     */
+    public static AuditLog open(Path directory, AttendanceStore store) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_NAME);
+        if (Files.exists(file) && Files.size(file) > ROTATE_BYTES) {
+            Files.move(file, directory.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        AuditLog audit = new AuditLog(directory, store, channel);
+        store.addListener(audit);
+        Runtime.getRuntime().addShutdownHook(new Thread(audit::close, "audit-shutdown"));
+        LOGGER.info("Журнал аудита открыт: {}", file.toAbsolutePath());
+        return audit;
+    }
+
+    /**
+     * Записать событие импорта или экспорта.
+     *
+     * @param kind   {@link Kind#IMPORT} или {@link Kind#EXPORT}.
+     * @param detail Подробности (файл, количество записей).
+     * @param count  Количество студентов.
+     */
+    public void record(Kind kind, String detail, int count) {
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, kind, null, detail, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN, count);
+        publish(seq, i);
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, Kind.MARK, student, null, epochDay, oldState, newState, 1);
+        publish(seq, i);
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        // Одна запись на добавленный диапазон: первый студент и их количество
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, Kind.ADD, store.get(fromIndex), null, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN,
+                toIndex - fromIndex + 1);
+        publish(seq, i);
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, Kind.REMOVE, student, null, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN, 1);
+        publish(seq, i);
+    }
+
+    @Override
+    public void storeCleared() {
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, Kind.CLEAR, null, null, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN, 0);
+        publish(seq, i);
+    }
+
+    @Override
+    public void groupChanged(Student student, String oldGroup) {
+        long seq = claim();
+        int i = (int) seq & MASK;
+        fill(i, Kind.GROUP, student, oldGroup, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN, 1);
+        publish(seq, i);
+    }
+
+    /**
+     * Занять номер ячейки; при заполненном буфере дождаться, пока фоновый поток ее освободит.
+     */
+    private long claim() {
+        long seq = claimed.getAndIncrement();
+        if (seq - written >= CAPACITY) {
+            Metrics.get().increment("audit.waits", 1);
+            while (seq - written >= CAPACITY && writer.isAlive()) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        return seq;
+    }
+
+    private void fill(int i, Kind kind, Student student, String text, long epochDay,
+                      AttendanceState oldState, AttendanceState newState, int count) {
+        times[i] = System.currentTimeMillis();
+        kinds[i] = (byte) kind.ordinal();
+        students[i] = student;
+        groups[i] = student != null ? student.getGroupCode() : GroupDictionary.NO_GROUP;
+        texts[i] = text;
+        days[i] = epochDay;
+        oldStates[i] = (byte) oldState.ordinal();
+        newStates[i] = (byte) newState.ordinal();
+        counts[i] = count;
+    }
+
+    private void publish(long seq, int i) {
+        published.lazySet(i, seq);
+    }
+
+    /**
+     * Цикл фонового потока: форматирование опубликованных событий и вывод их на диск.
+     * Данные сбрасываются в файл, когда буфер вывода заполнен или новых событий нет.
+     */
+    private void runWriter() {
+        long next = 0;
+        while (true) {
+            int i = (int) next & MASK;
+            if (published.get(i) == next) {
+                format(i);
+                students[i] = null;
+                texts[i] = null;
+                next++;
+                written = next;
+                if (out.remaining() < line.length() * 4 + 64) {
+                    flush();
+                }
+                encode();
+                continue;
+            }
+            flush();
+            flushed = next;
+            if (closing && claimed.get() == next) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private void format(int i) {
+        line.setLength(0);
+        long time = times[i];
+        long second = time / 1000;
+        if (second != formattedSecond) {
+            formattedSecond = second;
+            formattedPrefix = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()).format(secondFormat);
+        }
+        line.append(formattedPrefix).append('.');
+        appendPadded(line, (int) (time % 1000), 3);
+        line.append('\t').append(user).append('\t').append(KINDS[kinds[i]].name()).append('\t');
+
+        Kind kind = KINDS[kinds[i]];
+        Student student = students[i];
+        if (student != null) {
+            // Отметки одного студента обычно идут подряд: ФИО собирается один раз
+            if (student != formattedStudent) {
+                formattedStudent = student;
+                formattedName = student.getFullName();
+            }
+            line.append(formattedName).append('\t').append(GroupDictionary.name(groups[i])).append('\t');
+        } else {
+            line.append(NO_VALUE).append('\t').append(NO_VALUE).append('\t');
+        }
+        if (kind == Kind.MARK) {
+            EpochDays.appendDate(line, days[i]);
+            line.append('\t').append(STATES[oldStates[i]].name()).append('\t').append(STATES[newStates[i]].name());
+        } else {
+            line.append(NO_VALUE).append('\t').append(NO_VALUE).append('\t').append(NO_VALUE);
+        }
+        line.append('\t');
+        switch (kind) {
+            case ADD:
+                line.append("+").append(counts[i]);
+                break;
+            case GROUP:
+                line.append("из ").append(texts[i]);
+                break;
+            case IMPORT:
+            case EXPORT:
+                line.append(texts[i]).append(" (").append(counts[i]).append(')');
+                break;
+            default:
+                line.append(NO_VALUE);
+        }
+        line.append('\n');
+    }
+
+    private void encode() {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, out, true);
+        if (result.isOverflow()) {
+            // Строка длиннее свободного места: вывести накопленное и продолжить
+            flush();
+            encoder.encode(chars, out, true);
+        }
+    }
+
+    private void flush() {
+        if (out.position() == 0) {
+            return;
+        }
+        ((Buffer) out).flip();
+        try {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Ошибка записи журнала аудита", e);
+        }
+        ((Buffer) out).clear();
+    }
+
+    /**
+     * Дождаться записи в файл всех событий, опубликованных до вызова.
+     *
+     * @param timeoutMillis Наибольшее время ожидания, мс.
+     */
+    public void awaitWritten(long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (flushed < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Найти в журнале аудита события студента.
+     *
+     * @param fullName ФИО студента (без учета регистра и лишних пробелов).
+     * @param from     Первый день отметок или {@code null}.
+     * @param to       Последний день отметок или {@code null}.
+     * @return События в порядке записи; в диапазон дат попадают только изменения отметок.
+     * @throws IOException при ошибке чтения файла.
+     */
+    public List<Entry> query(String fullName, LocalDate from, LocalDate to) throws IOException {
+        awaitWritten(1000);
+        return query(directory, fullName, from, to);
+    }
+
+    /**
+     * Найти события студента в файлах журнала аудита указанного каталога.
+     *
+     * @param directory Каталог журнала.
+     * @param fullName  ФИО студента.
+     * @param from      Первый день отметок или {@code null}.
+     * @param to        Последний день отметок или {@code null}.
+     * @return События в порядке записи.
+     * @throws IOException при ошибке чтения файла.
+     */
+    public static List<Entry> query(Path directory, String fullName, LocalDate from, LocalDate to) throws IOException {
+        String name = AttendanceStore.normalizeName(fullName);
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : new Path[]{directory.resolve(FILE_NAME + ".1"), directory.resolve(FILE_NAME)}) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    String[] fields = text.split("\t", -1);
+                    if (fields.length < 9 || !fields[3].equalsIgnoreCase(name)) {
+                        continue;
+                    }
+                    if ((from != null || to != null) && !inRange(fields[5], from, to)) {
+                        continue;
+                    }
+                    entries.add(new Entry(fields));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static boolean inRange(String date, LocalDate from, LocalDate to) {
+        if (NO_VALUE.equals(date)) {
+            return false;
+        }
+        LocalDate day = LocalDate.parse(date);
+        return (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to));
+    }
+
+    /**
+     * Записать оставшиеся события на диск и закрыть журнал.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            store.removeListener(this);
+            closing = true;
+        }
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true;
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error("Ошибка закрытия журнала аудита", e);
+            }
+        }
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) {
+                sb.append('0');
+            }
+        }
+        sb.append(value);
+    }
+
+    /**
+     * Прочитанное событие журнала аудита.
+     */
+    public static final class Entry {
+        private final String time;
+        private final String user;
+        private final String kind;
+        private final String fullName;
+        private final String group;
+        private final String date;
+        private final String oldState;
+        private final String newState;
+        private final String detail;
+
+        Entry(String[] fields) {
+            this.time = fields[0];
+            this.user = fields[1];
+            this.kind = fields[2];
+            this.fullName = fields[3];
+            this.group = fields[4];
+            this.date = fields[5];
+            this.oldState = fields[6];
+            this.newState = fields[7];
+            this.detail = fields[8];
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public String getOldState() {
+            return oldState;
+        }
+
+        public String getNewState() {
+            return newState;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+    }
+}
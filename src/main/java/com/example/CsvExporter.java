@@ -0,0 +1,180 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Потоковый экспорт посещаемости в CSV для обмена с внешними системами и очень больших списков.
+ * <p>
+ * Формат "длинный": строка "ФИО;Группа;Дата;Отметка" на каждую отметку диапазона, студент без отметок
+ * записывается одной строкой с пустыми датой и отметкой. Поля в кавычках по RFC 4180, строки
+ * заканчиваются CRLF, файл в UTF-8 с BOM и разделителем ";", чтобы Excel правильно показал кириллицу.
+ * Файл читается обратно {@link CsvImporter} без потерь.
+ * </p>
+ * Запись идет напрямую в {@link FileChannel} через один переиспользуемый буфер: ФИО и группа кодируются
+ * в UTF-8 один раз на студента, даты и отметки пишутся байтами из битовых масок календаря.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class CsvExporter {
+
+    /**
+     * Разделитель полей.
+     */
+    public static final byte DELIMITER = ';';
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int PROGRESS_STEP = 1024; // Отмена и ход экспорта проверяются раз в 1024 студента
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] HEADER = (RecordValidator.COLUMN_NAME + ";" + RecordValidator.COLUMN_GROUP + ";"
+            + RecordValidator.COLUMN_DATE + ";" + CsvImporter.COLUMN_MARK + "\r\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRESENT_MARK = AttendanceState.PRESENT.getMark().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ABSENT_MARK = AttendanceState.ABSENT.getMark().getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_TAIL = 10 + 1 + 3 + 2; // Дата, разделитель, отметка и CRLF
+
+    private final List<Student> students;
+    private final long fromDay;
+    private final long toDay;
+
+    /**
+     * Создать экспорт.
+     *
+     * @param students Студенты для экспорта. Список и студенты не должны изменяться во время экспорта,
+     *                 поэтому из потока интерфейса следует передавать копии ({@link Student#copy()}).
+     * @param from     Первый день диапазона (включительно).
+     * @param to       Последний день диапазона (включительно).
+     */
+    public CsvExporter(List<Student> students, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        this.students = students;
+        this.fromDay = from.toEpochDay();
+        this.toDay = to.toEpochDay();
+    }
+
+    /**
+     * Записать CSV в файл. При отмене или ошибке недописанный файл удаляется.
+     *
+     * @param file      Файл csv.
+     * @param progress  Получатель хода экспорта в студентах (может быть {@code null}).
+     * @param cancelled Признак отмены (может быть {@code null}).
+     * @throws IOException           при ошибке записи.
+     * @throws CancellationException если экспорт был отменен.
+     */
+    public void export(File file, ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            export(channel, progress, cancelled);
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Записать CSV в канал.
+     *
+     * @param channel   Канал для записи.
+     * @param progress  Получатель хода экспорта в студентах (может быть {@code null}).
+     * @param cancelled Признак отмены (может быть {@code null}).
+     * @throws IOException           при ошибке записи.
+     * @throws CancellationException если экспорт был отменен.
+     */
+    public void export(WritableByteChannel channel, ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.put(BOM).put(HEADER);
+        for (int i = 0; i < students.size(); i++) {
+            if (i % PROGRESS_STEP == 0) {
+                if (cancelled != null && cancelled.getAsBoolean()) {
+                    throw new CancellationException("Экспорт отменен");
+                }
+                if (progress != null) {
+                    progress.onProgress(i, students.size());
+                }
+            }
+            Student student = students.get(i);
+            byte[] prefix = (quote(student.getFullName()) + ";" + quote(student.getGroup()) + ";")
+                    .getBytes(StandardCharsets.UTF_8);
+            if (prefix.length + MAX_TAIL > buffer.capacity()) {
+                flush(channel, buffer);
+                buffer = ByteBuffer.allocateDirect(prefix.length + MAX_TAIL);
+            }
+
+            boolean written = false;
+            AttendanceCalendar calendar = student.getAttendance();
+            for (int block = 0; block < calendar.blockCount(); block++) {
+                long base = (long) calendar.blockKeyAt(block) << 6;
+                if (base > toDay) {
+                    break;
+                }
+                if (base + 63 < fromDay) {
+                    continue;
+                }
+                long present = calendar.presentBitsAt(block);
+                long lo = Math.max(0, fromDay - base);
+                long hi = Math.min(63, toDay - base);
+                long marked = (present | calendar.absentBitsAt(block)) & (-1L >>> (63 - hi)) & (-1L << lo);
+                while (marked != 0) {
+                    int offset = Long.numberOfTrailingZeros(marked);
+                    marked &= marked - 1;
+                    if (buffer.remaining() < prefix.length + MAX_TAIL) {
+                        flush(channel, buffer);
+                    }
+                    buffer.put(prefix);
+                    EpochDays.putDate(buffer, base + offset);
+                    buffer.put(DELIMITER).put((present & (1L << offset)) != 0 ? PRESENT_MARK : ABSENT_MARK);
+                    buffer.put((byte) '\r').put((byte) '\n');
+                    written = true;
+                }
+            }
+            if (!written) {
+                // Студент без отметок за диапазон сохраняется в списке
+                if (buffer.remaining() < prefix.length + MAX_TAIL) {
+                    flush(channel, buffer);
+                }
+                buffer.put(prefix).put(DELIMITER).put((byte) '\r').put((byte) '\n');
+            }
+        }
+        flush(channel, buffer);
+        if (progress != null) {
+            progress.onProgress(students.size(), students.size());
+        }
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    /**
+     * Заключить поле в кавычки по RFC 4180, если в нем есть разделитель, кавычка или перевод строки.
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(DELIMITER) < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,800 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Потоковый импорт посещаемости из CSV для больших выгрузок (сотни мегабайт и гигабайты).
+ * <p>
+ * Файл читается через {@link FileChannel} окнами {@link MappedByteBuffer}, без {@code Reader} и без строки
+ * на каждое поле. Запись разбирается по RFC 4180 (поля в кавычках, удвоенные кавычки, переводы строк
+ * внутри кавычек) в переиспользуемый буфер байтов; ФИО сравнивается с уже встреченными студентами прямо
+ * в UTF-8, даты и отметки распознаются по байтам. Строки Java создаются только для новых студентов
+ * и для сообщений об ошибках.
+ * </p>
+ * <p>
+ * Файл делится на части по {@link #CHUNK_SIZE} байт, которые разбираются параллельно в {@link ForkJoinPool}.
+ * Часть начинается с первой строки после своей границы. Если граница попала в перевод строки внутри
+ * кавычек, это обнаруживается при объединении частей в порядке файла, и часть разбирается заново
+ * от настоящего начала записи. Студент, встретившийся в нескольких частях, объединяется в одну запись.
+ * </p>
+ * Первая строка - заголовок; разделитель (";", "," или табуляция) определяется по нему, BOM пропускается.
+ * Колонки "ФИО" и "Группа" (по умолчанию первая и вторая), необязательные "Дата" (гггг-мм-дд)
+ * и "Отметка" ("✓"/"✗"): по строке на каждую отметку, как пишет {@link CsvExporter}. Если колонки
+ * отметки нет, дата в строке означает присутствие. Группа берется из первой строки студента.
+ * Строки проверяются правилами {@link RecordValidator#forImport()}, как в {@link ExcelImporter}.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class CsvImporter {
+
+    /**
+     * Колонка отметки.
+     */
+    public static final String COLUMN_MARK = "Отметка";
+
+    /**
+     * Размер части файла, которую разбирает одна задача, байт.
+     */
+    public static final int CHUNK_SIZE = 16 << 20;
+
+    private static final int WINDOW_SLACK = 1 << 20; // Окно для записи, которая выходит за границу части
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final String SOURCE = ""; // В CSV нет листов: в отчете указываются только строка и колонка
+    private static final int GROUP_CHECK_BYTES = 64; // Группа короче в байтах заведомо не длиннее допустимой в символах
+    private static final int CANCEL_CHECK_MASK = 4095; // Отмена проверяется раз в 4096 записей
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] PRESENT_MARK = AttendanceState.PRESENT.getMark().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ABSENT_MARK = AttendanceState.ABSENT.getMark().getBytes(StandardCharsets.UTF_8);
+
+    private final File file;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final long lastAllowedDay;
+    private final RecordValidator validator = RecordValidator.forImport();
+
+    /**
+     * Создать импорт из файла; части разбираются в общем пуле {@link ForkJoinPool#commonPool()}.
+     *
+     * @param file Файл csv.
+     */
+    public CsvImporter(File file) {
+        this(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Создать импорт из файла.
+     *
+     * @param file Файл csv.
+     * @param pool Пул, в котором разбираются части файла.
+     */
+    public CsvImporter(File file, ForkJoinPool pool) {
+        this(file, pool, CHUNK_SIZE);
+    }
+
+    CsvImporter(File file, ForkJoinPool pool, int chunkSize) {
+        this.file = file;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.lastAllowedDay = LocalDate.of(LocalDate.now().getYear(), 12, 31).toEpochDay();
+    }
+
+    /**
+     * Проверить, является ли файл CSV (по расширению).
+     *
+     * @param file Файл.
+     * @return {@code true} для файлов *.csv.
+     */
+    public static boolean isCsv(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    /**
+     * Прочитать файл.
+     *
+     * @param progress  Получатель хода импорта в байтах (может быть {@code null}).
+     * @param cancelled Признак отмены, проверяется каждые несколько тысяч строк (может быть {@code null}).
+     * @return Результат импорта в том же виде, что и у {@link ExcelImporter}.
+     * @throws IOException           при ошибке чтения файла.
+     * @throws CancellationException если импорт был отменен.
+     */
+    public ExcelImporter.Result read(ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Format format = new Format();
+            Chunk header = new Chunk(channel, size, format, cancelled);
+            long start = header.startsWith(BOM) ? BOM.length : 0;
+            format.delimiter = header.detectDelimiter(start);
+            format.dataStart = header.readHeader(start);
+
+            // Части разбираются параллельно, каждая от первой строки после своей границы
+            int count = (int) Math.max(1, (size - format.dataStart + chunkSize - 1) / chunkSize);
+            List<ForkJoinTask<Chunk>> parts = new ArrayList<>(count);
+            for (int k = 0; k < count; k++) {
+                long from = format.dataStart + (long) k * chunkSize;
+                long until = boundary(format, size, k + 1, count);
+                boolean first = k == 0;
+                parts.add(pool.submit(() -> {
+                    Chunk chunk = new Chunk(channel, size, format, cancelled);
+                    chunk.parse(first ? from : chunk.seek(from), until);
+                    return chunk;
+                }));
+            }
+
+            boolean completed = false;
+            try {
+                Map<String, Student> students = new LinkedHashMap<>();
+                RecordValidator.Report report = new RecordValidator.Report();
+                int markCount = 0;
+                long expected = format.dataStart;
+                int rowsBefore = 1; // Заголовок
+                for (int k = 0; k < count; k++) {
+                    Chunk chunk = join(parts.get(k));
+                    if (chunk.start != expected) {
+                        // Граница части попала внутрь поля в кавычках: часть разбирается от конца предыдущей
+                        chunk = new Chunk(channel, size, format, cancelled);
+                        chunk.parse(expected, boundary(format, size, k + 1, count));
+                    }
+                    for (int i = 0; i < chunk.students.size(); i++) {
+                        Student student = chunk.students.get(i);
+                        Student target = students.putIfAbsent(chunk.names.get(i), student);
+                        if (target != null) {
+                            student.getAttendance().forEach(target::setState);
+                        }
+                    }
+                    for (RecordValidator.Violation violation : chunk.violations) {
+                        report.add(new RecordValidator.Violation(violation.getSource(), rowsBefore + violation.getRow(),
+                                violation.getColumn(), violation.getReason(), violation.getValue()));
+                    }
+                    markCount += chunk.markCount;
+                    rowsBefore += chunk.rows;
+                    expected = chunk.end;
+                    if (progress != null) {
+                        progress.onProgress(expected, size);
+                    }
+                }
+                completed = true;
+                return new ExcelImporter.Result(new ArrayList<>(students.values()), report, markCount);
+            } finally {
+                if (!completed) {
+                    for (ForkJoinTask<Chunk> part : parts) {
+                        part.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    private long boundary(Format format, long size, int k, int count) {
+        return k >= count ? size : format.dataStart + (long) k * chunkSize;
+    }
+
+    private static Chunk join(ForkJoinTask<Chunk> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Импорт прерван");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return 30 + ((month + (month >> 3)) & 1);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r'); // Те же символы, что \s в AttendanceStore.normalizeName
+    }
+
+    /**
+     * Разделитель и номера колонок, определенные по заголовку.
+     */
+    private static final class Format {
+        private byte delimiter;
+        private int nameColumn = 0;
+        private int groupColumn = 1;
+        private int dateColumn = -1;
+        private int markColumn = -1;
+        private long dataStart;
+    }
+
+    /**
+     * Разбор части файла. Состояние записи хранится в переиспользуемых массивах.
+     */
+    private final class Chunk {
+        private final FileChannel channel;
+        private final long size;
+        private final Format format;
+        private final BooleanSupplier cancelled;
+
+        private MappedByteBuffer window;
+        private long windowStart;
+        private int windowLimit;
+        private long windowLength = WINDOW_SLACK;
+
+        // Окно читается блоками в небольшой массив: перебор массива заметно быстрее get(i) отображенного буфера
+        private byte[] block = new byte[BLOCK_SIZE];
+        private long blockStart;
+        private int blockLimit;
+
+        // Поля текущей записи без кавычек, подряд в одном буфере
+        private byte[] row = new byte[256];
+        private int[] fieldStarts = new int[8];
+        private int[] fieldEnds = new int[8];
+        private int fieldCount;
+        private int valueFrom;
+        private int valueTo;
+
+        // Нормализованное ФИО текущей записи; ФИО предыдущего студента в том виде, как оно записано в файле
+        private byte[] nameKey = new byte[64];
+        private int nameHash;
+        private byte[] lastName = new byte[64];
+        private int lastNameLength;
+        private Student lastStudent;
+
+        // Первый день и длина месяца последней разобранной даты
+        private int cachedMonth = -1;
+        private long cachedMonthStart;
+        private int cachedMonthLength;
+
+        private final NameTable table = new NameTable();
+        private final List<Student> students = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<RecordValidator.Violation> violations = new ArrayList<>(0);
+        private long start;
+        private long end;
+        private int rows;
+        private int markCount;
+
+        Chunk(FileChannel channel, long size, Format format, BooleanSupplier cancelled) {
+            this.channel = channel;
+            this.size = size;
+            this.format = format;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Разобрать записи, начинающиеся до {@code until}.
+         *
+         * @return Начало первой записи за границей части (или конец файла).
+         */
+        long parse(long from, long until) throws IOException {
+            start = from;
+            windowLength = until - from + WINDOW_SLACK;
+            long pos = from;
+            while (pos < until && pos < size) {
+                pos = readRecord(pos);
+                rows++;
+                if ((rows & CANCEL_CHECK_MASK) == 0 && cancelled != null && cancelled.getAsBoolean()) {
+                    throw new CancellationException("Импорт отменен");
+                }
+                addRow();
+            }
+            end = pos;
+            window = null; // Окно освобождается сборщиком мусора, пока часть ждет объединения
+            block = null;
+            return pos;
+        }
+
+        /**
+         * Найти начало первой строки, которая начинается не раньше {@code nominal}.
+         */
+        long seek(long nominal) throws IOException {
+            long pos = nominal - 1;
+            while (fill(pos)) {
+                for (int i = 0; i < blockLimit; i++) {
+                    if (block[i] == '\n') {
+                        return blockStart + i + 1;
+                    }
+                }
+                pos = blockStart + blockLimit;
+            }
+            return size;
+        }
+
+        boolean startsWith(byte[] prefix) throws IOException {
+            if (size < prefix.length || !fill(0)) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (block[i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Выбрать разделитель, который чаще других встречается в заголовке вне кавычек.
+         */
+        byte detectDelimiter(long from) throws IOException {
+            int semicolons = 0;
+            int commas = 0;
+            int tabs = 0;
+            boolean quoted = false;
+            long pos = from;
+            scan:
+            while (fill(pos)) {
+                for (int i = 0; i < blockLimit; i++) {
+                    byte b = block[i];
+                    if (b == '"') {
+                        quoted = !quoted;
+                    } else if (!quoted) {
+                        if (b == '\n') {
+                            break scan;
+                        }
+                        semicolons += b == ';' ? 1 : 0;
+                        commas += b == ',' ? 1 : 0;
+                        tabs += b == '\t' ? 1 : 0;
+                    }
+                }
+                pos = blockStart + blockLimit;
+            }
+            if (semicolons > 0 && semicolons >= commas && semicolons >= tabs) {
+                return ';';
+            }
+            return tabs > commas ? (byte) '\t' : (byte) ',';
+        }
+
+        /**
+         * Прочитать заголовок и запомнить номера колонок.
+         *
+         * @return Начало первой записи данных.
+         */
+        long readHeader(long from) throws IOException {
+            if (from >= size) {
+                return size;
+            }
+            long next = readRecord(from);
+            for (int column = 0; column < fieldCount; column++) {
+                String header = trim(column) ? text(valueFrom, valueTo) : "";
+                if (RecordValidator.COLUMN_NAME.equalsIgnoreCase(header)) {
+                    format.nameColumn = column;
+                } else if (RecordValidator.COLUMN_GROUP.equalsIgnoreCase(header)) {
+                    format.groupColumn = column;
+                } else if (RecordValidator.COLUMN_DATE.equalsIgnoreCase(header)) {
+                    format.dateColumn = column;
+                } else if (COLUMN_MARK.equalsIgnoreCase(header)) {
+                    format.markColumn = column;
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Скопировать в {@link #block} байты, начиная с {@code pos}; окно отображается заново, когда позиция выходит за него.
+         *
+         * @return {@code false}, если достигнут конец файла.
+         */
+        private boolean fill(long pos) throws IOException {
+            if (pos >= size) {
+                return false;
+            }
+            if (window == null || pos < windowStart || pos >= windowStart + windowLimit) {
+                windowLimit = (int) Math.min(size - pos, Math.min(Integer.MAX_VALUE, Math.max(windowLength, BLOCK_SIZE)));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, pos, windowLimit);
+                windowStart = pos;
+                windowLength = WINDOW_SLACK; // Следующие окна нужны только для записи за границей части
+            }
+            int offset = (int) (pos - windowStart);
+            blockStart = pos;
+            blockLimit = Math.min(BLOCK_SIZE, windowLimit - offset);
+            ((Buffer) window).position(offset);
+            window.get(block, 0, blockLimit);
+            return true;
+        }
+
+        /**
+         * Разобрать запись, начинающуюся с {@code pos}, в буфер полей.
+         *
+         * @return Начало следующей записи.
+         */
+        private long readRecord(long pos) throws IOException {
+            if (pos < blockStart || pos >= blockStart + blockLimit) {
+                fill(pos);
+            }
+            byte[] in = block;
+            byte delimiter = format.delimiter;
+            byte[] bytes = row;
+            int length = 0;
+            int fieldStart = 0;
+            boolean quoted = false;
+            boolean afterQuote = false; // Кавычка внутри поля в кавычках: закрывающая или первая из удвоенных
+            fieldCount = 0;
+            int limit = blockLimit;
+            int i = (int) (pos - blockStart);
+            while (true) {
+                if (i >= limit) {
+                    if (!fill(blockStart + limit)) {
+                        row = bytes;
+                        addField(fieldStart, length);
+                        return size; // Последняя запись без перевода строки (незакрытая кавычка закрывается концом файла)
+                    }
+                    limit = blockLimit;
+                    i = 0;
+                }
+                byte b = in[i];
+                if (b != delimiter && (b < 0 || b > '"')) {
+                    // Обычные символы (в том числе байты кириллицы) копируются в поле одним куском
+                    int run = i;
+                    do {
+                        i++;
+                    } while (i < limit && (b = in[i]) != delimiter && (b < 0 || b > '"'));
+                    if (length + i - run > bytes.length) {
+                        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + i - run));
+                    }
+                    System.arraycopy(in, run, bytes, length, i - run);
+                    length += i - run;
+                    afterQuote = false;
+                    continue;
+                }
+                i++;
+                if (quoted) {
+                    if (b == '"') {
+                        quoted = false;
+                        afterQuote = true;
+                        continue;
+                    }
+                } else if (afterQuote && b == '"') {
+                    quoted = true; // Удвоенная кавычка - символ кавычки
+                    afterQuote = false;
+                } else if (b == delimiter) {
+                    row = bytes;
+                    addField(fieldStart, length);
+                    fieldStart = length;
+                    afterQuote = false;
+                    continue;
+                } else if (b == '\n') {
+                    row = bytes;
+                    addField(fieldStart, length);
+                    return blockStart + i;
+                } else if (b == '"' && length == fieldStart) {
+                    quoted = true;
+                    continue;
+                } else if (b == '\r') {
+                    continue;
+                } else {
+                    afterQuote = false;
+                }
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, length * 2);
+                }
+                bytes[length++] = b;
+            }
+        }
+
+        private void addField(int from, int to) {
+            if (fieldCount == fieldStarts.length) {
+                fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            }
+            fieldStarts[fieldCount] = from;
+            fieldEnds[fieldCount] = to;
+            fieldCount++;
+        }
+
+        private void addRow() {
+            // Строки одного студента обычно идут подряд: ФИО сравнивается с предыдущим без нормализации
+            Student student = lastStudent;
+            boolean hasGroup = trim(format.groupColumn);
+            if (student == null || !sameAsLast(format.nameColumn)) {
+                int nameLength = normalizeName(format.nameColumn);
+                if (nameLength == 0 && !hasGroup) {
+                    return; // Пропуск пустых строк
+                }
+                student = table.get(nameKey, nameLength, nameHash);
+                if (student == null) {
+                    student = addStudent(nameLength, hasGroup ? text(valueFrom, valueTo) : "");
+                    if (student == null) {
+                        return;
+                    }
+                } else if (!checkGroup(student, hasGroup)) {
+                    return;
+                }
+                int from = fieldStarts[format.nameColumn];
+                lastNameLength = fieldEnds[format.nameColumn] - from;
+                if (lastName.length < lastNameLength) {
+                    lastName = new byte[lastNameLength];
+                }
+                System.arraycopy(row, from, lastName, 0, lastNameLength);
+                lastStudent = student;
+            } else if (!checkGroup(student, hasGroup)) {
+                return;
+            }
+            if (format.dateColumn < 0) {
+                return;
+            }
+
+            boolean hasDate = trim(format.dateColumn);
+            int dateFrom = valueFrom;
+            int dateTo = valueTo;
+            AttendanceState state = AttendanceState.PRESENT;
+            if (format.markColumn >= 0) {
+                if (!trim(format.markColumn)) {
+                    return; // День без отметки
+                }
+                state = parseMark(valueFrom, valueTo);
+                if (state == AttendanceState.UNKNOWN) {
+                    violations.add(validator.checkMark(SOURCE, rows, COLUMN_MARK, text(valueFrom, valueTo)));
+                    return;
+                }
+                if (!hasDate) {
+                    violations.add(new RecordValidator.Violation(SOURCE, rows, RecordValidator.COLUMN_DATE,
+                            "дата не указана", ""));
+                    return;
+                }
+            } else if (!hasDate) {
+                return;
+            }
+            long day = parseDate(dateFrom, dateTo);
+            if (day == Long.MIN_VALUE || day > lastAllowedDay) {
+                violations.add(new RecordValidator.Violation(SOURCE, rows, RecordValidator.COLUMN_DATE,
+                        day == Long.MIN_VALUE ? "некорректная дата, используйте формат гггг-мм-дд"
+                                : "год не может быть больше текущего", text(dateFrom, dateTo)));
+                return;
+            }
+            student.setState(day, state);
+            markCount++;
+        }
+
+        /**
+         * Проверить группу в строке уже известного студента, как {@link RecordValidator} проверяет каждую строку:
+         * результат не зависит от того, в какую часть файла попала строка. Строка Java создается только
+         * для пустой или подозрительно длинной группы.
+         */
+        private boolean checkGroup(Student student, boolean hasGroup) {
+            if (hasGroup && valueTo - valueFrom <= GROUP_CHECK_BYTES) {
+                return true;
+            }
+            List<RecordValidator.Violation> found = validator.validate(new RecordValidator.Record(SOURCE, rows,
+                    student.getFullName(), hasGroup ? text(valueFrom, valueTo) : "", null));
+            violations.addAll(found);
+            return found.isEmpty();
+        }
+
+        private Student addStudent(int nameLength, String group) {
+            String fullName = new String(nameKey, 0, nameLength, StandardCharsets.UTF_8);
+            List<RecordValidator.Violation> found =
+                    validator.validate(new RecordValidator.Record(SOURCE, rows, fullName, group, null));
+            if (!found.isEmpty()) {
+                violations.addAll(found);
+                return null;
+            }
+            String[] nameParts = fullName.split(" ");
+            Student student = new Student(nameParts[0], nameParts[1], nameParts.length > 2 ? nameParts[2] : "", group);
+            table.put(Arrays.copyOf(nameKey, nameLength), nameHash, student);
+            students.add(student);
+            names.add(fullName);
+            return student;
+        }
+
+        /**
+         * Скопировать ФИО записи в {@link #nameKey} без крайних и повторяющихся пробелов.
+         *
+         * @return Длина ФИО в байтах.
+         */
+        private int normalizeName(int column) {
+            if (column >= fieldCount) {
+                return 0;
+            }
+            int to = fieldEnds[column];
+            if (nameKey.length < to - fieldStarts[column]) {
+                nameKey = new byte[to - fieldStarts[column]];
+            }
+            byte[] key = nameKey;
+            int length = 0;
+            int hash = 0;
+            boolean space = false;
+            for (int i = fieldStarts[column]; i < to; i++) {
+                byte b = row[i];
+                if (isWhitespace(b)) {
+                    space = length > 0;
+                    continue;
+                }
+                if (space) {
+                    key[length++] = ' ';
+                    hash = 31 * hash + ' ';
+                    space = false;
+                }
+                key[length++] = b;
+                hash = 31 * hash + b;
+            }
+            nameHash = hash;
+            return length;
+        }
+
+        private boolean sameAsLast(int column) {
+            if (column >= fieldCount || fieldEnds[column] - fieldStarts[column] != lastNameLength) {
+                return false;
+            }
+            for (int i = 0, from = fieldStarts[column]; i < lastNameLength; i++) {
+                if (row[from + i] != lastName[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Найти поле без крайних пробелов: границы записываются в {@link #valueFrom} и {@link #valueTo}.
+         *
+         * @return {@code false}, если поля нет или оно пустое.
+         */
+        private boolean trim(int column) {
+            if (column < 0 || column >= fieldCount) {
+                return false;
+            }
+            int from = fieldStarts[column];
+            int to = fieldEnds[column];
+            while (from < to && isWhitespace(row[from])) {
+                from++;
+            }
+            while (to > from && isWhitespace(row[to - 1])) {
+                to--;
+            }
+            valueFrom = from;
+            valueTo = to;
+            return from < to;
+        }
+
+        private AttendanceState parseMark(int from, int to) {
+            if (matches(from, to, PRESENT_MARK)) {
+                return AttendanceState.PRESENT;
+            }
+            return matches(from, to, ABSENT_MARK) ? AttendanceState.ABSENT : AttendanceState.UNKNOWN;
+        }
+
+        private boolean matches(int from, int to, byte[] expected) {
+            if (to - from != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (row[from + i] != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Разобрать дату гггг-мм-дд без поправок (31 февраля - ошибка).
+         *
+         * @return Номер дня или {@code Long.MIN_VALUE}, если дата некорректна.
+         */
+        private long parseDate(int from, int to) {
+            if (to - from != 10 || row[from + 4] != '-' || row[from + 7] != '-') {
+                return Long.MIN_VALUE;
+            }
+            int year = digits(from, 4);
+            int month = digits(from + 5, 2);
+            int day = digits(from + 8, 2);
+            if (year < 0 || month < 1 || month > 12 || day < 1) {
+                return Long.MIN_VALUE;
+            }
+            if (year * 100 + month != cachedMonth) {
+                cachedMonth = year * 100 + month;
+                cachedMonthStart = EpochDays.daysFromCivil(year, month, 1);
+                cachedMonthLength = daysInMonth(year, month);
+            }
+            return day > cachedMonthLength ? Long.MIN_VALUE : cachedMonthStart + day - 1;
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int digit = row[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private String text(int from, int to) {
+            return new String(row, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Таблица студентов части по байтам ФИО с открытой адресацией: поиск не создает объектов.
+     */
+    private static final class NameTable {
+        private byte[][] keys = new byte[64][];
+        private int[] hashes = new int[64];
+        private Student[] values = new Student[64];
+        private int size;
+
+        Student get(byte[] key, int length, int hash) {
+            int mask = keys.length - 1;
+            for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && equal(keys[slot], key, length)) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        void put(byte[] key, int hash, Student student) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            insert(key, hash, student);
+            size++;
+        }
+
+        private void insert(byte[] key, int hash, Student student) {
+            int mask = keys.length - 1;
+            int slot = spread(hash) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            values[slot] = student;
+        }
+
+        private void resize() {
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            Student[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[oldKeys.length * 2];
+            values = new Student[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldHashes[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equal(byte[] stored, byte[] key, int length) {
+            if (stored.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (stored[i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.YearMonth;
+
+/**
+ * Окно просмотра базы данных без загрузки студентов в главное окно.
+ * <p>
+ * Таблица работает на {@link PagedStudentTableModel}: в память читаются только страницы,
+ * которые видны или недавно просматривались, поэтому окно открывается сразу и для базы
+ * факультета в сотни тысяч студентов. В строке состояния показано, сколько студентов
+ * в базе и сколько из них сейчас загружено.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class DatabaseBrowserDialog extends JDialog {
+
+    private static final String[] MONTHS = {"Январь", "Февраль", "Март", "Апрель", "Май", "Июнь",
+            "Июль", "Август", "Сентябрь", "Октябрь", "Ноябрь", "Декабрь"};
+    private static final int STATUS_REFRESH_MILLIS = 500;
+
+    private final PagedStudentTableModel model;
+    private final JTable table;
+    private final JComboBox<String> monthComboBox = new JComboBox<>(MONTHS);
+    private final JSpinner yearSpinner;
+    private final JLabel statusLabel = new JLabel();
+    private final Timer statusTimer = new Timer(STATUS_REFRESH_MILLIS, e -> updateStatus());
+
+    /**
+     * Создать окно просмотра базы.
+     *
+     * @param owner      Главное окно.
+     * @param repository База данных.
+     * @param month      Месяц, отметки которого показываются при открытии.
+     */
+    public DatabaseBrowserDialog(Frame owner, AttendanceRepository repository, YearMonth month) {
+        super(owner, "База данных: " + repository.getFile().getFileName(), false);
+        setSize(1000, 600);
+        setLayout(new BorderLayout(5, 5));
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        model = new PagedStudentTableModel(repository, month);
+        table = new JTable(model);
+        table.setDefaultRenderer(AttendanceState.class, new AttendanceCellRenderer());
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        sizeColumns();
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        monthComboBox.setSelectedIndex(month.getMonthValue() - 1);
+        monthComboBox.addActionListener(e -> onMonthChanged());
+        yearSpinner = new JSpinner(new SpinnerNumberModel(month.getYear(), 1900, 2999, 1));
+        yearSpinner.setEditor(new JSpinner.NumberEditor(yearSpinner, "#"));
+        yearSpinner.addChangeListener(e -> onMonthChanged());
+        JButton reloadButton = new JButton("Обновить");
+        reloadButton.addActionListener(e -> model.reload());
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        topPanel.add(new JLabel("Месяц:"));
+        topPanel.add(monthComboBox);
+        topPanel.add(yearSpinner);
+        topPanel.add(reloadButton);
+        add(topPanel, BorderLayout.NORTH);
+
+        JButton closeButton = new JButton("Закрыть");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(closeButton, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                statusTimer.stop();
+                model.close();
+            }
+        });
+        model.reload();
+        statusTimer.start();
+        setLocationRelativeTo(owner);
+    }
+
+    private void onMonthChanged() {
+        model.setMonth(YearMonth.of((Integer) yearSpinner.getValue(), monthComboBox.getSelectedIndex() + 1));
+        sizeColumns(); // Колонки созданы заново
+    }
+
+    private void sizeColumns() {
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        table.getColumnModel().getColumn(1).setPreferredWidth(80);
+        table.getColumnModel().getColumn(2).setPreferredWidth(80);
+        for (int column = AttendanceTableModel.FIRST_DAY_COLUMN; column < table.getColumnCount(); column++) {
+            table.getColumnModel().getColumn(column).setPreferredWidth(45);
+        }
+    }
+
+    private void updateStatus() {
+        statusLabel.setText(String.format("Студентов в базе: %,d, загружено: %,d", model.getRowCount(), model.getCachedRowCount()));
+    }
+}
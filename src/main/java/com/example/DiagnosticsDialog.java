@@ -0,0 +1,110 @@
+package com.example;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Окно диагностики: текущие значения {@link Metrics}.
+ * <p>
+ * Таблица обновляется раз в секунду, пока окно открыто. Метрики можно сохранить в текстовый файл,
+ * чтобы сопоставить замедления с размером данных, и обнулить перед повторным замером.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class DiagnosticsDialog extends JDialog {
+
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMNS = {"Метрика", "Значение / кол-во", "Среднее, мс", "p50, мс", "p95, мс", "p99, мс", "Макс, мс"};
+
+    private final Metrics metrics = Metrics.get();
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    /**
+     * Создать окно диагностики.
+     *
+     * @param owner Главное окно.
+     */
+    public DiagnosticsDialog(Frame owner) {
+        super(owner, "Диагностика", false);
+        setSize(800, 450);
+        setLayout(new BorderLayout(5, 5));
+
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(200);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton saveButton = new JButton("Сохранить в файл");
+        saveButton.addActionListener(e -> saveToFile());
+        JButton resetButton = new JButton("Сбросить");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        JButton closeButton = new JButton("Закрыть");
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        buttonPanel.add(new JLabel("JMX: " + Metrics.OBJECT_NAME));
+        buttonPanel.add(saveButton);
+        buttonPanel.add(resetButton);
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        refresh();
+        refreshTimer.start();
+        setLocationRelativeTo(owner);
+    }
+
+    private void refresh() {
+        model.setRowCount(0);
+        for (Map.Entry<String, Long> gauge : metrics.gaugeValues().entrySet()) {
+            model.addRow(new Object[]{gauge.getKey(), String.format("%,d", gauge.getValue()), "", "", "", "", ""});
+        }
+        for (Map.Entry<String, Long> counter : metrics.counterValues().entrySet()) {
+            model.addRow(new Object[]{counter.getKey(), String.format("%,d", counter.getValue()), "", "", "", "", ""});
+        }
+        for (Map.Entry<String, Metrics.Snapshot> histogram : metrics.histogramSnapshots().entrySet()) {
+            Metrics.Snapshot s = histogram.getValue();
+            model.addRow(new Object[]{histogram.getKey(), String.format("%,d", s.getCount()),
+                    millis(s.getMeanMillis()), millis(s.getP50Millis()), millis(s.getP95Millis()),
+                    millis(s.getP99Millis()), millis(s.getMaxMillis())});
+        }
+    }
+
+    private void saveToFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Сохранить метрики");
+        fileChooser.setSelectedFile(new File("metrics.txt"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            metrics.dumpTo(fileChooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Ошибка при сохранении метрик: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static String millis(double value) {
+        return String.format("%.2f", value);
+    }
+}
@@ -2,27 +2,87 @@ package com.example;
 
 import jakarta.mail.*;
 import jakarta.mail.internet.*;
-import javax.swing.*;
-import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Класс для отправки email-сообщений с использованием SMTP.
- * Предоставляет метод для отправки письма с заданным текстом и темой.
+ * <p>
+ * Письма ставятся в ограниченную очередь и отправляются фоновым потоком, поэтому вызов
+ * {@link #sendEmail(String, String)} не блокирует интерфейс. Фоновый поток держит одно
+ * подключение {@link Transport} и отправляет через него накопившиеся письма одно за другим
+ * (каждое письмо - отдельная отправка SMTP, экономится только подключение). При обрыве соединения
+ * поток переподключается и повторяет отправку с нарастающей задержкой; постоянные ошибки
+ * (неверный логин или адрес) не повторяются. Результат отправки сообщается через {@link CompletableFuture}.
+ * </p>
  *
  * @author Soldatov N. V.
  * @version 22.0.2
  */
-public class EmailSender {
+public class EmailSender implements AutoCloseable {
+
+    /**
+     * Максимальное количество писем, ожидающих отправки.
+     */
+    public static final int QUEUE_CAPACITY = 100;
+
+    /**
+     * Максимальное количество писем, забираемых из очереди за раз; они отправляются по очереди
+     * через одно подключение.
+     */
+    private static final int BATCH_SIZE = 20;
+
+    /**
+     * Количество попыток отправки одного письма при временных ошибках соединения.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Задержка перед первой повторной попыткой; каждая следующая вдвое длиннее.
+     */
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    /**
+     * Время простоя, после которого подключение к серверу закрывается.
+     */
+    private static final long IDLE_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Письмо, ожидающее отправки, вместе с результатом.
+     */
+    private static final class PendingMessage {
+        final String subject;
+        final String text;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingMessage(String subject, String text) {
+            this.subject = subject;
+            this.text = text;
+        }
+    }
 
     private final String username;
     private final String password;
     private final String host;
     private final int port;
     private final String recipientEmail; // Новое поле для адреса получателя
+    private final Session session;
+    private final BlockingQueue<PendingMessage> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private Thread worker;
+    private Transport transport; // Используется только фоновым потоком
+    private volatile boolean closed;
 
     /**
      * Конструктор для инициализации параметров подключения и получателя письма.
+     * Подключение выполняется по SSL.
      *
      * @param username       Имя пользователя для SMTP-сервера.
      * @param password       Пароль для SMTP-сервера.
@@ -31,21 +91,78 @@ public class EmailSender {
      * @param recipientEmail Адрес электронной почты получателя.
      */
     public EmailSender(String username, String password, String host, int port, String recipientEmail) {
+        this(sslProperties(host, port), username, password, recipientEmail);
+    }
+
+    /**
+     * Конструктор с явными свойствами сессии. Позволяет, например, отправлять письма
+     * на локальный SMTP-сервер без SSL и авторизации.
+     *
+     * @param sessionProperties Свойства сессии Jakarta Mail; должны содержать mail.smtp.host и mail.smtp.port.
+     * @param username          Имя пользователя (может быть {@code null}, если авторизация не нужна).
+     * @param password          Пароль (может быть {@code null}).
+     * @param recipientEmail    Адрес электронной почты получателя.
+     */
+    public EmailSender(Properties sessionProperties, String username, String password, String recipientEmail) {
         this.username = username;
         this.password = password;
-        this.host = host;
-        this.port = port;
+        this.host = sessionProperties.getProperty("mail.smtp.host");
+        this.port = Integer.parseInt(String.valueOf(sessionProperties.get("mail.smtp.port")));
         this.recipientEmail = recipientEmail;
+        this.session = Session.getInstance(sessionProperties); // Одна сессия на все письма
     }
 
     /**
-     * Метод для отправки email-сообщения с заданной темой и текстом.
+     * Поставить письмо в очередь на отправку.
      *
-     * @param subject    Тема письма.
-     * @param text       Текст письма.
-     * @param parentFrame Окно-родитель, которое используется для отображения сообщений об успехе или ошибке.
+     * @param subject Тема письма.
+     * @param text    Текст письма.
+     * @return Результат отправки: завершается после успешной отправки или с исключением
+     * ({@link MessagingException} при постоянной ошибке или после всех попыток,
+     * {@link RejectedExecutionException} при переполненной очереди или закрытом отправителе).
      */
-    public void sendEmail(String subject, String text, JFrame parentFrame) {
+    public CompletableFuture<Void> sendEmail(String subject, String text) {
+        PendingMessage pending = new PendingMessage(subject, text);
+        long started = System.nanoTime();
+        pending.result.whenComplete((ignored, error) -> {
+            Metrics metrics = Metrics.get();
+            metrics.recordSince("EmailSender.sendEmail", started);
+            metrics.increment(error == null ? "email.sent" : "email.failed", 1);
+        });
+        // Проверка закрытия и постановка в очередь - под той же блокировкой, что и close():
+        // иначе письмо могло бы попасть в очередь после ее опустошения и никогда не завершиться
+        boolean accepted;
+        synchronized (this) {
+            if (closed) {
+                pending.result.completeExceptionally(new RejectedExecutionException("Отправитель закрыт"));
+                return pending.result;
+            }
+            ensureWorkerStarted();
+            accepted = queue.offer(pending);
+        }
+        if (!accepted) {
+            pending.result.completeExceptionally(new RejectedExecutionException("Очередь писем переполнена"));
+        }
+        return pending.result;
+    }
+
+    /**
+     * Остановить фоновую отправку. Письма, оставшиеся в очереди, завершаются с ошибкой.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            closed = true;
+            current = worker;
+            failPending(new RejectedExecutionException("Отправитель закрыт"));
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private static Properties sslProperties(String host, int port) {
         Properties props = new Properties();
 
         // Для SSL (порт 465):
@@ -53,37 +170,120 @@ public class EmailSender {
         props.put("mail.smtp.port", port);
         props.put("mail.smtp.ssl.enable", "true");
         props.put("mail.smtp.auth", "true");
+        return props;
+    }
 
-        // Создание сессии для отправки email
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(username, password);
-            }
-        });
+    private synchronized void ensureWorkerStarted() {
+        if (worker == null) {
+            worker = new Thread(this::runWorker, "email-sender");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
 
+    /**
+     * Цикл фонового потока: ожидание писем, поочередная отправка накопившихся через одно подключение,
+     * закрытие подключения при простое.
+     */
+    private void runWorker() {
+        List<PendingMessage> batch = new ArrayList<>(BATCH_SIZE);
         try {
-            // Создание email-сообщения
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(username));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipientEmail));
-            message.setSubject(subject);
-            message.setText(text);
-
-            // Отправка письма
-            Transport.send(message);
-
-            // Информирование пользователя об успешной отправке письма
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(parentFrame, "Письмо успешно отправлено!", "Успех", JOptionPane.INFORMATION_MESSAGE);
-            });
-
-        } catch (MessagingException e) {
-            // В случае ошибки информируем пользователя
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(parentFrame, "Ошибка отправки: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
-            });
-            e.printStackTrace();
+            while (!closed) {
+                PendingMessage first = queue.poll(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    disconnect(); // Простой: не держим подключение открытым
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (PendingMessage pending : batch) {
+                    deliver(pending);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (PendingMessage pending : batch) {
+                pending.result.completeExceptionally(new RejectedExecutionException("Отправитель закрыт"));
+            }
+            disconnect();
+        }
+    }
+
+    /**
+     * Отправить одно письмо. Временная ошибка соединения приводит к переподключению и повтору,
+     * постоянная сразу завершает результат.
+     */
+    private void deliver(PendingMessage pending) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Создание email-сообщения
+                Message message = new MimeMessage(session);
+                message.setFrom(new InternetAddress(username != null ? username : recipientEmail));
+                message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipientEmail));
+                message.setSubject(pending.subject);
+                message.setText(pending.text);
+                message.saveChanges();
+
+                // Отправка письма через общее подключение
+                connectedTransport().sendMessage(message, message.getAllRecipients());
+                pending.result.complete(null);
+                return;
+            } catch (MessagingException e) {
+                disconnect();
+                if (attempt >= MAX_ATTEMPTS || closed || !isTransient(e)) {
+                    pending.result.completeExceptionally(e);
+                    return;
+                }
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    /**
+     * Проверить, стоит ли повторять отправку: повторяются только ошибки ввода-вывода соединения
+     * (обрыв, таймаут, сервер недоступен). Неверный логин, адрес или письмо не исправятся повтором.
+     */
+    private static boolean isTransient(MessagingException e) {
+        if (e instanceof AuthenticationFailedException || e instanceof SendFailedException
+                || e instanceof AddressException) {
+            return false;
+        }
+        // MessagingException хранит вложенную причину в getNextException(), она же возвращается getCause()
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Transport connectedTransport() throws MessagingException {
+        if (transport == null || !transport.isConnected()) {
+            transport = session.getTransport("smtp");
+            transport.connect(host, port, username, password);
+        }
+        return transport;
+    }
+
+    private void disconnect() {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // Подключение уже разорвано
+            }
+            transport = null;
+        }
+    }
+
+    private void failPending(Exception cause) {
+        PendingMessage pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(cause);
         }
     }
 }
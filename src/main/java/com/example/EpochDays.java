@@ -0,0 +1,90 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Перевод номера дня эпохи ({@link java.time.LocalDate#toEpochDay()}) в дату гггг-мм-дд и обратно
+ * без создания {@link java.time.LocalDate}.
+ * <p>
+ * Используется в горячих циклах экспорта, импорта CSV и журнала аудита, где на каждую отметку
+ * иначе создавался бы объект даты. Формулы - алгоритмы civil_from_days и days_from_civil
+ * пролептического григорианского календаря, как в {@link java.time.LocalDate}.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+final class EpochDays {
+
+    private EpochDays() {
+    }
+
+    /**
+     * Получить номер дня эпохи по дате.
+     *
+     * @param year  Год.
+     * @param month Месяц (1-12).
+     * @param day   День месяца.
+     * @return Номер дня эпохи.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * ((month + 9) % 12) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * Дописать дату в формате гггг-мм-дд.
+     *
+     * @param sb       Строка.
+     * @param epochDay Номер дня эпохи.
+     */
+    static void appendDate(StringBuilder sb, long epochDay) {
+        int date = civilFromDays(epochDay);
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+        sb.append((char) ('0' + year / 1000 % 10)).append((char) ('0' + year / 100 % 10))
+                .append((char) ('0' + year / 10 % 10)).append((char) ('0' + year % 10)).append('-')
+                .append((char) ('0' + month / 10)).append((char) ('0' + month % 10)).append('-')
+                .append((char) ('0' + day / 10)).append((char) ('0' + day % 10));
+    }
+
+    /**
+     * Записать дату в формате гггг-мм-дд (ASCII) в буфер.
+     *
+     * @param buffer   Буфер, в котором есть место для 10 байт.
+     * @param epochDay Номер дня эпохи.
+     */
+    static void putDate(ByteBuffer buffer, long epochDay) {
+        int date = civilFromDays(epochDay);
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+        buffer.put((byte) ('0' + year / 1000 % 10)).put((byte) ('0' + year / 100 % 10))
+                .put((byte) ('0' + year / 10 % 10)).put((byte) ('0' + year % 10)).put((byte) '-')
+                .put((byte) ('0' + month / 10)).put((byte) ('0' + month % 10)).put((byte) '-')
+                .put((byte) ('0' + day / 10)).put((byte) ('0' + day % 10));
+    }
+
+    /**
+     * Разложить номер дня на дату.
+     *
+     * @return Дата в виде числа ггггммдд.
+     */
+    private static int civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return year * 10000 + month * 100 + day;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Потоковый экспорт истории посещаемости в Excel.
+ * <p>
+ * Использует {@link SXSSFWorkbook}: в памяти держится не больше {@link #ROW_WINDOW} строк листа,
+ * остальные сбрасываются во временный файл. Поэтому расход памяти не зависит от количества строк.
+ * Экспортируются все переданные студенты за весь диапазон дат, а не только видимая часть таблицы.
+ * </p>
+ * Поддерживаются две раскладки:
+ * <ul>
+ *     <li>{@link Layout#BY_MONTH} - лист "гггг-мм" на каждый месяц, колонки дней "дд.мм" (как в таблице);</li>
+ *     <li>{@link Layout#BY_GROUP} - лист на каждую группу, колонки дней "дд.мм.гггг" за весь диапазон.</li>
+ * </ul>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class ExcelExporter {
+
+    /**
+     * Раскладка листов в книге.
+     */
+    public enum Layout {
+        /**
+         * Лист на каждый месяц диапазона.
+         */
+        BY_MONTH,
+
+        /**
+         * Лист на каждую группу.
+         */
+        BY_GROUP
+    }
+
+    /**
+     * Количество строк листа, которые одновременно держатся в памяти.
+     */
+    public static final int ROW_WINDOW = 100;
+
+    /**
+     * Максимальное количество колонок на листе xlsx.
+     */
+    private static final int MAX_COLUMNS = 16384;
+
+    private static final DateTimeFormatter MONTH_SHEET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter DAY_HEADER_FORMAT = DateTimeFormatter.ofPattern("dd.MM");
+    private static final DateTimeFormatter FULL_DAY_HEADER_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final List<Student> students;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Layout layout;
+
+    /**
+     * Создать экспорт.
+     *
+     * @param students Студенты для экспорта. Список и студенты не должны изменяться во время экспорта,
+     *                 поэтому из потока интерфейса следует передавать копии ({@link Student#copy()}).
+     * @param from     Первый день диапазона (включительно).
+     * @param to       Последний день диапазона (включительно).
+     * @param layout   Раскладка листов.
+     */
+    public ExcelExporter(List<Student> students, LocalDate from, LocalDate to, Layout layout) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        if (layout == Layout.BY_GROUP && to.toEpochDay() - from.toEpochDay() + 1 > MAX_COLUMNS - 3) {
+            throw new IllegalArgumentException("Диапазон слишком велик для одного листа: " + from + " - " + to);
+        }
+        this.students = students;
+        this.from = from;
+        this.to = to;
+        this.layout = layout;
+    }
+
+    /**
+     * Записать книгу в файл. При отмене или ошибке недописанный файл удаляется.
+     *
+     * @param file      Файл xlsx.
+     * @param progress  Получатель хода экспорта в строках (может быть {@code null}).
+     * @param cancelled Признак отмены, проверяется после каждой строки (может быть {@code null}).
+     * @throws IOException           при ошибке записи.
+     * @throws CancellationException если экспорт был отменен.
+     */
+    public void export(File file, ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        boolean completed = false;
+        try (OutputStream out = new FileOutputStream(file)) {
+            export(out, progress, cancelled);
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Записать книгу в поток.
+     *
+     * @param out       Поток для записи xlsx.
+     * @param progress  Получатель хода экспорта в строках (может быть {@code null}).
+     * @param cancelled Признак отмены (может быть {@code null}).
+     * @throws IOException           при ошибке записи.
+     * @throws CancellationException если экспорт был отменен.
+     */
+    public void export(OutputStream out, ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Writer writer = new Writer(workbook, progress, cancelled);
+            if (layout == Layout.BY_MONTH) {
+                for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+                    LocalDate start = month.atDay(1).isBefore(from) ? from : month.atDay(1);
+                    LocalDate end = month.atEndOfMonth().isAfter(to) ? to : month.atEndOfMonth();
+                    writer.writeSheet(month.format(MONTH_SHEET_FORMAT), students, start, end, DAY_HEADER_FORMAT);
+                }
+            } else {
+                for (Map.Entry<String, List<Student>> group : groupStudents().entrySet()) {
+                    writer.writeSheet(group.getKey(), group.getValue(), from, to, FULL_DAY_HEADER_FORMAT);
+                }
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose(); // Удаление временных файлов
+            workbook.close();
+        }
+    }
+
+    /**
+     * Подсчитать общее количество строк данных, которые будут записаны.
+     *
+     * @return Количество строк.
+     */
+    public long getTotalRows() {
+        if (layout == Layout.BY_GROUP) {
+            return students.size();
+        }
+        long months = YearMonth.from(from).until(YearMonth.from(to), ChronoUnit.MONTHS) + 1;
+        return months * students.size();
+    }
+
+    private Map<String, List<Student>> groupStudents() {
+        Map<String, List<Student>> groups = new LinkedHashMap<>();
+        for (Student student : students) {
+            String group = student.getGroup() == null || student.getGroup().isEmpty() ? "Без группы" : student.getGroup();
+            groups.computeIfAbsent(group, k -> new ArrayList<>()).add(student);
+        }
+        return groups;
+    }
+
+    /**
+     * Построчная запись листов с общим счетчиком прогресса.
+     */
+    private final class Writer {
+        private final SXSSFWorkbook workbook;
+        private final ProgressListener progress;
+        private final BooleanSupplier cancelled;
+        private final Set<String> sheetNames = new HashSet<>();
+        private final long total = getTotalRows();
+        private long done;
+
+        Writer(SXSSFWorkbook workbook, ProgressListener progress, BooleanSupplier cancelled) {
+            this.workbook = workbook;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        void writeSheet(String name, List<Student> rows, LocalDate start, LocalDate end, DateTimeFormatter dayFormat) {
+            Sheet sheet = workbook.createSheet(uniqueSheetName(name));
+            long firstDay = start.toEpochDay();
+            long lastDay = end.toEpochDay();
+
+            Row headerRow = sheet.createRow(0);
+            headerRow.createCell(0).setCellValue("ФИО");
+            headerRow.createCell(1).setCellValue("Группа");
+            headerRow.createCell(2).setCellValue("Посещения");
+            for (long day = firstDay; day <= lastDay; day++) {
+                headerRow.createCell((int) (day - firstDay) + 3).setCellValue(LocalDate.ofEpochDay(day).format(dayFormat));
+            }
+
+            int rowIndex = 1;
+            for (Student student : rows) {
+                if (cancelled != null && cancelled.getAsBoolean()) {
+                    throw new CancellationException("Экспорт отменен");
+                }
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(student.getFullName());
+                row.createCell(1).setCellValue(student.getGroup());
+                row.createCell(2).setCellValue(student.countPresent(firstDay, lastDay));
+                for (long day = firstDay; day <= lastDay; day++) {
+                    AttendanceState state = student.getState(day);
+                    if (state != AttendanceState.UNKNOWN) {
+                        row.createCell((int) (day - firstDay) + 3).setCellValue(state.getMark());
+                    }
+                }
+                done++;
+                if (progress != null) {
+                    progress.onProgress(done, total);
+                }
+            }
+        }
+
+        private String uniqueSheetName(String name) {
+            String base = WorkbookUtil.createSafeSheetName(name);
+            String candidate = base;
+            for (int i = 2; !sheetNames.add(candidate.toLowerCase()); i++) {
+                String suffix = " (" + i + ")";
+                candidate = base.substring(0, Math.min(base.length(), 31 - suffix.length())) + suffix;
+            }
+            return candidate;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Потоковый импорт посещаемости из Excel (xlsx).
+ * <p>
+ * Листы читаются событийной моделью POI ({@link XSSFReader} и SAX) без построения книги в памяти,
+ * общие строки берутся из {@link ReadOnlySharedStringsTable}. Помимо ФИО и группы
+ * восстанавливаются отметки "✓"/"✗" из колонок дней, поэтому файл, записанный
+ * {@link ExcelExporter}, загружается без потерь.
+ * </p>
+ * Заголовки колонок дней распознаются в формате "дд.мм.гггг" или "дд.мм"; во втором случае год
+ * берется из имени листа "гггг-мм", а если его нет - используется текущий год.
+ * Студент, встречающийся на нескольких листах, объединяется в одну запись. Строки проверяются
+ * правилами {@link RecordValidator#forImport()}; строки с ошибками пропускаются, а все нарушения
+ * собираются в один отчет {@link Result#getReport()}.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class ExcelImporter {
+
+    /**
+     * Результат импорта.
+     */
+    public static final class Result {
+        private final List<Student> students;
+        private final RecordValidator.Report report;
+        private final int markCount;
+
+        Result(List<Student> students, RecordValidator.Report report, int markCount) {
+            this.students = students;
+            this.report = report;
+            this.markCount = markCount;
+        }
+
+        /**
+         * Получить загруженных студентов в порядке появления в файле.
+         *
+         * @return Студенты с отметками.
+         */
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        /**
+         * Получить предупреждения о пропущенных строках и нераспознанных отметках.
+         *
+         * @return Сообщения с указанием листа и строки.
+         */
+        public List<String> getWarnings() {
+            List<String> warnings = new ArrayList<>(report.size());
+            for (RecordValidator.Violation violation : report.getViolations()) {
+                warnings.add(violation.toString());
+            }
+            return warnings;
+        }
+
+        /**
+         * Получить отчет о нарушениях (лист, строка, колонка, причина).
+         *
+         * @return Отчет проверки строк файла.
+         */
+        public RecordValidator.Report getReport() {
+            return report;
+        }
+
+        /**
+         * Получить количество восстановленных отметок.
+         *
+         * @return Количество отметок.
+         */
+        public int getMarkCount() {
+            return markCount;
+        }
+    }
+
+    private final File file;
+    private final int currentYear;
+
+    /**
+     * Создать импорт из файла.
+     *
+     * @param file Файл xlsx.
+     */
+    public ExcelImporter(File file) {
+        this.file = file;
+        this.currentYear = LocalDate.now().getYear();
+    }
+
+    /**
+     * Прочитать все листы файла.
+     *
+     * @param progress  Получатель хода импорта в листах (может быть {@code null}).
+     * @param cancelled Признак отмены, проверяется после каждой строки (может быть {@code null}).
+     * @return Результат импорта.
+     * @throws IOException           при ошибке чтения или некорректном формате файла.
+     * @throws CancellationException если импорт был отменен.
+     */
+    public Result read(ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            // Количество листов нужно только для прогресса
+            int sheetCount = 0;
+            for (Iterator<InputStream> it = reader.getSheetsData(); it.hasNext(); ) {
+                it.next().close();
+                sheetCount++;
+            }
+
+            SheetHandler handler = new SheetHandler(cancelled);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            int sheetIndex = 0;
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    handler.startSheet(sheets.getSheetName());
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, new DataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+                sheetIndex++;
+                if (progress != null) {
+                    progress.onProgress(sheetIndex, sheetCount);
+                }
+            }
+            return new Result(new ArrayList<>(handler.students.values()), handler.report, handler.markCount);
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            throw new IOException("Некорректный формат файла: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Разобрать заголовок колонки дня.
+     *
+     * @param header      Текст заголовка.
+     * @param defaultYear Год для заголовков без года.
+     * @return Номер дня или {@code Long.MIN_VALUE}, если заголовок не является датой.
+     */
+    static long parseDayHeader(String header, int defaultYear) {
+        String[] parts = header.trim().split("\\.");
+        if (parts.length < 2 || parts.length > 3) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            int day = Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int year = parts.length == 3 ? Integer.parseInt(parts[2]) : defaultYear;
+            return LocalDate.of(year, month, day).toEpochDay();
+        } catch (NumberFormatException | DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Обработчик строк листа. Состояние строки хранится в переиспользуемых массивах.
+     */
+    private final class SheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final BooleanSupplier cancelled;
+        private final Map<String, Student> students = new LinkedHashMap<>();
+        private final RecordValidator validator = RecordValidator.forImport();
+        private final RecordValidator.Report report = new RecordValidator.Report();
+        private int markCount;
+
+        private String sheetName;
+        private int sheetYear;
+        private int nameColumn;
+        private int groupColumn;
+        private long[] columnDays = new long[0]; // Номер дня для каждой колонки или Long.MIN_VALUE
+        private String[] columnHeaders = new String[0]; // Заголовки колонок дней для отчета
+
+        private boolean headerRow;
+        private int rowNumber;
+        private String rowName;
+        private String rowGroup;
+        private AttendanceState[] rowStates = new AttendanceState[0];
+
+        SheetHandler(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        void startSheet(String name) {
+            sheetName = name;
+            nameColumn = 0;
+            groupColumn = 1;
+            columnDays = new long[0];
+            columnHeaders = new String[0];
+            sheetYear = currentYear;
+            try {
+                sheetYear = YearMonth.parse(name.trim()).getYear();
+            } catch (DateTimeException e) {
+                // Имя листа не содержит месяц: используется текущий год
+            }
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                throw new CancellationException("Импорт отменен");
+            }
+            headerRow = rowNum == 0;
+            rowNumber = rowNum + 1;
+            rowName = null;
+            rowGroup = null;
+            Arrays.fill(rowStates, null);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (cellReference == null || formattedValue == null) {
+                return;
+            }
+            int column = new CellReference(cellReference).getCol();
+            String value = formattedValue.trim();
+            if (headerRow) {
+                readHeader(column, value);
+            } else if (column == nameColumn) {
+                rowName = value;
+            } else if (column == groupColumn) {
+                rowGroup = value;
+            } else if (column < columnDays.length && columnDays[column] != Long.MIN_VALUE) {
+                rowStates[column] = AttendanceState.fromMark(value);
+                if (rowStates[column] == AttendanceState.UNKNOWN) {
+                    report.add(validator.checkMark(sheetName, rowNumber, columnHeaders[column], value));
+                }
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (headerRow) {
+                rowStates = new AttendanceState[columnDays.length];
+                return;
+            }
+            if ((rowName == null || rowName.isEmpty()) && (rowGroup == null || rowGroup.isEmpty())) {
+                return; // Пропуск пустых строк
+            }
+            List<RecordValidator.Violation> violations =
+                    validator.validate(new RecordValidator.Record(sheetName, rowNumber, rowName, rowGroup, null));
+            if (!violations.isEmpty()) {
+                report.addAll(violations);
+                return;
+            }
+
+            String fullName = AttendanceStore.normalizeName(rowName);
+            Student student = students.get(fullName);
+            if (student == null) {
+                String[] nameParts = fullName.split(" ");
+                student = new Student(nameParts[0], nameParts[1], nameParts.length > 2 ? nameParts[2] : "", rowGroup);
+                students.put(fullName, student);
+            }
+
+            for (int column = 0; column < rowStates.length; column++) {
+                AttendanceState state = rowStates[column];
+                if (state != null && state != AttendanceState.UNKNOWN) {
+                    student.setState(columnDays[column], state);
+                    markCount++;
+                }
+            }
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // Колонтитулы не используются
+        }
+
+        private void readHeader(int column, String value) {
+            if ("ФИО".equalsIgnoreCase(value)) {
+                nameColumn = column;
+                return;
+            }
+            if ("Группа".equalsIgnoreCase(value)) {
+                groupColumn = column;
+                return;
+            }
+            long day = parseDayHeader(value, sheetYear);
+            if (day == Long.MIN_VALUE) {
+                return;
+            }
+            if (column >= columnDays.length) {
+                int oldLength = columnDays.length;
+                columnDays = Arrays.copyOf(columnDays, column + 1);
+                columnHeaders = Arrays.copyOf(columnHeaders, column + 1);
+                Arrays.fill(columnDays, oldLength, columnDays.length, Long.MIN_VALUE);
+            }
+            columnDays[column] = day;
+            columnHeaders[column] = value;
+        }
+    }
+}
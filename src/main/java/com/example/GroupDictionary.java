@@ -0,0 +1,80 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь номеров групп: каждой группе соответствует целочисленный код.
+ * <p>
+ * Студент хранит код группы ({@code int}) вместо ссылки на строку, а строка номера группы
+ * существует в одном экземпляре на все приложение. Коды выдаются подряд начиная с нуля
+ * и не меняются, пока работает программа; между запусками они не сохраняются (в Excel
+ * и журнал пишется сам номер группы). Код {@link #NO_GROUP} означает отсутствие группы.
+ * </p>
+ * Чтение по коду не блокируется; выдача нового кода синхронизирована.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class GroupDictionary {
+
+    /**
+     * Код для группы {@code null}.
+     */
+    public static final int NO_GROUP = -1;
+
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>(256);
+    private static volatile String[] names = new String[256];
+    private static int size; // Изменяется под блокировкой класса
+
+    private GroupDictionary() {
+    }
+
+    /**
+     * Получить код группы, при необходимости добавив группу в словарь.
+     *
+     * @param group Номер группы (может быть {@code null}).
+     * @return Код группы.
+     */
+    public static int code(String group) {
+        if (group == null) {
+            return NO_GROUP;
+        }
+        Integer code = CODES.get(group);
+        return code != null ? code : add(group);
+    }
+
+    /**
+     * Получить номер группы по коду.
+     *
+     * @param code Код, полученный из {@link #code(String)}.
+     * @return Номер группы; {@code null} для {@link #NO_GROUP}.
+     */
+    public static String name(int code) {
+        return code == NO_GROUP ? null : names[code];
+    }
+
+    /**
+     * Получить количество групп в словаре.
+     *
+     * @return Размер словаря.
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static synchronized int add(String group) {
+        Integer existing = CODES.get(group);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = group;
+        names = current; // Публикация строки до выдачи кода
+        CODES.put(group, size);
+        return size++;
+    }
+}
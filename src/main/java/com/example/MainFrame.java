@@ -1,26 +1,28 @@
 package com.example;
 
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import javax.swing.*;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableCellRenderer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.management.JMException;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.event.ActionListener;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.List;
-import com.toedter.calendar.JCalendar;
+import java.util.concurrent.CancellationException;
 
 
 
@@ -35,6 +37,8 @@ import com.toedter.calendar.JCalendar;
  *     <li>Отображение таблицы студентов;</li>
  *     <li>Фильтрация студентов по различным критериям (дата, группа, ФИО);</li>
  *     <li>Экспорт и импорт данных из Excel;</li>
+ *     <li>Сохранение данных между запусками в журнале изменений;</li>
+ *     <li>Отмена и повтор изменений отметок (Ctrl+Z, Ctrl+Y);</li>
  *     <li>Отправка обратной связи по email.</li>
  * </ul>
  *
@@ -44,9 +48,9 @@ import com.toedter.calendar.JCalendar;
 public class MainFrame extends JFrame {
 
     /**
-     * Список студентов, где ключ - это ФИО студента, а значение - объект {@link Student}.
+     * Хранилище студентов с индексами по ФИО, группе и дате.
      */
-    private Map<String, Student> students = new HashMap<>();
+    private final AttendanceStore store = new AttendanceStore();
 
     /**
      * Область для отображения информации о текущем состоянии.
@@ -64,9 +68,14 @@ public class MainFrame extends JFrame {
     private JTable table;
 
     /**
-     * Модель таблицы для отображения данных студентов.
+     * Модель таблицы, вычисляющая ячейки напрямую из хранилища студентов.
      */
-    private DefaultTableModel tableModel;
+    private AttendanceTableModel tableModel;
+
+    /**
+     * Тепловая карта посещаемости за год.
+     */
+    private AttendanceHeatMap heatMap;
 
     /**
      * Комбинированное поле для выбора фильтра.
@@ -78,6 +87,91 @@ public class MainFrame extends JFrame {
      */
     private JTextField filterInputField;
 
+    /**
+     * Движок фильтрации с индексами по ФИО, группе и дате.
+     */
+    private final StudentFilter studentFilter = new StudentFilter(store);
+
+    /**
+     * Кэш количества посещений по месяцам для студентов и групп.
+     */
+    private final AttendanceAggregates aggregates = new AttendanceAggregates(store);
+
+    /**
+     * Представления выбранного и соседних месяцев, подготавливаемые в фоне.
+     */
+    private final MonthViewCache monthViews = new MonthViewCache(store);
+
+    /**
+     * Аналитика посещаемости за период; результаты кэшируются до изменения данных.
+     */
+    private final AttendanceAnalytics analytics = new AttendanceAnalytics(store);
+
+    /**
+     * Исполнитель долгих операций в фоновых потоках.
+     */
+    private final TaskRunner tasks = new TaskRunner(this);
+
+    /**
+     * Количество студентов, добавляемых в хранилище за одно действие при загрузке.
+     */
+    private static final int LOAD_BATCH_SIZE = 2000;
+
+    /**
+     * Количество студентов, копируемых в потоке интерфейса за одно обращение при сохранении.
+     */
+    private static final int COPY_BATCH_SIZE = 2000;
+
+    /**
+     * Журнал изменений, сохраняющий данные между запусками (может быть {@code null}, если каталог недоступен).
+     */
+    private AttendanceJournal journal;
+
+    /**
+     * Журнал аудита изменений посещаемости (может быть {@code null}, если каталог недоступен).
+     */
+    private AuditLog auditLog;
+
+    /**
+     * История отмены и повтора изменений; создается после восстановления данных из журнала.
+     */
+    private UndoHistory history;
+
+    /**
+     * Бюджет памяти истории отмены, байт.
+     */
+    private static final long UNDO_BUDGET_BYTES = UndoHistory.DEFAULT_BUDGET;
+
+    /**
+     * База данных; открывается при первом обращении к меню "База данных".
+     */
+    private AttendanceRepository repository;
+
+    /**
+     * Запись изменений в базу по мере работы ({@code null}, пока не включена в меню).
+     */
+    private RepositorySync repositorySync;
+
+    /**
+     * Каталог с файлами журнала и снимков.
+     */
+    private static final String DATA_DIRECTORY = "data";
+
+    /**
+     * Каталог с журналами программы.
+     */
+    private static final String LOG_DIRECTORY = "logs";
+
+    /**
+     * Таймер, откладывающий фильтрацию до паузы в наборе текста.
+     */
+    private javax.swing.Timer filterDebounceTimer;
+
+    /**
+     * Задержка фильтрации при наборе текста, мс.
+     */
+    private static final int FILTER_DEBOUNCE_MILLIS = 200;
+
     /**
      * Отправитель email для обратной связи.
      */
@@ -93,6 +187,16 @@ public class MainFrame extends JFrame {
      */
     private JComboBox<String> monthComboBox;
 
+    /**
+     * Поле для выбора года.
+     */
+    private JSpinner yearSpinner;
+
+    /**
+     * Признак программной установки месяца и года, при которой события полей не обрабатываются.
+     */
+    private boolean updatingMonthControls;
+
     /**
      * Текущий выбранный месяц для отображения посещаемости студентов.
      */
@@ -107,6 +211,25 @@ public class MainFrame extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
+        // Восстановление данных предыдущего запуска до построения таблицы
+        try {
+            journal = AttendanceJournal.open(Paths.get(DATA_DIRECTORY), store);
+            journal.setFailureHandler(error -> JOptionPane.showMessageDialog(this, "Ошибка записи журнала изменений: "
+                    + error.getMessage() + "\nИзменения больше не будут сохраняться между запусками.",
+                    "Ошибка", JOptionPane.ERROR_MESSAGE));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Не удалось восстановить данные: " + ex.getMessage()
+                    + "\nИзменения не будут сохраняться между запусками.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+        try {
+            auditLog = AuditLog.open(Paths.get(LOG_DIRECTORY), store);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Не удалось открыть журнал аудита: " + ex.getMessage(),
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+        history = new UndoHistory(store, UNDO_BUDGET_BYTES);
+        registerMetrics();
+
         // Панель ввода с более компактным GridLayout
         JPanel inputPanel = new JPanel(new GridLayout(5, 2, 5, 5)); // 4 строки, 2 столбца
         inputPanel.setBorder(BorderFactory.createTitledBorder("Добавить студента"));
@@ -131,26 +254,62 @@ public class MainFrame extends JFrame {
         addButton.addActionListener(this::addAttendance);
         inputPanel.add(addButton);
 
-        // Выбор месяца
+        // Выбор месяца и года: кнопки листают месяцы с переходом через границу года
         inputPanel.add(new JLabel("Выберите месяц:"));
         String[] months = {"Январь", "Февраль", "Март", "Апрель", "Май", "Июнь", "Июль", "Август", "Сентябрь", "Октябрь", "Ноябрь", "Декабрь"};
         monthComboBox = new JComboBox<>(months);
         monthComboBox.setSelectedIndex(selectedMonth.getMonthValue() - 1);
-        monthComboBox.addActionListener(e -> {
-            selectedMonth = LocalDate.now().withMonth(monthComboBox.getSelectedIndex() + 1).withDayOfMonth(1);
-            updateTableForMonth(selectedMonth); // Обновляем таблицу
-        });
-        inputPanel.add(monthComboBox);
+        monthComboBox.addActionListener(e -> onMonthControlsChanged());
+        yearSpinner = new JSpinner(new SpinnerNumberModel(selectedMonth.getYear(), 1900, 2999, 1));
+        yearSpinner.setEditor(new JSpinner.NumberEditor(yearSpinner, "#"));
+        yearSpinner.addChangeListener(e -> onMonthControlsChanged());
+        JButton previousMonthButton = new JButton("◀");
+        previousMonthButton.setMargin(new Insets(0, 4, 0, 4));
+        previousMonthButton.addActionListener(e -> showMonth(YearMonth.from(selectedMonth).minusMonths(1)));
+        JButton nextMonthButton = new JButton("▶");
+        nextMonthButton.setMargin(new Insets(0, 4, 0, 4));
+        nextMonthButton.addActionListener(e -> showMonth(YearMonth.from(selectedMonth).plusMonths(1)));
+        JPanel monthPanel = new JPanel(new BorderLayout(2, 0));
+        monthPanel.add(previousMonthButton, BorderLayout.WEST);
+        JPanel monthYearPanel = new JPanel(new GridLayout(1, 2, 2, 0));
+        monthYearPanel.add(monthComboBox);
+        monthYearPanel.add(yearSpinner);
+        monthPanel.add(monthYearPanel, BorderLayout.CENTER);
+        monthPanel.add(nextMonthButton, BorderLayout.EAST);
+        inputPanel.add(monthPanel);
+
+        // Вид данных: таблица месяца или тепловая карта года
+        JComboBox<String> viewComboBox = new JComboBox<>(new String[]{"Вид: таблица", "Вид: тепловая карта (год)"});
+        inputPanel.add(viewComboBox);
 
         // Инициализация таблицы
-        String[] columnNames = generateColumnNames(selectedMonth);
-        tableModel = new DefaultTableModel(columnNames, 0);
+        tableModel = new AttendanceTableModel(store, YearMonth.from(selectedMonth), aggregates);
         table = new JTable(tableModel);
         table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.setDefaultRenderer(AttendanceState.class, new AttendanceCellRenderer());
+        table.setDefaultEditor(AttendanceState.class, new DefaultCellEditor(new JTextField()) {
+            @Override
+            public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row, int column) {
+                // Редактируется символ отметки, а не имя состояния
+                Object mark = value instanceof AttendanceState ? ((AttendanceState) value).getMark() : value;
+                return super.getTableCellEditorComponent(table, mark, isSelected, row, column);
+            }
+        });
+        monthViews.prefetchAround(YearMonth.from(selectedMonth));
         JScrollPane scrollPane = new JScrollPane(table);
 
+        // Тепловая карта показывает те же строки, что и таблица, за весь выбранный год
+        heatMap = new AttendanceHeatMap(tableModel, store, selectedMonth.getYear());
+        JScrollPane heatMapScrollPane = new JScrollPane(heatMap);
+        heatMapScrollPane.setColumnHeaderView(heatMap.getHeader());
+        CardLayout viewLayout = new CardLayout();
+        JPanel viewPanel = new JPanel(viewLayout);
+        viewPanel.add(scrollPane, "table");
+        viewPanel.add(heatMapScrollPane, "heatMap");
+        viewComboBox.addActionListener(e -> viewLayout.show(viewPanel, viewComboBox.getSelectedIndex() == 0 ? "table" : "heatMap"));
+
         // Панель кнопок с уменьшенными кнопками
-        JPanel buttonPanel = new JPanel(new GridLayout(4, 1, 5, 5)); // Изменено с 3 на 4 для нового места
+        JPanel buttonPanel = new JPanel(new GridLayout(5, 1, 5, 5));
         JButton saveExcelButton = new JButton("Сохранить в Excel");
         saveExcelButton.addActionListener(e -> saveToExcel());
         buttonPanel.add(saveExcelButton);
@@ -159,10 +318,13 @@ public class MainFrame extends JFrame {
         loadExcelButton.addActionListener(e -> loadFromExcel());
         buttonPanel.add(loadExcelButton);
 
+        JButton importWorkbooksButton = new JButton("Добавить из файлов/папки");
+        importWorkbooksButton.addActionListener(e -> importWorkbooks());
+        buttonPanel.add(importWorkbooksButton);
+
         JButton clearButton = new JButton("Очистить всех студентов");
         clearButton.addActionListener(e -> {
-            students.clear();
-            updateDisplayArea();
+            history.clearStore(); // Таблица обновится через событие хранилища; очистку можно отменить
         });
         buttonPanel.add(clearButton);
 
@@ -180,7 +342,7 @@ public class MainFrame extends JFrame {
 
         // Панель фильтрации
         JPanel filterPanel = new JPanel(new GridLayout(4, 1, 5, 5));
-        String[] filterOptions = {"Выберите фильтрацию", "Фильтровать по дате", "Фильтровать по группе", "Фильтровать по ФИО"};
+        String[] filterOptions = {"Выберите фильтрацию", "Фильтровать по дате", "Фильтровать по дате (отсутствовали)", "Фильтровать по группе", "Фильтровать по ФИО"};
         filterComboBox = new JComboBox<>(filterOptions);
         filterComboBox.addActionListener(e -> updateFilterFields());
         filterPanel.add(new JLabel("Выберите метод фильтрации:"));
@@ -190,6 +352,34 @@ public class MainFrame extends JFrame {
         filterPanel.add(new JLabel("Введите данные для фильтрации:"));
         filterPanel.add(filterInputField);
 
+        // Фильтрация при наборе текста после короткой паузы
+        filterDebounceTimer = new javax.swing.Timer(FILTER_DEBOUNCE_MILLIS, e -> {
+            String selectedFilter = (String) filterComboBox.getSelectedItem();
+            String input = filterInputField.getText().trim();
+            if (input.isEmpty()) {
+                resetFilters();
+            } else {
+                applyFilter(selectedFilter, input);
+            }
+        });
+        filterDebounceTimer.setRepeats(false);
+        filterInputField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterDebounceTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterDebounceTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterDebounceTimer.restart();
+            }
+        });
+
         // Кнопка выполнения фильтрации
         JButton applyFilterButton = new JButton("Выполнить");
         applyFilterButton.addActionListener(e -> {
@@ -207,7 +397,7 @@ public class MainFrame extends JFrame {
         // Основная панель
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.add(inputPanel, BorderLayout.NORTH);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        mainPanel.add(viewPanel, BorderLayout.CENTER);
         mainPanel.add(buttonPanel, BorderLayout.EAST);
         mainPanel.add(filterPanel, BorderLayout.SOUTH);
 
@@ -226,6 +416,55 @@ public class MainFrame extends JFrame {
         });
         fileMenu.add(exitItem);
 
+        // Меню "Правка": отмена и повтор изменений
+        JMenu editMenu = new JMenu("Правка");
+        menuBar.add(editMenu);
+
+        JMenuItem undoItem = new JMenuItem("Отменить");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undoItem.addActionListener(e -> {
+            cancelCellEditing();
+            history.undo();
+        });
+        editMenu.add(undoItem);
+
+        JMenuItem redoItem = new JMenuItem("Повторить");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redoItem.addActionListener(e -> {
+            cancelCellEditing();
+            history.redo();
+        });
+        editMenu.add(redoItem);
+
+        history.addChangeListener(e -> {
+            undoItem.setEnabled(history.canUndo());
+            undoItem.setText(history.canUndo() ? "Отменить: " + history.getUndoTitle() : "Отменить");
+            redoItem.setEnabled(history.canRedo());
+            redoItem.setText(history.canRedo() ? "Повторить: " + history.getRedoTitle() : "Повторить");
+        });
+        undoItem.setEnabled(false);
+        redoItem.setEnabled(false);
+
+        // Меню "База данных"
+        JMenu databaseMenu = new JMenu("База данных");
+        menuBar.add(databaseMenu);
+
+        JMenuItem saveToDatabaseItem = new JMenuItem("Сохранить в базу");
+        saveToDatabaseItem.addActionListener(e -> saveToDatabase());
+        databaseMenu.add(saveToDatabaseItem);
+
+        JMenuItem loadFromDatabaseItem = new JMenuItem("Загрузить из базы");
+        loadFromDatabaseItem.addActionListener(e -> loadFromDatabase());
+        databaseMenu.add(loadFromDatabaseItem);
+
+        JMenuItem browseDatabaseItem = new JMenuItem("Просмотреть базу");
+        browseDatabaseItem.addActionListener(e -> browseDatabase());
+        databaseMenu.add(browseDatabaseItem);
+
+        JCheckBoxMenuItem syncItem = new JCheckBoxMenuItem("Записывать изменения в базу");
+        syncItem.addActionListener(e -> setDatabaseSync(syncItem));
+        databaseMenu.add(syncItem);
+
         // Меню "Информация"
         JMenu infoMenu = new JMenu("Information");
         menuBar.add(infoMenu);
@@ -240,6 +479,22 @@ public class MainFrame extends JFrame {
         aboutAuthorItem.addActionListener(e -> showAboutAuthor());
         infoMenu.add(aboutAuthorItem);
 
+        // Пункт меню "Диагностика"
+        JMenuItem diagnosticsItem = new JMenuItem("Диагностика");
+        diagnosticsItem.addActionListener(e -> new DiagnosticsDialog(this).setVisible(true));
+        infoMenu.add(diagnosticsItem);
+
+        // Пункт меню "Аналитика"
+        JMenuItem analyticsItem = new JMenuItem("Аналитика посещаемости");
+        analyticsItem.addActionListener(e -> new AnalyticsDialog(this, analytics, tasks,
+                selectedMonth.withDayOfMonth(1), selectedMonth.withDayOfMonth(selectedMonth.lengthOfMonth())).setVisible(true));
+        infoMenu.add(analyticsItem);
+
+        // Пункт меню "История изменений"
+        JMenuItem auditItem = new JMenuItem("История изменений");
+        auditItem.addActionListener(e -> showAuditHistory());
+        infoMenu.add(auditItem);
+
         // Меню "Помощь" (пока пустое)
         JMenu helpMenu = new JMenu("Help");
         menuBar.add(helpMenu);
@@ -258,8 +513,8 @@ public class MainFrame extends JFrame {
     /**
      * Обрабатывает событие для отправки отзыва.
      * Создает и отображает окно для ввода письма с полями "Тема" и "Сообщение".
-     * При отправке письма использует {@link EmailSender} для отправки.
-     * Закрывает окно после отправки.
+     * Письмо ставится в очередь {@link EmailSender}, окно закрывается сразу,
+     * а результат отправки показывается, когда он станет известен.
      *
      * @param e Событие, вызвавшее обработчик
      */
@@ -307,8 +562,14 @@ public class MainFrame extends JFrame {
         sendButton.addActionListener((ActionEvent event) -> {
             String subject = subjectField.getText();
             String text = messageArea.getText();
-            emailSender.sendEmail(subject, text, this);
-            frame.dispose(); // Закрываем окно после отправки
+            frame.dispose(); // Закрываем окно сразу: письмо отправляется в фоне
+            emailSender.sendEmail(subject, text).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                if (error == null) {
+                    JOptionPane.showMessageDialog(this, "Письмо успешно отправлено!", "Успех", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Ошибка отправки: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+            }));
         });
 
         frame.setLocationRelativeTo(null); // Центрируем окно
@@ -330,10 +591,10 @@ public class MainFrame extends JFrame {
             filterInputField.setEnabled(true);
             filterInputField.setText("");
             filterInputField.setToolTipText("Введите группу студента для фильтрации");
-        } else if ("Фильтровать по дате".equals(selectedFilter)) {
+        } else if ("Фильтровать по дате".equals(selectedFilter) || "Фильтровать по дате (отсутствовали)".equals(selectedFilter)) {
             filterInputField.setEnabled(true);
             filterInputField.setText("");
-            filterInputField.setToolTipText("Введите дату для фильтрации");
+            filterInputField.setToolTipText("Введите дату для фильтрации (гггг-мм-дд)");
         } else {
             filterInputField.setEnabled(false);
             filterInputField.setText("");
@@ -342,7 +603,7 @@ public class MainFrame extends JFrame {
 
     /**
      * Добавляет посещение для выбранного студента.
-     * Проверяет корректность ввода и формат даты.
+     * Проверяет корректность ввода правилами {@link RecordValidator#forManualEntry()}.
      * После добавления обновляет таблицу с посещаемостью.
      *
      * @param e Событие, вызвавшее обработчик
@@ -359,52 +620,26 @@ public class MainFrame extends JFrame {
                 return;
             }
 
-            // Валидация ФИО (Фамилия Имя Отчество)
-            if (!fullName.matches("[А-Яа-яЁёA-Za-z]+\\s[А-Яа-яЁёA-Za-z]+\\s[А-Яа-яЁёA-Za-z]+")) {
-                JOptionPane.showMessageDialog(this, "ФИО должно быть в формате: Фамилия Имя Отчество, без лишних пробелов и специальных символов!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            // Проверка ФИО, группы и даты общими правилами ввода
+            List<RecordValidator.Violation> violations = RecordValidator.forManualEntry()
+                    .validate(new RecordValidator.Record("", 0, fullName, group, date));
+            if (!violations.isEmpty()) {
+                RecordValidator.Violation first = violations.get(0);
+                JOptionPane.showMessageDialog(this, first.getColumn() + ": " + first.getReason() + "!", "Ошибка", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            // Валидация номера группы (8 цифр)
-            if (!group.matches("\\d{8}")) {
-                JOptionPane.showMessageDialog(this, "Номер группы должен содержать ровно 8 цифр!", "Ошибка", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            // Валидация даты
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            sdf.setLenient(false);
-
-            try {
-                Date parsedDate = sdf.parse(date);
-
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(parsedDate);
-
-                int year = cal.get(Calendar.YEAR);
-                int month = cal.get(Calendar.MONTH) + 1; // Январь = 0
-                int currentYear = LocalDate.now().getYear();
-
-                // Проверка года и месяца
-                if (year > currentYear) {
-                    JOptionPane.showMessageDialog(this, "Год не может быть больше текущего!", "Ошибка", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                if (month < 1 || month > 12) {
-                    JOptionPane.showMessageDialog(this, "Месяц должен быть в диапазоне от 1 до 12!", "Ошибка", JOptionPane.ERROR_MESSAGE);
-                    return;
+            // Если все проверки пройдены, добавляем студента; добавление отменяется одним действием
+            history.edit("Добавление посещения", () -> {
+                Student student = store.get(fullName);
+                if (student == null) {
+                    String[] nameParts = fullName.split("\\s+");
+                    student = new Student(nameParts[0], nameParts[1], nameParts[2], group);
+                    store.put(student);
                 }
-            } catch (ParseException ex) {
-                JOptionPane.showMessageDialog(this, "Некорректный формат даты! Используйте формат yyyy-MM-dd.", "Ошибка", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            // Если все проверки пройдены, добавляем студента
-            Student student = students.getOrDefault(fullName, new Student(fullName, "", "", group));
-            student.addAttendanceDate(date);
-            students.put(fullName, student);
+                student.addAttendanceDate(date);
+            });
 
-            updateDisplayArea(); // Обновляем таблицу после добавления
             nameField.setText("");
             groupField.setText("");
             dateField.setText("");
@@ -417,219 +652,720 @@ public class MainFrame extends JFrame {
 
 
     /**
-     * Обновляет таблицу с посещаемостью студентов.
-     * Для каждого студента рассчитывается количество посещений в выбранный месяц.
-     * Вставляются значения в таблицу, включая посещения и отсутствие.
+     * Показывает в таблице всех студентов.
+     * Значения ячеек вычисляются моделью таблицы по требованию, поэтому копирования данных не происходит.
      */
     private void updateDisplayArea() {
-        tableModel.setRowCount(0); // Очистить текущую таблицу
-        for (Student student : students.values()) {
-            List<String> row = new ArrayList<>();
-            row.add(student.getFullName());
-            row.add(student.getGroup());
-
-            int attendanceCount = 0; // Счётчик посещений
-
-            LocalDate startOfMonth = selectedMonth.withDayOfMonth(1);
-            LocalDate endOfMonth = selectedMonth.withDayOfMonth(selectedMonth.lengthOfMonth());
-
-            for (LocalDate date = startOfMonth; !date.isAfter(endOfMonth); date = date.plusDays(1)) {
-                String formattedDate = date.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                if (student.getAttendanceDates().contains(formattedDate)) {
-                    row.add("✓");
-                    attendanceCount++; // Увеличиваем счётчик посещений
-                } else if (student.getAbsenceDates().contains(formattedDate)) {
-                    row.add("✗");
-                } else {
-                    row.add("");
-                }
-            }
+        long started = System.nanoTime();
+        tableModel.clearFilter();
+        Metrics.get().recordSince("updateDisplayArea", started);
+    }
 
-            // Добавляем количество посещений в строку
-            row.add(2, String.valueOf(attendanceCount)); // Вставляем в колонку "Посещения"
-            tableModel.addRow(row.toArray());
+    /**
+     * Прерывает редактирование ячейки таблицы перед отменой или повтором, чтобы недописанная
+     * отметка не записалась поверх восстановленной.
+     */
+    private void cancelCellEditing() {
+        if (table.isEditing()) {
+            table.getCellEditor().cancelCellEditing();
         }
+    }
+
+    /**
+     * Подключает метрики окна: счетчики изменений хранилища, показатели размера данных и MBean для JMX.
+     * Показатели читаются и из потока JMX; размеры списков читаются без блокировки, значение может
+     * отставать на одно изменение.
+     */
+    private void registerMetrics() {
+        Metrics metrics = Metrics.get();
+        metrics.gauge("students", store::size);
+        metrics.gauge("table.rows", () -> tableModel == null ? 0 : tableModel.getRowCount());
+        metrics.gauge("aggregates.entries", aggregates::size);
+        metrics.gauge("undo.bytes", history::getBytes);
+        store.addListener(new AttendanceStore.Listener() {
+            @Override
+            public void studentsAdded(int fromIndex, int toIndex) {
+                metrics.increment("students.added", toIndex - fromIndex + 1);
+            }
 
-        // Применение рендера после обновления данных
-        for (int i = 3; i < tableModel.getColumnCount(); i++) { // Колонки с датами начинаются с 3
-            table.getColumnModel().getColumn(i).setCellRenderer(getCustomTableCellRenderer());
+            @Override
+            public void studentRemoved(Student student, int index) {
+                metrics.increment("students.removed", 1);
+            }
+
+            @Override
+            public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+                metrics.increment("marks.changed", 1);
+            }
+        });
+        try {
+            metrics.registerMBean();
+        } catch (JMException ex) {
+            // Окно работает и без JMX: метрики остаются доступны в окне диагностики
         }
     }
 
     /**
      * Применяет фильтр к данным в таблице на основе выбранного типа фильтра и введенного значения.
-     * Сохраняет текущее состояние перед фильтрацией, очищает таблицу и добавляет только отфильтрованные данные.
+     * Поиск выполняется по индексам {@link StudentFilter}, таблица показывает только найденных студентов.
      *
      * @param filterType Тип фильтра
      * @param input Ввод пользователя для фильтрации
      */
     private void applyFilter(String filterType, String input) {
-        saveTableStateToStudents(); // Сохраняем текущее состояние перед фильтрацией
-
-        tableModel.setRowCount(0); // Очищаем таблицу
-        for (Student student : students.values()) {
-            boolean matches = false;
-
-            if ("Фильтровать по дате".equals(filterType)) {
-                matches = student.getAttendanceDates().contains(input);
-            } else if ("Фильтровать по группе".equals(filterType)) {
-                matches = student.getGroup().equalsIgnoreCase(input);
-            } else if ("Фильтровать по ФИО".equals(filterType)) {
-                matches = student.getFullName().toLowerCase().contains(input.toLowerCase());
+        StudentFilter.Type type;
+        if ("Фильтровать по дате".equals(filterType)) {
+            type = StudentFilter.Type.DATE_PRESENT;
+        } else if ("Фильтровать по дате (отсутствовали)".equals(filterType)) {
+            type = StudentFilter.Type.DATE_ABSENT;
+        } else if ("Фильтровать по группе".equals(filterType)) {
+            type = StudentFilter.Type.GROUP;
+        } else if ("Фильтровать по ФИО".equals(filterType)) {
+            type = StudentFilter.Type.NAME;
+        } else {
+            return; // Фильтр не выбран
+        }
+
+        long started = System.nanoTime();
+        if (type != StudentFilter.Type.NAME) {
+            // Группа и дата - готовые индексы хранилища, поиск мгновенный и выполняется здесь же
+            tasks.cancel("filter"); // Запоздавший поиск по ФИО не должен заменить этот результат
+            showFiltered(studentFilter.apply(type, input), started);
+            return;
+        }
+
+        // Поиск по ФИО - в фоне по собственной копии ФИО движка; новый запрос отменяет предыдущий.
+        // Если за время поиска состав студентов изменился, поиск повторяется
+        int changeCount = studentFilter.getChangeCount();
+        tasks.submit("filter", null, context -> studentFilter.findByName(input), new TaskRunner.Callback<List<Student>>() {
+            @Override
+            public void succeeded(List<Student> rows) {
+                if (changeCount != studentFilter.getChangeCount()) {
+                    applyFilter(filterType, input);
+                } else {
+                    showFiltered(rows, started);
+                }
             }
 
-            if (matches) {
-                addStudentRowToTable(student); // Добавляем отфильтрованного студента
+            @Override
+            public void failed(Throwable error) {
+                JOptionPane.showMessageDialog(MainFrame.this, "Ошибка поиска: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        });
+    }
+
+    /**
+     * Показать найденных студентов и учесть поиск в метриках.
+     */
+    private void showFiltered(List<Student> rows, long started) {
+        tableModel.setFilter(rows);
+        Metrics metrics = Metrics.get();
+        metrics.recordSince("applyFilter", started);
+        metrics.increment("filter.runs", 1);
+        metrics.increment("filter.hits", rows.size());
     }
 
     /**
-     * Сохраняет данные таблицы в Excel файл.
-     * Пользователь выбирает место для сохранения файла, и данные сохраняются в формате XLSX.
+     * Сохраняет историю посещаемости в Excel файл или в CSV.
+     * <p>
+     * Пользователь выбирает файл, диапазон месяцев и раскладку листов (по месяцам или по группам).
+     * Экспортируются все студенты, а не только отфильтрованные строки. Запись выполняется
+     * потоково ({@link ExcelExporter}) в фоновом потоке с индикатором прогресса и возможностью отмены.
+     * Файл с расширением csv записывается {@link CsvExporter} (строка на каждую отметку, без раскладки).
+     * </p>
      */
     private void saveToExcel() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Сохранить в Excel");
-        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            String filePath = fileChooser.getSelectedFile().getAbsolutePath();
-            if (!filePath.endsWith(".xlsx")) {
-                filePath += ".xlsx";
+        FileNameExtensionFilter xlsxFilter = new FileNameExtensionFilter("Книга Excel (*.xlsx)", "xlsx");
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV, строка на отметку (*.csv)", "csv");
+        fileChooser.addChoosableFileFilter(xlsxFilter);
+        fileChooser.addChoosableFileFilter(csvFilter);
+        fileChooser.setFileFilter(xlsxFilter);
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+        if (fileChooser.getFileFilter() == csvFilter && !CsvImporter.isCsv(new File(filePath))) {
+            filePath += ".csv";
+        } else if (!filePath.endsWith(".xlsx") && !CsvImporter.isCsv(new File(filePath))) {
+            filePath += ".xlsx";
+        }
+        File file = new File(filePath);
+        boolean csv = CsvImporter.isCsv(file);
+
+        // Параметры экспорта
+        JTextField fromField = new JTextField(YearMonth.from(selectedMonth).toString());
+        JTextField toField = new JTextField(YearMonth.from(selectedMonth).toString());
+        JComboBox<String> layoutComboBox = new JComboBox<>(new String[]{"Лист на каждый месяц", "Лист на каждую группу"});
+        JPanel optionsPanel = new JPanel(new GridLayout(csv ? 2 : 3, 2, 5, 5));
+        optionsPanel.add(new JLabel("С месяца (гггг-мм):"));
+        optionsPanel.add(fromField);
+        optionsPanel.add(new JLabel("По месяц (гггг-мм):"));
+        optionsPanel.add(toField);
+        if (!csv) {
+            optionsPanel.add(new JLabel("Раскладка:"));
+            optionsPanel.add(layoutComboBox);
+        }
+        if (JOptionPane.showConfirmDialog(this, optionsPanel, "Параметры экспорта",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        TaskRunner.Task<Void> export;
+        try {
+            LocalDate from = YearMonth.parse(fromField.getText().trim()).atDay(1);
+            LocalDate to = YearMonth.parse(toField.getText().trim()).atEndOfMonth();
+            ExcelExporter.Layout layout = layoutComboBox.getSelectedIndex() == 0
+                    ? ExcelExporter.Layout.BY_MONTH : ExcelExporter.Layout.BY_GROUP;
+
+            // Копии студентов, чтобы можно было продолжать отмечать во время экспорта;
+            // заполняются в фоне порциями до начала записи
+            List<Student> students = new ArrayList<>(store.getStudents());
+            List<Student> snapshot = new ArrayList<>(students.size());
+            if (csv) {
+                CsvExporter exporter = new CsvExporter(snapshot, from, to);
+                export = context -> {
+                    copyStudents(students, snapshot, context);
+                    exporter.export(file, context::progress, context::isCancelled);
+                    return null;
+                };
+            } else {
+                ExcelExporter exporter = new ExcelExporter(snapshot, from, to, layout);
+                export = context -> {
+                    copyStudents(students, snapshot, context);
+                    exporter.export(file, context::progress, context::isCancelled);
+                    return null;
+                };
             }
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Некорректный диапазон: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            try (Workbook workbook = new XSSFWorkbook();
-                 FileOutputStream fileOut = new FileOutputStream(filePath)) {
-                Sheet sheet = workbook.createSheet("Attendance");
+        int exportedCount = store.size();
+        long started = System.nanoTime();
+        tasks.submit(null, (csv ? "Сохранение в CSV: " : "Сохранение в Excel: ") + file.getName(), export, new TaskRunner.Callback<Void>() {
+            @Override
+            public void succeeded(Void result) {
+                Metrics.get().recordSince("saveToExcel", started);
+                audit(AuditLog.Kind.EXPORT, file.getAbsolutePath(), exportedCount);
+                JOptionPane.showMessageDialog(MainFrame.this, csv ? "Данные успешно сохранены в CSV!" : "Данные успешно сохранены в Excel!",
+                        "Успех", JOptionPane.INFORMATION_MESSAGE);
+            }
 
-                Row headerRow = sheet.createRow(0);
-                for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                    headerRow.createCell(i).setCellValue(tableModel.getColumnName(i));
-                }
+            @Override
+            public void failed(Throwable error) {
+                JOptionPane.showMessageDialog(MainFrame.this, "Ошибка при сохранении файла: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
 
-                for (int i = 0; i < tableModel.getRowCount(); i++) {
-                    Row row = sheet.createRow(i + 1);
-                    for (int j = 0; j < tableModel.getColumnCount(); j++) {
-                        row.createCell(j).setCellValue(String.valueOf(tableModel.getValueAt(i, j)));
-                    }
-                }
+            @Override
+            public void cancelled() {
+                JOptionPane.showMessageDialog(MainFrame.this, "Сохранение отменено", "Отмена", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
 
-                workbook.write(fileOut);
-                JOptionPane.showMessageDialog(this, "Данные успешно сохранены в Excel!", "Успех", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Ошибка при сохранении файла: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Скопировать студентов для записи в фоне. Данные студентов меняются только в потоке интерфейса,
+     * поэтому копии снимаются там же, но порциями по {@link #COPY_BATCH_SIZE}: между порциями окно
+     * обрабатывает события и не замирает на большом списке.
+     *
+     * @param students Студенты (список ссылок, снятый в потоке интерфейса).
+     * @param copies   Список, в который добавляются копии.
+     * @param context  Окружение фоновой задачи.
+     * @throws Exception при прерывании или отмене задачи.
+     */
+    private static void copyStudents(List<Student> students, List<Student> copies, TaskRunner.Context context) throws Exception {
+        for (int start = 0; start < students.size(); start += COPY_BATCH_SIZE) {
+            if (context.isCancelled()) {
+                throw new CancellationException("Сохранение отменено");
             }
+            int from = start;
+            int to = Math.min(students.size(), start + COPY_BATCH_SIZE);
+            SwingUtilities.invokeAndWait(() -> {
+                for (int i = from; i < to; i++) {
+                    copies.add(students.get(i).copy());
+                }
+            });
         }
     }
 
     /**
-     * Загружает данные студентов из файла Excel.
+     * Загружает данные студентов из файла Excel или CSV.
      * <p>
-     * Этот метод предоставляет возможность выбрать файл Excel, содержащий информацию о студентах.
-     * Данные из файла загружаются в текущий список студентов. Пропускаются строки с пустыми значениями
-     * или некорректными ФИО. В случае ошибок при загрузке данных, пользователю показывается сообщение об ошибке.
+     * Файл читается потоково ({@link ExcelImporter}, для csv - {@link CsvImporter}) в фоновом потоке, а студенты добавляются
+     * в таблицу порциями ({@link TaskRunner}), поэтому окно не блокируется даже на больших книгах. Вместе с ФИО и группой восстанавливаются отметки из колонок дней.
+     * Некорректные строки пропускаются, а сведения о них показываются одним сообщением после загрузки.
      * </p>
      */
     private void loadFromExcel() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Загрузить из Excel");
-        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try (FileInputStream fis = new FileInputStream(fileChooser.getSelectedFile());
-                 Workbook workbook = WorkbookFactory.create(fis)) {
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Книги Excel и CSV (*.xlsx, *.csv)", "xlsx", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+
+        long started = System.nanoTime();
+        tasks.submit("load", "Загрузка: " + file.getName(), context -> {
+            ExcelImporter.Result result = WorkbookImport.readFile(file, context::progress, context::isCancelled);
+
+            // Студенты добавляются порциями, чтобы окно перерисовывалось во время загрузки. Файл уже прочитан
+            // целиком, и замену данных больше нельзя прервать: иначе таблица осталась бы заполненной наполовину
+            List<Student> students = result.getStudents();
+            context.commit();
+            context.publish(this::beginReplace);
+            for (int from = 0; from < students.size(); from += LOAD_BATCH_SIZE) {
+                List<Student> batch = students.subList(from, Math.min(students.size(), from + LOAD_BATCH_SIZE));
+                context.publish(() -> store.putAll(batch));
+            }
+            return result;
+        }, new TaskRunner.Callback<ExcelImporter.Result>() {
+            @Override
+            public void succeeded(ExcelImporter.Result result) {
+                history.setSuspended(false);
+                Metrics.get().recordSince("loadFromExcel", started);
+                audit(AuditLog.Kind.IMPORT, file.getAbsolutePath(), result.getStudents().size());
+                updateDisplayArea(); // Обновляем таблицу
 
-                Sheet sheet = workbook.getSheetAt(0);
-                students.clear(); // Очищаем текущий список студентов
+                StringBuilder message = new StringBuilder("Данные успешно загружены!\n")
+                        .append("Студентов: ").append(result.getStudents().size())
+                        .append(", отметок: ").append(result.getMarkCount());
+                RecordValidator.Report report = result.getReport();
+                if (report.isEmpty()) {
+                    JOptionPane.showMessageDialog(MainFrame.this, message.toString(), "Успех", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
 
-                Iterator<Row> rowIterator = sheet.rowIterator();
-                if (rowIterator.hasNext()) rowIterator.next(); // Пропускаем заголовок
+                // Все ошибки файла - в одном окне, полный список можно сохранить в отчет
+                List<RecordValidator.Violation> violations = report.getViolations();
+                message.append("\n\nОшибок в файле: ").append(violations.size());
+                for (int i = 0; i < Math.min(10, violations.size()); i++) {
+                    message.append("\n").append(violations.get(i));
+                }
+                message.append("\n\nСохранить отчет об ошибках?");
+                int answer = JOptionPane.showConfirmDialog(MainFrame.this, message.toString(), "Загрузка завершена",
+                        JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (answer == JOptionPane.YES_OPTION) {
+                    saveValidationReport(report);
+                }
+            }
 
-                while (rowIterator.hasNext()) {
-                    Row row = rowIterator.next();
+            @Override
+            public void failed(Throwable error) {
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Ошибка при загрузке файла: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
 
-                    String fullName = getCellValueAsString(row.getCell(0));
-                    String group = getCellValueAsString(row.getCell(1));
+            @Override
+            public void cancelled() {
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Загрузка отменена", "Отмена", JOptionPane.INFORMATION_MESSAGE);
+            }
 
-                    if (fullName == null || fullName.isEmpty() || group == null || group.isEmpty()) {
-                        continue; // Пропуск пустых строк
-                    }
+        });
+    }
 
-                    // Удаление лишних пробелов
-                    fullName = fullName.trim();
-                    group = group.trim();
+    /**
+     * Начать замену всех данных загрузкой: очистить таблицу и не записывать загружаемые изменения
+     * в историю отмены. Приостановку снимает итог загрузки.
+     */
+    private void beginReplace() {
+        history.reset();
+        history.setSuspended(true);
+        store.clear();
+    }
 
-                    // Разделение ФИО на части
-                    String[] nameParts = fullName.split("\\s+");
-                    if (nameParts.length < 2) {
-                        JOptionPane.showMessageDialog(this, "Некорректное ФИО: " + fullName, "Ошибка", JOptionPane.ERROR_MESSAGE);
-                        continue; // Пропуск некорректных строк
+    /**
+     * Добавляет к загруженным данным несколько книг Excel или все книги из папки.
+     * <p>
+     * В отличие от {@link #loadFromExcel()} имеющиеся студенты не удаляются: книги читаются параллельно
+     * ({@link WorkbookImport}) и объединяются с данными по ФИО, а расхождения в одном дне разрешаются
+     * выбранным правилом. Более поздним считается файл с более поздним временем изменения.
+     * </p>
+     */
+    private void importWorkbooks() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Добавить из файлов или папки");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        WorkbookImport.ConflictPolicy policy = (WorkbookImport.ConflictPolicy) JOptionPane.showInputDialog(this,
+                "Если файлы расходятся в отметке за один день:", "Правило объединения", JOptionPane.QUESTION_MESSAGE,
+                null, WorkbookImport.ConflictPolicy.values(), WorkbookImport.ConflictPolicy.LATEST_FILE_WINS);
+        if (policy == null) {
+            return;
+        }
+        List<File> files;
+        try {
+            files = WorkbookImport.expand(Arrays.asList(fileChooser.getSelectedFiles()));
+        } catch (IOException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Ошибка при чтении папки: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (files.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Не найдено ни одного файла xlsx или csv", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        files.sort(Comparator.comparingLong(File::lastModified));
+        WorkbookImport workbookImport = new WorkbookImport(files, policy, Runtime.getRuntime().availableProcessors());
+        WorkbookImport.Applied applied = new WorkbookImport.Applied();
+
+        long started = System.nanoTime();
+        tasks.submit("load", "Импорт файлов: " + files.size(), context -> {
+            WorkbookImport.Merged merged = workbookImport.read(context::progress, context::isCancelled);
+
+            // Объединение с таблицей порциями, каждая порция - один пакет изменений хранилища.
+            // Начатое объединение доводится до конца, чтобы не оставить таблицу объединенной частично
+            List<Student> students = merged.getStudents();
+            context.commit();
+            context.publish(() -> {
+                history.reset();
+                history.setSuspended(true); // Объединение в историю отмены не попадает
+            });
+            for (int from = 0; from < students.size(); from += LOAD_BATCH_SIZE) {
+                List<Student> batch = students.subList(from, Math.min(students.size(), from + LOAD_BATCH_SIZE));
+                context.publish(() -> applied.add(WorkbookImport.apply(store, batch, policy)));
+            }
+            return merged;
+        }, new TaskRunner.Callback<WorkbookImport.Merged>() {
+            @Override
+            public void succeeded(WorkbookImport.Merged merged) {
+                history.setSuspended(false);
+                Metrics.get().recordSince("importWorkbooks", started);
+                StringBuilder message = new StringBuilder("Импортировано файлов: ")
+                        .append(files.size() - merged.getFailedCount()).append(" из ").append(files.size())
+                        .append(String.format(" за %.1f с (%,d отметок/с, %.1f МБ/с)",
+                                merged.getElapsedMillis() / 1000.0, merged.getMarksPerSecond(), merged.getMegabytesPerSecond()))
+                        .append("\nНовых студентов: ").append(applied.getAddedStudents())
+                        .append(", добавлено и изменено отметок: ").append(applied.getChangedMarks())
+                        .append(", расхождений с имеющимися данными: ").append(applied.getConflicts())
+                        .append("\n");
+                RecordValidator.Report errors = new RecordValidator.Report();
+                for (WorkbookImport.FileReport file : merged.getFiles()) {
+                    message.append("\n").append(file.getFile().getName()).append(": ");
+                    if (file.getResult() == null) {
+                        message.append("ошибка - ").append(file.getError());
+                        continue;
                     }
+                    audit(AuditLog.Kind.IMPORT, file.getFile().getAbsolutePath() + ", правило " + policy.name(),
+                            file.getStudents());
+                    message.append("студентов ").append(file.getStudents())
+                            .append(" (новых ").append(file.getNewStudents()).append("), отметок ").append(file.getMarks())
+                            .append(" (учтено ").append(file.getAddedMarks()).append("), расхождений ").append(file.getConflicts());
+                    errors.addAll(file.getFile().getName(), file.getResult().getReport());
+                }
 
-                    String lastName = nameParts[0];
-                    String firstName = nameParts.length > 1 ? nameParts[1] : "";
-                    String patronymic = nameParts.length > 2 ? nameParts[2] : "";
-
-                    // Создаем объект студента
-                    Student student = new Student(lastName, firstName, patronymic, group);
-
-                    // Добавляем студента в список
-                    students.put(fullName, student);
+                JTextArea text = new JTextArea(message.toString(), Math.min(20, merged.getFiles().size() + 4), 80);
+                text.setEditable(false);
+                if (errors.isEmpty()) {
+                    JOptionPane.showMessageDialog(MainFrame.this, new JScrollPane(text), "Импорт завершен", JOptionPane.INFORMATION_MESSAGE);
+                    return;
                 }
+                text.append("\n\nОшибок в строках файлов: " + errors.size() + ". Сохранить отчет об ошибках?");
+                int answer = JOptionPane.showConfirmDialog(MainFrame.this, new JScrollPane(text), "Импорт завершен",
+                        JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (answer == JOptionPane.YES_OPTION) {
+                    saveValidationReport(errors);
+                }
+            }
 
-                updateDisplayArea(); // Обновляем таблицу
-                JOptionPane.showMessageDialog(this, "Данные успешно загружены!", "Успех", JOptionPane.INFORMATION_MESSAGE);
+            @Override
+            public void failed(Throwable error) {
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Ошибка при импорте: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
 
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Ошибка при загрузке файла: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            @Override
+            public void cancelled() {
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Импорт отменен", "Отмена", JOptionPane.INFORMATION_MESSAGE);
             }
+
+        });
+    }
+
+    /**
+     * Сохраняет отчет об ошибках импорта в файл CSV, выбранный пользователем.
+     *
+     * @param report Отчет проверки строк.
+     */
+    private void saveValidationReport(RecordValidator.Report report) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Сохранить отчет об ошибках");
+        fileChooser.setSelectedFile(new File("ошибки_импорта.csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            report.writeTo(fileChooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Ошибка при сохранении отчета: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * Открывает базу данных при первом обращении.
+     *
+     * @return База данных или {@code null}, если ее не удалось открыть (пользователь уже уведомлен).
+     */
+    private AttendanceRepository openRepository() {
+        if (repository != null) {
+            return repository;
+        }
+        try {
+            repository = AttendanceRepository.open(Paths.get(DATA_DIRECTORY));
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeRepository, "db-shutdown"));
+        } catch (SQLException | IOException ex) {
+            JOptionPane.showMessageDialog(this, "Не удалось открыть базу данных: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+        return repository;
+    }
+
+    private void closeRepository() {
+        if (repositorySync != null) {
+            repositorySync.close();
+        }
+        repository.close();
+    }
 
     /**
-     * Получает значение ячейки Excel как строку.
+     * Сохраняет всех студентов в базу данных. Студенты, уже сохраненные в базе, обновляются.
+     * Запись выполняется в фоне пакетами в одной транзакции; при отмене база не меняется.
+     */
+    private void saveToDatabase() {
+        AttendanceRepository database = openRepository();
+        if (database == null) {
+            return;
+        }
+        // Копии студентов, чтобы можно было продолжать отмечать во время записи
+        List<Student> students = new ArrayList<>(store.getStudents());
+        long started = System.nanoTime();
+        tasks.submit(null, "Сохранение в базу", context -> {
+                    List<Student> snapshot = new ArrayList<>(students.size());
+                    copyStudents(students, snapshot, context);
+                    return database.saveAll(snapshot, context::progress, context::isCancelled);
+                },
+                new TaskRunner.Callback<Integer>() {
+                    @Override
+                    public void succeeded(Integer blocks) {
+                        Metrics.get().recordSince("saveToDatabase", started);
+                        audit(AuditLog.Kind.EXPORT, database.getFile().toString(), students.size());
+                        JOptionPane.showMessageDialog(MainFrame.this, "В базу сохранено студентов: " + students.size(),
+                                "Успех", JOptionPane.INFORMATION_MESSAGE);
+                    }
+
+                    @Override
+                    public void failed(Throwable error) {
+                        JOptionPane.showMessageDialog(MainFrame.this, "Ошибка при сохранении в базу: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        JOptionPane.showMessageDialog(MainFrame.this, "Сохранение отменено, база не изменена", "Отмена", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                });
+    }
+
+    /**
+     * Загружает студентов из базы данных вместо текущего списка.
      * <p>
-     * Этот метод извлекает значение из ячейки Excel в виде строки, учитывая тип данных в ячейке.
-     * Если ячейка содержит число, оно конвертируется в строку. Если ячейка содержит дату, дата будет
-     * преобразована в строковое представление. Если ячейка пуста или имеет неподдерживаемый тип, метод возвращает пустую строку.
+     * Можно ограничить загрузку диапазоном месяцев: отметки за другие месяцы остаются только в базе.
+     * Студенты читаются страницами и добавляются в таблицу порциями, как при загрузке из Excel.
      * </p>
-     *
-     * @param cell ячейка Excel, из которой необходимо извлечь значение.
-     * @return строковое представление значения ячейки.
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
+    private void loadFromDatabase() {
+        AttendanceRepository database = openRepository();
+        if (database == null) {
+            return;
         }
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                } else {
-                    return String.valueOf((long) cell.getNumericCellValue()); // Если число, то приводим к строке
+        JTextField fromField = new JTextField();
+        JTextField toField = new JTextField();
+        JPanel optionsPanel = new JPanel(new GridLayout(3, 1, 5, 5));
+        optionsPanel.add(new JLabel("Отметки за месяцы (гггг-мм), пусто - все:"));
+        JPanel rangePanel = new JPanel(new GridLayout(1, 4, 5, 5));
+        rangePanel.add(new JLabel("С:"));
+        rangePanel.add(fromField);
+        rangePanel.add(new JLabel("По:"));
+        rangePanel.add(toField);
+        optionsPanel.add(rangePanel);
+        optionsPanel.add(new JLabel("Текущий список будет заменен."));
+        if (JOptionPane.showConfirmDialog(this, optionsPanel, "Загрузка из базы",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        long fromDay;
+        long toDay;
+        try {
+            String from = fromField.getText().trim();
+            String to = toField.getText().trim();
+            fromDay = from.isEmpty() ? Long.MIN_VALUE : YearMonth.parse(from).atDay(1).toEpochDay();
+            toDay = to.isEmpty() ? Long.MAX_VALUE : YearMonth.parse(to).atEndOfMonth().toEpochDay();
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Некорректный диапазон: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        long started = System.nanoTime();
+        tasks.submit("load", "Загрузка из базы", context -> {
+            int total = database.countStudents();
+            int[] loaded = {0};
+            // Страницы сначала читаются целиком (чтение можно отменить), затем данные заменяются без прерывания
+            List<List<Student>> pages = new ArrayList<>();
+            database.forEachPage(LOAD_BATCH_SIZE, fromDay, toDay, page -> {
+                if (context.isCancelled()) {
+                    throw new CancellationException("Загрузка отменена");
                 }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                try {
-                    return cell.getStringCellValue();
-                } catch (IllegalStateException e) {
-                    return String.valueOf(cell.getNumericCellValue());
+                pages.add(page);
+                loaded[0] += page.size();
+                context.progress(loaded[0], total);
+            });
+            context.commit();
+            context.publish(() -> {
+                // Загруженные из базы студенты не записываются в нее обратно
+                if (repositorySync != null) {
+                    repositorySync.setSuspended(true);
                 }
-            default:
-                return "";
+                beginReplace();
+            });
+            for (List<Student> page : pages) {
+                context.publish(() -> store.putAll(page));
+            }
+            return loaded[0];
+        }, new TaskRunner.Callback<Integer>() {
+            @Override
+            public void succeeded(Integer count) {
+                resumeDatabaseSync();
+                history.setSuspended(false);
+                Metrics.get().recordSince("loadFromDatabase", started);
+                audit(AuditLog.Kind.IMPORT, database.getFile().toString(), count);
+                updateDisplayArea();
+                JOptionPane.showMessageDialog(MainFrame.this, "Из базы загружено студентов: " + count,
+                        "Успех", JOptionPane.INFORMATION_MESSAGE);
+            }
+
+            @Override
+            public void failed(Throwable error) {
+                resumeDatabaseSync();
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Ошибка при загрузке из базы: " + error.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            public void cancelled() {
+                resumeDatabaseSync();
+                history.setSuspended(false);
+                JOptionPane.showMessageDialog(MainFrame.this, "Загрузка отменена", "Отмена", JOptionPane.INFORMATION_MESSAGE);
+            }
+
+        });
+    }
+
+    /**
+     * Открывает окно просмотра базы. Студенты читаются страницами по мере прокрутки
+     * и в текущий список не попадают.
+     */
+    private void browseDatabase() {
+        AttendanceRepository database = openRepository();
+        if (database == null) {
+            return;
+        }
+        // Накопленные изменения передаются на запись до открытия окна
+        if (repositorySync != null) {
+            repositorySync.flush();
+        }
+        new DatabaseBrowserDialog(this, database, YearMonth.from(selectedMonth)).setVisible(true);
+    }
+
+    private void resumeDatabaseSync() {
+        if (repositorySync != null) {
+            repositorySync.setSuspended(false);
         }
     }
 
+    /**
+     * Включает или выключает запись изменений в базу по мере работы.
+     *
+     * @param item Пункт меню с признаком включения.
+     */
+    private void setDatabaseSync(JCheckBoxMenuItem item) {
+        if (!item.isSelected()) {
+            if (repositorySync != null) {
+                repositorySync.close();
+                repositorySync = null;
+            }
+            return;
+        }
+        AttendanceRepository database = openRepository();
+        if (database == null) {
+            item.setSelected(false);
+            return;
+        }
+        repositorySync = new RepositorySync(database, store);
+    }
+
+    /**
+     * Записывает событие импорта или экспорта в журнал аудита, если он открыт.
+     *
+     * @param kind   Вид события.
+     * @param detail Файл и подробности.
+     * @param count  Количество студентов.
+     */
+    private void audit(AuditLog.Kind kind, String detail, int count) {
+        if (auditLog != null) {
+            auditLog.record(kind, detail, count);
+        }
+    }
+
+    /**
+     * Показывает историю изменений отметок студента из журнала аудита.
+     */
+    private void showAuditHistory() {
+        if (auditLog == null) {
+            JOptionPane.showMessageDialog(this, "Журнал аудита недоступен", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String fullName = JOptionPane.showInputDialog(this, "ФИО студента:", "История изменений", JOptionPane.QUESTION_MESSAGE);
+        if (fullName == null || fullName.trim().isEmpty()) {
+            return;
+        }
+        List<AuditLog.Entry> entries;
+        try {
+            entries = auditLog.query(fullName, null, null);
+        } catch (IOException | DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Ошибка при чтении журнала аудита: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (entries.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Изменений не найдено", "История изменений", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String[] columns = {"Время", "Пользователь", "Событие", "Группа", "Дата", "Было", "Стало", "Подробности"};
+        Object[][] rows = new Object[entries.size()][];
+        for (int i = 0; i < entries.size(); i++) {
+            AuditLog.Entry entry = entries.get(i);
+            rows[i] = new Object[]{entry.getTime(), entry.getUser(), entry.getKind(), entry.getGroup(), entry.getDate(),
+                    entry.getOldState(), entry.getNewState(), entry.getDetail()};
+        }
+        JTable table = new JTable(rows, columns);
+        table.setEnabled(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(750, 350));
+        JOptionPane.showMessageDialog(this, scrollPane, "История изменений: " + fullName.trim(), JOptionPane.PLAIN_MESSAGE);
+    }
+
     /**
      * Сбрасывает фильтры и восстанавливает состояние таблицы.
      * <p>
-     * Этот метод сохраняет текущее состояние таблицы в список студентов перед сбросом фильтров.
-     * После сброса фильтров, отображение обновляется для отображения всех студентов.
+     * Отметки, измененные в таблице, уже записаны в студентов моделью таблицы,
+     * поэтому достаточно снова показать всех студентов.
      * </p>
      */
     private void resetFilters() {
-        saveTableStateToStudents(); // Сохраняем текущее состояние перед сбросом фильтров
         updateDisplayArea();
     }
 
@@ -806,143 +1542,20 @@ public class MainFrame extends JFrame {
     }
 
     /**
-     * Открывает карту студента для выбора даты посещения и отметки присутствия.
+     * Открывает перекличку: отметку всей группы за выбранную дату.
      * <p>
-     * Метод отображает окно с картой студента, где можно выбрать дату и отметить присутствие студента.
-     * Также показывается информация о студенте, и пользователь может отмечать студентов как присутствующих
-     * или отсутствующих на определенные даты.
+     * Отметки записываются в хранилище одним пакетом при сохранении, поэтому таблица главного окна
+     * обновляется один раз, а не после каждого студента.
      * </p>
      *
-     * @param subject название предмета, который отображается в диалоговом окне.
+     * @param subject название предмета, который отображается в заголовке окна.
      */
     private void openStudentMap(String subject) {
-        JDialog studentMapDialog = new JDialog(this, "Карта студента", true);
-        studentMapDialog.setSize(600, 500);
-        studentMapDialog.setLayout(new BorderLayout(10, 10));
-
-        // Панель информации о студенте
-        JPanel infoPanel = new JPanel(new BorderLayout(10, 10));
-        infoPanel.setBorder(BorderFactory.createTitledBorder("Информация о студенте"));
-
-        JLabel nameLabel = new JLabel("ФИО: ");
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        JLabel groupLabel = new JLabel("Группа: ");
-        groupLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        JLabel subjectLabel = new JLabel("Предмет: " + subject);
-        subjectLabel.setFont(new Font("Arial", Font.ITALIC, 14));
-
-        JPanel labelsPanel = new JPanel(new GridLayout(3, 1, 5, 5));
-        labelsPanel.add(nameLabel);
-        labelsPanel.add(groupLabel);
-        labelsPanel.add(subjectLabel);
-
-        infoPanel.add(labelsPanel, BorderLayout.CENTER);
-        studentMapDialog.add(infoPanel, BorderLayout.NORTH);
-
-        // Календарь для выбора даты
-        JCalendar calendar = new JCalendar();
-        calendar.setBorder(BorderFactory.createTitledBorder("Выберите дату"));
-        studentMapDialog.add(calendar, BorderLayout.CENTER);
-
-        // Панель кнопок
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
-        JButton presentButton = new JButton("Присутствовал");
-        JButton absentButton = new JButton("Отсутствовал");
-        JButton closeButton = new JButton("Закрыть");
-
-        presentButton.setBackground(new Color(102, 255, 102));
-        presentButton.setForeground(Color.WHITE);
-        absentButton.setBackground(new Color(255, 102, 102));
-        absentButton.setForeground(Color.WHITE);
-        closeButton.setBackground(Color.LIGHT_GRAY);
-
-        buttonPanel.add(presentButton);
-        buttonPanel.add(absentButton);
-        buttonPanel.add(closeButton);
-
-        studentMapDialog.add(buttonPanel, BorderLayout.SOUTH);
-
-        // Список студентов
-        List<Student> studentList = new ArrayList<>(students.values());
-        if (studentList.isEmpty()) {
+        if (store.size() == 0) {
             JOptionPane.showMessageDialog(this, "Список студентов пуст!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             return;
         }
-
-        final int[] currentIndex = {0};
-
-        // Метод для обновления информации о текущем студенте
-        Runnable updateStudentInfo = () -> {
-            if (currentIndex[0] < studentList.size()) {
-                Student currentStudent = studentList.get(currentIndex[0]);
-                nameLabel.setText("ФИО: " + currentStudent.getFullName());
-                groupLabel.setText("Группа: " + currentStudent.getGroup());
-            } else {
-                JOptionPane.showMessageDialog(studentMapDialog, "Все студенты обработаны!", "Завершено", JOptionPane.INFORMATION_MESSAGE);
-                studentMapDialog.dispose();
-            }
-        };
-
-        updateStudentInfo.run();
-
-        // Обработчики кнопок
-        ActionListener markAttendance = e -> {
-            if (currentIndex[0] < studentList.size()) {
-                Student currentStudent = studentList.get(currentIndex[0]);
-                String selectedDate = new SimpleDateFormat("yyyy-MM-dd").format(calendar.getDate());
-
-                if (e.getSource() == presentButton) {
-                    currentStudent.addAttendanceDate(selectedDate);
-                    JOptionPane.showMessageDialog(studentMapDialog, "Отмечено 'Присутствовал' для даты " + selectedDate, "Успех", JOptionPane.INFORMATION_MESSAGE);
-                } else if (e.getSource() == absentButton) {
-                    currentStudent.addAbsenceDate(selectedDate);
-                    JOptionPane.showMessageDialog(studentMapDialog, "Отмечено 'Отсутствовал' для даты " + selectedDate, "Успех", JOptionPane.INFORMATION_MESSAGE);
-                }
-
-                currentIndex[0]++;
-                updateStudentInfo.run();
-                updateDisplayArea(); // Обновляем таблицу в главном окне
-            }
-        };
-
-        presentButton.addActionListener(markAttendance);
-        absentButton.addActionListener(markAttendance);
-
-        closeButton.addActionListener(e -> studentMapDialog.dispose());
-
-        studentMapDialog.setLocationRelativeTo(this);
-        studentMapDialog.setVisible(true);
-    }
-
-
-
-
-    // Метод для обновления таблицы
-    private void updateTable(Student student, String mark) {
-        String fullName = student.getFullName();
-        int rowCount = tableModel.getRowCount();
-        LocalDate today = LocalDate.now();
-        String currentDateColumn = today.format(java.time.format.DateTimeFormatter.ofPattern("dd.MM"));
-
-        for (int row = 0; row < rowCount; row++) {
-            if (tableModel.getValueAt(row, 0).equals(fullName)) {
-                int colCount = tableModel.getColumnCount();
-                for (int col = 2; col < colCount; col++) {
-                    if (tableModel.getColumnName(col).equals(currentDateColumn)) {
-                        tableModel.setValueAt(mark, row, col);
-
-                        // Обновляем данные в объекте Student
-                        if (mark.equals("✓")) {
-                            student.addAttendanceDate(today.toString());
-                        } else if (mark.equals("✗")) {
-                            student.addAbsenceDate(today.toString());
-                        }
-
-                        return; // Обновляем только одну строку
-                    }
-                }
-            }
-        }
+        new RollCallDialog(this, store, subject).setVisible(true);
     }
 
 
@@ -1045,128 +1658,50 @@ public class MainFrame extends JFrame {
 */
 
     /**
-     * Генерирует массив названий колонок для таблицы, включая ФИО, группу, посещения и даты для выбранного месяца.
+     * Обновляет таблицу для выбранного месяца, изменяя соответствие колонок дням.
      *
-     * @param month месяц, для которого генерируются названия колонок
-     * @return массив строк, представляющих названия колонок
+     * @param month месяц, для которого обновляется таблица
      */
-    private String[] generateColumnNames(LocalDate month) {
-        List<String> columnNames = new ArrayList<>();
-        columnNames.add("ФИО");
-        columnNames.add("Группа");
-        columnNames.add("Посещения"); // Новая колонка для подсчёта посещений
-
-        LocalDate startOfMonth = month.withDayOfMonth(1);
-        LocalDate endOfMonth = month.withDayOfMonth(month.lengthOfMonth());
-
-        for (LocalDate date = startOfMonth; !date.isAfter(endOfMonth); date = date.plusDays(1)) {
-            columnNames.add(date.format(java.time.format.DateTimeFormatter.ofPattern("dd.MM")));
+    private void updateTableForMonth(LocalDate month) {
+        YearMonth target = YearMonth.from(month);
+        MonthView view = monthViews.get(target);
+        if (view != null) {
+            tableModel.setMonth(view); // Итоги уже посчитаны в фоне
+        } else {
+            tableModel.setMonth(target); // Меняются только колонки, итоги считаются при отрисовке
         }
-        return columnNames.toArray(new String[0]);
+        heatMap.setYear(target.getYear());
+        monthViews.prefetchAround(target);
     }
 
     /**
-     * Добавляет строку с информацией о студенте в таблицу, включая ФИО, группу и отметки о посещениях за каждый день месяца.
+     * Перейти к месяцу, обновив поля выбора месяца и года.
      *
-     * @param student студент, чьи данные необходимо добавить в таблицу
+     * @param month Месяц.
      */
-    private void addStudentRowToTable(Student student) {
-        List<String> row = new ArrayList<>();
-        row.add(student.getFullName());
-        row.add(student.getGroup());
-
-        LocalDate today = LocalDate.now();
-        LocalDate startOfMonth = today.withDayOfMonth(1);
-        LocalDate endOfMonth = today.withDayOfMonth(today.lengthOfMonth());
-
-        for (LocalDate date = startOfMonth; !date.isAfter(endOfMonth); date = date.plusDays(1)) {
-            String formattedDate = date.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            if (student.getAttendanceDates().contains(formattedDate)) {
-                row.add("✓");
-            } else if (student.getAbsenceDates().contains(formattedDate)) {
-                row.add("✗");
-            } else {
-                row.add("");
-            }
+    private void showMonth(YearMonth month) {
+        updatingMonthControls = true;
+        try {
+            monthComboBox.setSelectedIndex(month.getMonthValue() - 1);
+            yearSpinner.setValue(month.getYear());
+        } finally {
+            updatingMonthControls = false;
         }
-
-        tableModel.addRow(row.toArray());
+        onMonthControlsChanged();
     }
 
     /**
-     * Сохраняет состояние таблицы в объектах студентов, обновляя их даты посещений и отсутствий.
-     * Использует фамилию студента для поиска в списке студентов.
+     * Обработать изменение месяца или года в полях выбора.
      */
-    private void saveTableStateToStudents() {
-        // Сохраняем состояние таблицы в объекте Student
-        int rowCount = tableModel.getRowCount();
-        int colCount = tableModel.getColumnCount();
-
-        for (int row = 0; row < rowCount; row++) {
-            String fullName = tableModel.getValueAt(row, 0).toString();
-            Student student = students.get(fullName.split(" ")[0]); // Используем фамилию как ключ
-
-            if (student != null) {
-                LocalDate today = LocalDate.now();
-                LocalDate startOfMonth = today.withDayOfMonth(1);
-
-                // Очищаем старые данные и обновляем новые
-                student.clearAttendance();
-
-                for (int col = 2; col < colCount; col++) { // Колонки с датами начинаются с 2
-                    String date = startOfMonth.plusDays(col - 2).format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                    String mark = tableModel.getValueAt(row, col).toString();
-
-                    if ("✓".equals(mark)) {
-                        student.addAttendanceDate(date);
-                    } else if ("✗".equals(mark)) {
-                        student.addAbsenceDate(date);
-                    }
-                }
-            }
+    private void onMonthControlsChanged() {
+        if (updatingMonthControls) {
+            return;
+        }
+        LocalDate month = LocalDate.of((Integer) yearSpinner.getValue(), monthComboBox.getSelectedIndex() + 1, 1);
+        if (!month.equals(selectedMonth)) {
+            selectedMonth = month;
+            updateTableForMonth(selectedMonth);
         }
-    }
-
-    /**
-     * Обновляет таблицу для выбранного месяца, сохраняя текущие данные и изменяя заголовки колонок.
-     *
-     * @param month месяц, для которого обновляется таблица
-     */
-    private void updateTableForMonth(LocalDate month) {
-        saveTableStateToStudents(); // Сохраняем текущие данные
-        tableModel.setColumnIdentifiers(generateColumnNames(month)); // Обновляем заголовки колонок
-        updateDisplayArea();
-    }
-
-    /**
-     * Возвращает кастомный рендерер для ячеек таблицы, который окрашивает ячейки в зависимости от отметок о посещении.
-     *
-     * @return рендерер для ячеек таблицы
-     */
-    private TableCellRenderer getCustomTableCellRenderer() {
-        return new DefaultTableCellRenderer() {
-            @Override
-            public Component getTableCellRendererComponent(JTable table, Object value,
-                                                           boolean isSelected, boolean hasFocus,
-                                                           int row, int column) {
-                Component cell = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-
-                if (value != null) {
-                    String cellValue = value.toString();
-                    if ("✓".equals(cellValue)) {
-                        cell.setBackground(new Color(102, 255, 102)); // Зеленый цвет
-                        cell.setForeground(Color.BLACK);
-                    } else if ("✗".equals(cellValue)) {
-                        cell.setBackground(new Color(255, 102, 102)); // Красный цвет
-                        cell.setForeground(Color.BLACK);
-                    } else {
-                        cell.setBackground(Color.WHITE); // Обычный фон для пустых ячеек
-                        cell.setForeground(Color.BLACK);
-                    }
-                }
-                return cell;
-            }
-        };
     }
 
     /**
@@ -0,0 +1,419 @@
+package com.example;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики работы приложения: гистограммы длительности операций, счетчики и показатели.
+ * <p>
+ * Гистограмма хранит количество замеров по корзинам степеней двойки наносекунд (до ≈ 37 минут),
+ * поэтому запись замера - одно атомарное увеличение без блокировок и выделения памяти,
+ * а процентили получаются с точностью до корзины. Счетчики построены на {@link LongAdder},
+ * показатели (размер кучи, количество строк таблицы) вычисляются в момент чтения.
+ * </p>
+ * Метрики доступны через JMX как {@code com.example:type=Metrics} ({@link MetricsMXBean}), в окне
+ * диагностики ({@link DiagnosticsDialog}) и в текстовом файле ({@link #dumpTo(Path)}).
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class Metrics {
+
+    /**
+     * Имя MBean метрик.
+     */
+    public static final String OBJECT_NAME = "com.example:type=Metrics";
+
+    private static final int BUCKETS = 42; // 2^41 нс ≈ 37 минут; все, что дольше, попадает в последнюю корзину
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Гистограмма длительностей одной операции.
+     */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private volatile long maxNanos;
+
+        /**
+         * Записать замер.
+         *
+         * @param nanos Длительность в наносекундах.
+         */
+        public void record(long nanos) {
+            long value = Math.max(1, nanos);
+            int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(value));
+            buckets.incrementAndGet(bucket);
+            totalNanos.add(value);
+            if (value > maxNanos) {
+                maxNanos = value; // Гонка допустима: максимум приблизительный
+            }
+        }
+
+        /**
+         * Получить сводку гистограммы.
+         *
+         * @return Снимок: количество, среднее, процентили и максимум.
+         */
+        public Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+                total += copy[i];
+            }
+            double mean = total == 0 ? 0 : totalNanos.sum() / (double) total / 1_000_000;
+            double max = maxNanos / 1_000_000.0;
+            // Граница корзины может превышать наблюдавшийся максимум
+            return new Snapshot(total, mean, Math.min(max, percentile(copy, total, 0.50)),
+                    Math.min(max, percentile(copy, total, 0.95)), Math.min(max, percentile(copy, total, 0.99)), max);
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            totalNanos.reset();
+            maxNanos = 0;
+        }
+
+        /**
+         * Верхняя граница корзины, в которую попадает процентиль, в миллисекундах.
+         */
+        private static double percentile(long[] buckets, long total, double fraction) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return (1L << (i + 1)) / 1_000_000.0;
+                }
+            }
+            return (1L << BUCKETS) / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Снимок гистограммы (миллисекунды). Через JMX передается как {@code CompositeData}.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        /**
+         * Создать снимок.
+         *
+         * @param count      Количество замеров.
+         * @param meanMillis Средняя длительность.
+         * @param p50Millis  Медиана.
+         * @param p95Millis  95-й процентиль.
+         * @param p99Millis  99-й процентиль.
+         * @param maxMillis  Максимум.
+         */
+        @ConstructorProperties({"count", "meanMillis", "p50Millis", "p95Millis", "p99Millis", "maxMillis"})
+        public Snapshot(long count, double meanMillis, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        /**
+         * @return Количество замеров.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Средняя длительность.
+         */
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        /**
+         * @return Медиана (верхняя граница корзины).
+         */
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        /**
+         * @return 95-й процентиль (верхняя граница корзины).
+         */
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        /**
+         * @return 99-й процентиль (верхняя граница корзины).
+         */
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        /**
+         * @return Максимальная длительность.
+         */
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+
+    /**
+     * Интерфейс MBean метрик.
+     */
+    public interface MetricsMXBean {
+        /**
+         * @return Снимки гистограмм по имени операции.
+         */
+        Map<String, Snapshot> getHistograms();
+
+        /**
+         * @return Значения счетчиков.
+         */
+        Map<String, Long> getCounters();
+
+        /**
+         * @return Текущие значения показателей.
+         */
+        Map<String, Long> getGauges();
+
+        /**
+         * Записать метрики в текстовый файл.
+         *
+         * @param path Путь к файлу.
+         * @return Абсолютный путь записанного файла.
+         * @throws IOException при ошибке записи.
+         */
+        String dump(String path) throws IOException;
+
+        /**
+         * Обнулить гистограммы и счетчики.
+         */
+        void reset();
+    }
+
+    private Metrics() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("heap.usedMb", () -> memory.getHeapMemoryUsage().getUsed() >> 20);
+        gauge("heap.committedMb", () -> memory.getHeapMemoryUsage().getCommitted() >> 20);
+        gauge("heap.maxMb", () -> memory.getHeapMemoryUsage().getMax() >> 20);
+    }
+
+    /**
+     * Получить метрики приложения.
+     *
+     * @return Общий экземпляр.
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Зарегистрировать MBean {@link #OBJECT_NAME} в платформенном MBean-сервере.
+     * Повторная регистрация ничего не делает.
+     *
+     * @throws JMException при ошибке регистрации.
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Уже зарегистрирован
+        }
+    }
+
+    /**
+     * Получить гистограмму операции, создав ее при первом обращении.
+     *
+     * @param name Имя операции.
+     * @return Гистограмма.
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Записать длительность операции, начатой в момент {@code startedNanos}.
+     *
+     * @param name         Имя операции.
+     * @param startedNanos Значение {@link System#nanoTime()} в начале операции.
+     */
+    public void recordSince(String name, long startedNanos) {
+        histogram(name).record(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Увеличить счетчик.
+     *
+     * @param name  Имя счетчика.
+     * @param delta Приращение.
+     */
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Зарегистрировать показатель. Функция вызывается при каждом чтении метрик
+     * (в том числе из потока JMX), поэтому должна быть быстрой и потокобезопасной.
+     *
+     * @param name  Имя показателя.
+     * @param value Функция значения.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Получить снимки всех гистограмм.
+     *
+     * @return Снимки по имени, в алфавитном порядке.
+     */
+    public Map<String, Snapshot> histogramSnapshots() {
+        Map<String, Snapshot> result = new TreeMap<>();
+        histograms.forEach((name, histogram) -> result.put(name, histogram.snapshot()));
+        return result;
+    }
+
+    /**
+     * Получить значения счетчиков.
+     *
+     * @return Значения по имени, в алфавитном порядке.
+     */
+    public Map<String, Long> counterValues() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, counter) -> result.put(name, counter.sum()));
+        return result;
+    }
+
+    /**
+     * Получить текущие значения показателей.
+     *
+     * @return Значения по имени, в алфавитном порядке; -1, если показатель не удалось вычислить.
+     */
+    public Map<String, Long> gaugeValues() {
+        Map<String, Long> result = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            long value;
+            try {
+                value = gauge.getAsLong();
+            } catch (RuntimeException e) {
+                value = -1;
+            }
+            result.put(name, value);
+        });
+        return result;
+    }
+
+    /**
+     * Обнулить гистограммы и счетчики. Показатели не меняются.
+     */
+    public void reset() {
+        histograms.values().forEach(Histogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Сформировать текстовый отчет по всем метрикам.
+     *
+     * @return Отчет.
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder(1024);
+        text.append("Метрики на ").append(LocalDateTime.now().withNano(0)).append(System.lineSeparator());
+        text.append(System.lineSeparator()).append("Показатели:").append(System.lineSeparator());
+        gaugeValues().forEach((name, value) ->
+                text.append(String.format("  %-28s %,d%n", name, value)));
+        text.append(System.lineSeparator()).append("Счетчики:").append(System.lineSeparator());
+        counterValues().forEach((name, value) ->
+                text.append(String.format("  %-28s %,d%n", name, value)));
+        text.append(System.lineSeparator()).append("Операции, мс:").append(System.lineSeparator());
+        text.append(String.format("  %-28s %8s %10s %10s %10s %10s %10s%n", "", "кол-во", "среднее", "p50", "p95", "p99", "макс"));
+        histogramSnapshots().forEach((name, s) -> text.append(String.format("  %-28s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name, s.getCount(), s.getMeanMillis(), s.getP50Millis(), s.getP95Millis(), s.getP99Millis(), s.getMaxMillis())));
+        return text.toString();
+    }
+
+    /**
+     * Записать отчет {@link #dump()} в файл.
+     *
+     * @param file Файл.
+     * @throws IOException при ошибке записи.
+     */
+    public void dumpTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(dump());
+        }
+    }
+
+    /**
+     * Реализация MBean поверх общего экземпляра.
+     */
+    private final class MBean implements MetricsMXBean {
+        @Override
+        public Map<String, Snapshot> getHistograms() {
+            return histogramSnapshots();
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return counterValues();
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return gaugeValues();
+        }
+
+        @Override
+        public String dump(String path) throws IOException {
+            Path file = Paths.get(path);
+            dumpTo(file);
+            return file.toAbsolutePath().toString();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.this.reset();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example;
+
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Заранее подготовленное представление месяца для таблицы: заголовки колонок дней
+ * и количество присутствий каждого студента (по номеру в хранилище).
+ * <p>
+ * Хранилище и отметки студентов принадлежат потоку интерфейса, поэтому итоги считаются в нем же,
+ * порциями по {@link #CHUNK_SIZE} студентов: фоновый поток только передает порции и ждет их.
+ * Представление запоминает счетчик изменений хранилища, прочитанный вместе с итогами. Если хранилище
+ * изменилось между порциями, построение отбрасывается. Использовать представление можно, только пока
+ * счетчик не изменился ({@link #isValidFor(AttendanceStore)}); отдельные отметки к готовым
+ * представлениям применяет {@link MonthViewCache}.
+ * </p>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class MonthView {
+
+    /**
+     * Количество студентов, итоги которых считаются за одно обращение к потоку интерфейса.
+     */
+    public static final int CHUNK_SIZE = 5000;
+
+    private static final DateTimeFormatter DAY_HEADER_FORMAT = DateTimeFormatter.ofPattern("dd.MM");
+
+    /**
+     * Состояние построения. Поля меняются только в потоке интерфейса; фоновый поток читает их
+     * после {@link SwingUtilities#invokeAndWait(Runnable)}.
+     */
+    private static final class Builder implements Runnable {
+        private final AttendanceStore store;
+        private final long firstDay;
+        private final long lastDay;
+        private int[] counts;
+        private int modCount;
+        private int next;
+        private boolean changed;
+
+        Builder(AttendanceStore store, YearMonth month) {
+            this.store = store;
+            this.firstDay = month.atDay(1).toEpochDay();
+            this.lastDay = month.atEndOfMonth().toEpochDay();
+        }
+
+        /**
+         * Посчитать следующую порцию. Вызывается в потоке интерфейса.
+         */
+        @Override
+        public void run() {
+            if (counts == null) {
+                modCount = store.getModCount();
+                counts = new int[store.size()];
+            } else if (store.getModCount() != modCount) {
+                changed = true; // Номера или отметки уже посчитанных студентов могли измениться
+                return;
+            }
+            int end = Math.min(counts.length, next + CHUNK_SIZE);
+            for (; next < end; next++) {
+                counts[next] = store.get(next).countPresent(firstDay, lastDay);
+            }
+        }
+
+        boolean isDone() {
+            return counts != null && next >= counts.length;
+        }
+    }
+
+    private final YearMonth month;
+    private final long firstDay;
+    private final String[] dayHeaders;
+    private final int[] presentCounts;
+    private int modCount;
+
+    private MonthView(YearMonth month, int[] presentCounts, int modCount) {
+        this.month = month;
+        LocalDate start = month.atDay(1);
+        this.firstDay = start.toEpochDay();
+        this.dayHeaders = new String[month.lengthOfMonth()];
+        for (int i = 0; i < dayHeaders.length; i++) {
+            dayHeaders[i] = start.plusDays(i).format(DAY_HEADER_FORMAT);
+        }
+        this.presentCounts = presentCounts;
+        this.modCount = modCount;
+    }
+
+    /**
+     * Создать представление только с заголовками, без посчитанных итогов.
+     *
+     * @param month Месяц.
+     * @return Представление, для которого {@link #hasCounts()} возвращает {@code false}.
+     */
+    public static MonthView headersOnly(YearMonth month) {
+        return new MonthView(month, null, -1);
+    }
+
+    /**
+     * Построить представление месяца. Вызывается в фоновом потоке: итоги считаются порциями
+     * в потоке интерфейса, а между порциями окно обрабатывает события.
+     *
+     * @param store Хранилище студентов.
+     * @param month Месяц.
+     * @return Представление или {@code null}, если хранилище изменилось во время построения
+     * или поток прерван.
+     */
+    public static MonthView build(AttendanceStore store, YearMonth month) {
+        Builder builder = new Builder(store, month);
+        try {
+            while (!builder.changed && !builder.isDone()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                if (SwingUtilities.isEventDispatchThread()) {
+                    builder.run();
+                } else {
+                    SwingUtilities.invokeAndWait(builder);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Ошибка подсчета итогов месяца " + month, e.getCause());
+        }
+        return builder.changed ? null : new MonthView(month, builder.counts, builder.modCount);
+    }
+
+    /**
+     * Получить месяц.
+     *
+     * @return Месяц.
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Получить номер первого дня месяца.
+     *
+     * @return Номер дня ({@link LocalDate#toEpochDay()}).
+     */
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Получить количество дней месяца.
+     *
+     * @return Количество дней.
+     */
+    public int getDayCount() {
+        return dayHeaders.length;
+    }
+
+    /**
+     * Получить заголовок колонки дня.
+     *
+     * @param dayOffset Номер дня от начала месяца (с нуля).
+     * @return Заголовок "дд.мм".
+     */
+    public String getDayHeader(int dayOffset) {
+        return dayHeaders[dayOffset];
+    }
+
+    /**
+     * Проверить, посчитаны ли итоги.
+     *
+     * @return {@code true}, если представление построено методом {@link #build(AttendanceStore, YearMonth)}.
+     */
+    public boolean hasCounts() {
+        return presentCounts != null;
+    }
+
+    /**
+     * Проверить, соответствуют ли итоги текущему состоянию хранилища.
+     *
+     * @param store Хранилище, для которого строилось представление.
+     * @return {@code true}, если с момента построения хранилище не менялось.
+     */
+    public boolean isValidFor(AttendanceStore store) {
+        return presentCounts != null && modCount == store.getModCount();
+    }
+
+    /**
+     * Получить количество присутствий студента.
+     *
+     * @param storeIndex Номер студента в хранилище.
+     * @return Количество присутствий за месяц.
+     */
+    public int getPresentCount(int storeIndex) {
+        return presentCounts[storeIndex];
+    }
+
+    /**
+     * Учесть изменение одной отметки, уже отраженное в хранилище.
+     * Если до этого изменения представление было актуальным, оно остается актуальным.
+     *
+     * @param store      Хранилище.
+     * @param storeIndex Номер студента.
+     * @param epochDay   День отметки.
+     * @param oldState   Прежнее состояние.
+     * @param newState   Новое состояние.
+     */
+    void onStateChanged(AttendanceStore store, int storeIndex, long epochDay,
+                        AttendanceState oldState, AttendanceState newState) {
+        if (presentCounts == null || modCount != store.getModCount() - 1) {
+            return;
+        }
+        if (storeIndex >= 0 && epochDay >= firstDay && epochDay < firstDay + dayHeaders.length) {
+            if (oldState == AttendanceState.PRESENT) {
+                presentCounts[storeIndex]--;
+            }
+            if (newState == AttendanceState.PRESENT) {
+                presentCounts[storeIndex]++;
+            }
+        }
+        modCount = store.getModCount();
+    }
+
+    /**
+     * Учесть изменение хранилища, не влияющее на итоги месяца (например, смену группы).
+     *
+     * @param store Хранилище.
+     */
+    void onUnrelatedChange(AttendanceStore store) {
+        onStateChanged(store, -1, 0, AttendanceState.UNKNOWN, AttendanceState.UNKNOWN);
+    }
+}
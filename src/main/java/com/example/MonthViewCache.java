@@ -0,0 +1,158 @@
+package com.example;
+
+import javax.swing.SwingUtilities;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш представлений месяцев с фоновой подготовкой соседних месяцев.
+ * <p>
+ * После перехода на месяц {@link #prefetchAround(YearMonth)} планирует построение представлений
+ * для него, предыдущего и следующего месяцев, поэтому при листании месяцев таблица сразу получает
+ * готовые итоги. Фоновый поток планирует построение, а сами итоги считаются порциями в потоке
+ * интерфейса ({@link MonthView#build(AttendanceStore, YearMonth)}). Построение откладывается на {@link #PREFETCH_DELAY_MILLIS} мс и
+ * перепланируется при каждом переходе, чтобы быстрое листание не запускало лишних вычислений.
+ * </p>
+ * Отметки, поставленные после построения, применяются к готовым представлениям по событиям
+ * хранилища; добавление и удаление студентов делает представления неактуальными, и они
+ * строятся заново. Методы, кроме {@link #get(YearMonth)}, вызываются из потока интерфейса.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class MonthViewCache implements AttendanceStore.Listener, AutoCloseable {
+
+    /**
+     * Задержка перед фоновым построением представлений.
+     */
+    public static final long PREFETCH_DELAY_MILLIS = 150;
+
+    private final AttendanceStore store;
+    private final Map<YearMonth, MonthView> views = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduled;
+    private volatile YearMonth center;
+
+    /**
+     * Создать кэш и подписать его на хранилище. Подписка должна выполняться раньше,
+     * чем у {@link AttendanceTableModel}, чтобы модель видела уже обновленные итоги.
+     *
+     * @param store Хранилище студентов.
+     */
+    public MonthViewCache(AttendanceStore store) {
+        this.store = store;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "month-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        store.addListener(this);
+    }
+
+    /**
+     * Получить готовое актуальное представление месяца.
+     *
+     * @param month Месяц.
+     * @return Представление или {@code null}, если оно еще не построено или устарело.
+     */
+    public MonthView get(YearMonth month) {
+        MonthView view = views.get(month);
+        return view != null && view.isValidFor(store) ? view : null;
+    }
+
+    /**
+     * Запланировать построение представлений месяца и соседних с ним месяцев.
+     * Представления остальных месяцев удаляются.
+     *
+     * @param month Текущий месяц.
+     */
+    public void prefetchAround(YearMonth month) {
+        center = month;
+        views.keySet().removeIf(key -> Math.abs(key.until(month, ChronoUnit.MONTHS)) > 1);
+        schedule();
+    }
+
+    /**
+     * Остановить фоновое построение.
+     */
+    @Override
+    public void close() {
+        store.removeListener(this);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        schedule();
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        schedule();
+    }
+
+    @Override
+    public void storeCleared() {
+        schedule();
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        boolean stale = false;
+        for (MonthView view : views.values()) {
+            view.onStateChanged(store, student.getStoreIndex(), epochDay, oldState, newState);
+            stale |= !view.isValidFor(store);
+        }
+        if (stale) {
+            schedule(); // Представление было построено по устаревшим данным
+        }
+    }
+
+    @Override
+    public void groupChanged(Student student, String oldGroup) {
+        for (MonthView view : views.values()) {
+            view.onUnrelatedChange(store);
+        }
+    }
+
+    private void schedule() {
+        if (center == null || executor.isShutdown()) {
+            return;
+        }
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = executor.schedule(this::buildWindow, PREFETCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Построить недостающие представления: сначала текущий месяц, затем соседние.
+     */
+    private void buildWindow() {
+        YearMonth month = center;
+        for (YearMonth candidate : new YearMonth[]{month, month.plusMonths(1), month.minusMonths(1)}) {
+            if (Thread.currentThread().isInterrupted() || month != center) {
+                return; // Пользователь уже перешел на другой месяц
+            }
+            if (get(candidate) == null) {
+                MonthView view = MonthView.build(store, candidate);
+                if (view != null) {
+                    views.put(candidate, view);
+                }
+                if (view == null || !view.isValidFor(store)) {
+                    // Хранилище изменилось во время построения или до того, как представление попало в кэш
+                    if (!Thread.currentThread().isInterrupted()) {
+                        SwingUtilities.invokeLater(this::schedule);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий словарь частей ФИО.
+ * <p>
+ * Имена и отчества (и многие фамилии) повторяются у тысяч студентов, а при загрузке из Excel
+ * каждая строка дает новую копию той же строки. Словарь возвращает для равных строк один
+ * и тот же экземпляр, поэтому повторяющиеся части ФИО хранятся в памяти один раз.
+ * </p>
+ * Словарь потокобезопасен: его используют параллельные загрузки файлов.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class NameDictionary {
+
+    private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<>(1024);
+
+    private NameDictionary() {
+    }
+
+    /**
+     * Получить общий экземпляр строки.
+     *
+     * @param name Часть ФИО (может быть {@code null}).
+     * @return Экземпляр из словаря, равный {@code name}; {@code null}, если передан {@code null}.
+     */
+    public static String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String shared = NAMES.putIfAbsent(name, name);
+        return shared != null ? shared : name;
+    }
+
+    /**
+     * Получить количество различных строк в словаре.
+     *
+     * @return Размер словаря.
+     */
+    public static int size() {
+        return NAMES.size();
+    }
+}
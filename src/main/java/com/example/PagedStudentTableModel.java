@@ -0,0 +1,321 @@
+package com.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Модель таблицы студентов базы данных ({@link AttendanceRepository}), загружаемых страницами по мере прокрутки.
+ * <p>
+ * Количество строк берется запросом {@code COUNT(*)}, сами студенты в память заранее не читаются.
+ * Когда таблица отрисовывает строку незагруженной страницы, модель возвращает заглушку и ставит
+ * страницу в очередь фонового потока {@code db-pages}; вместе с ней загружается следующая страница,
+ * чтобы прокрутка вниз не упиралась в заглушки. Готовая страница попадает в кэш последних
+ * {@link #CACHE_PAGES} страниц, и таблица перерисовывает только ее строки. Страницы, от которых
+ * пользователь успел прокрутить далеко, пока они ждали в очереди, не загружаются.
+ * </p>
+ * <p>
+ * Для каждой прочитанной страницы запоминаются идентификаторы ее первого и последнего студента,
+ * и следующая загрузка начинается поиском по ключу от ближайшей такой страницы, начала или конца
+ * базы ({@link AttendanceRepository#loadPageAfter(long, int, int, long, long)},
+ * {@link AttendanceRepository#loadPageBefore(long, int, int, long, long)}). Поэтому прокрутка
+ * в любом месте базы стоит столько же, сколько в начале, переход в конец списка - столько же,
+ * сколько первая страница, а смещение в запросе не превышает половины расстояния до известных страниц.
+ * </p>
+ * Отметки читаются только за отображаемый месяц. Модель только для чтения; методы вызываются в потоке событий Swing.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class PagedStudentTableModel extends AbstractTableModel implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(PagedStudentTableModel.class);
+
+    /**
+     * Количество студентов на странице.
+     */
+    public static final int PAGE_SIZE = 200;
+
+    /**
+     * Количество страниц в кэше.
+     */
+    public static final int CACHE_PAGES = 20;
+
+    /**
+     * Текст ячейки ФИО, пока страница загружается.
+     */
+    public static final String LOADING_TEXT = "Загрузка…";
+
+    // Страницы дальше этого расстояния от последней отрисованной не загружаются
+    private static final int WANTED_DISTANCE = 3;
+
+    private final AttendanceRepository repository;
+    private final ExecutorService loader;
+
+    // Последние прочитанные страницы в порядке обращения
+    private final Map<Integer, List<Student>> pages = new LinkedHashMap<Integer, List<Student>>(CACHE_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Student>> eldest) {
+            return size() > CACHE_PAGES;
+        }
+    };
+    private final Set<Integer> pending = new HashSet<>();
+
+    // Идентификаторы первого и последнего студента каждой прочитанной страницы; читаются потоком загрузки
+    private final ConcurrentSkipListMap<Integer, Long> firstIds = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Long> lastIds = new ConcurrentSkipListMap<>();
+
+    private MonthView view;
+    private int rowCount;
+    // Увеличивается при смене месяца или перечитывании базы: загруженные раньше страницы отбрасываются
+    private volatile int generation;
+    private volatile int lastTouchedPage;
+
+    /**
+     * Создать модель для базы и месяца. Количество строк запрашивается в {@link #reload()}.
+     *
+     * @param repository База данных.
+     * @param month      Отображаемый месяц.
+     */
+    public PagedStudentTableModel(AttendanceRepository repository, YearMonth month) {
+        this.repository = repository;
+        this.view = MonthView.headersOnly(month);
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pages");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Перечитать количество студентов и сбросить загруженные страницы.
+     * Запрос выполняется в фоновом потоке, таблица обновляется по его завершении.
+     */
+    public void reload() {
+        int expected = ++generation;
+        loader.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                int count = repository.countStudents();
+                Metrics.get().recordSince("db.count", started);
+                SwingUtilities.invokeLater(() -> {
+                    if (generation == expected) {
+                        pages.clear();
+                        pending.clear();
+                        firstIds.clear();
+                        lastIds.clear();
+                        rowCount = count;
+                        fireTableDataChanged();
+                    }
+                });
+            } catch (SQLException e) {
+                LOGGER.error("Ошибка подсчета студентов в базе", e);
+            }
+        });
+    }
+
+    /**
+     * Получить отображаемый месяц.
+     *
+     * @return Месяц.
+     */
+    public YearMonth getMonth() {
+        return view.getMonth();
+    }
+
+    /**
+     * Сменить отображаемый месяц. Страницы перечитываются с отметками нового месяца.
+     *
+     * @param month Месяц.
+     */
+    public void setMonth(YearMonth month) {
+        if (month.equals(view.getMonth())) {
+            return;
+        }
+        view = MonthView.headersOnly(month);
+        generation++;
+        pages.clear();
+        pending.clear();
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Получить количество загруженных в память студентов.
+     *
+     * @return Количество студентов в кэше страниц.
+     */
+    public int getCachedRowCount() {
+        int count = 0;
+        for (List<Student> page : pages.values()) {
+            count += page.size();
+        }
+        return count;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return AttendanceTableModel.FIRST_DAY_COLUMN + view.getDayCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        switch (column) {
+            case 0:
+                return "ФИО";
+            case 1:
+                return "Группа";
+            case 2:
+                return "Посещения";
+            default:
+                return view.getDayHeader(column - AttendanceTableModel.FIRST_DAY_COLUMN);
+        }
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if (column >= AttendanceTableModel.FIRST_DAY_COLUMN) {
+            return AttendanceState.class;
+        }
+        return column == 2 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Student student = getStudentAt(row);
+        if (student == null) {
+            return column == 0 ? LOADING_TEXT : null;
+        }
+        long firstDay = view.getFirstDay();
+        switch (column) {
+            case 0:
+                return student.getFullName();
+            case 1:
+                return student.getGroup();
+            case 2:
+                return student.countPresent(firstDay, firstDay + view.getDayCount() - 1);
+            default:
+                return student.getState(firstDay + column - AttendanceTableModel.FIRST_DAY_COLUMN);
+        }
+    }
+
+    /**
+     * Получить студента строки, если его страница уже загружена; иначе запросить загрузку.
+     *
+     * @param row Номер строки.
+     * @return Студент или {@code null}, если страница еще загружается.
+     */
+    public Student getStudentAt(int row) {
+        int page = row / PAGE_SIZE;
+        lastTouchedPage = page;
+        List<Student> students = pages.get(page);
+        if (students == null) {
+            request(page);
+            return null;
+        }
+        // Следующая страница загружается заранее
+        if ((page + 1) * PAGE_SIZE < rowCount && !pages.containsKey(page + 1)) {
+            request(page + 1);
+        }
+        int index = row - page * PAGE_SIZE;
+        return index < students.size() ? students.get(index) : null;
+    }
+
+    private void request(int page) {
+        if (!pending.add(page)) {
+            return;
+        }
+        int expected = generation;
+        int count = rowCount;
+        long fromDay = view.getFirstDay();
+        long toDay = fromDay + view.getDayCount() - 1;
+        loader.execute(() -> {
+            if (generation != expected || Math.abs(page - lastTouchedPage) > WANTED_DISTANCE) {
+                // Страница уже не нужна; если таблица снова ее отрисует, запрос повторится
+                SwingUtilities.invokeLater(() -> pageDropped(expected, page));
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                AttendanceRepository.Page loaded = loadPage(page, count, fromDay, toDay);
+                if (!loaded.getStudents().isEmpty()) {
+                    firstIds.put(page, loaded.getFirstId());
+                    lastIds.put(page, loaded.getLastId());
+                }
+                Metrics.get().recordSince("db.page", started);
+                SwingUtilities.invokeLater(() -> pageLoaded(expected, page, loaded.getStudents()));
+            } catch (SQLException e) {
+                LOGGER.error("Ошибка чтения страницы " + page + " из базы", e);
+                // Без снятия отметки страница навсегда осталась бы в состоянии загрузки
+                SwingUtilities.invokeLater(() -> pageDropped(expected, page));
+            }
+        });
+    }
+
+    /**
+     * Снять отметку о загрузке страницы, которая не была прочитана, чтобы следующая
+     * отрисовка строк запросила ее заново.
+     */
+    private void pageDropped(int expected, int page) {
+        if (generation == expected) {
+            pending.remove(page);
+        }
+    }
+
+    /**
+     * Прочитать страницу поиском по ключу от ближайшей прочитанной страницы выше или ниже,
+     * начала или конца базы. Выполняется потоком загрузки.
+     */
+    private AttendanceRepository.Page loadPage(int page, int count, long fromDay, long toDay) throws SQLException {
+        int firstRow = page * PAGE_SIZE;
+        int endRow = Math.min(count, firstRow + PAGE_SIZE);
+        Map.Entry<Integer, Long> above = lastIds.lowerEntry(page);
+        Map.Entry<Integer, Long> below = firstIds.higherEntry(page);
+        int skipAfter = firstRow - (above == null ? 0 : (above.getKey() + 1) * PAGE_SIZE);
+        int skipBefore = (below == null ? count : below.getKey() * PAGE_SIZE) - endRow;
+        if (skipAfter <= skipBefore) {
+            return repository.loadPageAfter(above == null ? Long.MIN_VALUE : above.getValue(), skipAfter,
+                    PAGE_SIZE, fromDay, toDay);
+        }
+        return repository.loadPageBefore(below == null ? Long.MAX_VALUE : below.getValue(), skipBefore,
+                endRow - firstRow, fromDay, toDay);
+    }
+
+    private void pageLoaded(int expected, int page, List<Student> students) {
+        if (generation != expected) {
+            return;
+        }
+        pending.remove(page);
+        pages.put(page, students);
+        int firstRow = page * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    /**
+     * Остановить поток загрузки страниц.
+     */
+    @Override
+    public void close() {
+        generation++;
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example;
+
+/**
+ * Получатель сведений о ходе длительной операции (импорт, экспорт).
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public interface ProgressListener {
+    /**
+     * Вызывается по мере выполнения операции.
+     *
+     * @param done  Количество обработанных единиц работы.
+     * @param total Общее количество единиц работы.
+     */
+    void onProgress(long done, long total);
+}
@@ -0,0 +1,419 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка записей о студентах: ручной ввод в окне и строки импортируемых файлов.
+ * <p>
+ * Правила задаются один раз: регулярные выражения скомпилированы заранее, даты разбираются
+ * строгим {@link DateTimeFormatter} без {@code SimpleDateFormat} и {@code Calendar}. Проверка не имеет
+ * состояния, поэтому один экземпляр используется из нескольких потоков импорта.
+ * Все нарушения собираются в {@link Report}
+ * (лист, строка, колонка, причина), который можно сохранить в файл вместо сотни отдельных сообщений.
+ * </p>
+ * Два набора правил:
+ * <ul>
+ *     <li>{@link #forManualEntry()} - ввод в окне: ФИО из трех слов, группа из 8 цифр,
+ *     дата в формате гггг-мм-дд не позже текущего года;</li>
+ *     <li>{@link #forImport()} - строки файлов: ФИО не короче двух слов, группа не пустая, в колонках
+ *     дней только "✓" и "✗". Файлы, записанные самим приложением, проходят проверку при любом
+ *     формате группы.</li>
+ * </ul>
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public final class RecordValidator {
+
+    /**
+     * Колонка ФИО.
+     */
+    public static final String COLUMN_NAME = "ФИО";
+
+    /**
+     * Колонка группы.
+     */
+    public static final String COLUMN_GROUP = "Группа";
+
+    /**
+     * Колонка даты.
+     */
+    public static final String COLUMN_DATE = "Дата";
+
+    private static final Pattern MANUAL_NAME = Pattern.compile("[А-Яа-яЁёA-Za-z]+\\s[А-Яа-яЁёA-Za-z]+\\s[А-Яа-яЁёA-Za-z]+");
+    private static final Pattern MANUAL_GROUP = Pattern.compile("\\d{8}");
+    private static final Pattern IMPORT_NAME = Pattern.compile("\\S+(?:\\s+\\S+)+");
+    private static final int MAX_GROUP_LENGTH = 64;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("uuuu-MM-dd")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private static final RecordValidator MANUAL_ENTRY = new RecordValidator(true);
+    private static final RecordValidator IMPORT = new RecordValidator(false);
+
+    /**
+     * Проверяемая запись: ФИО, группа и (необязательно) дата.
+     */
+    public static final class Record {
+        private final String source;
+        private final int row;
+        private final String fullName;
+        private final String group;
+        private final String date;
+
+        /**
+         * Создать запись.
+         *
+         * @param source   Источник (имя листа или "Ввод").
+         * @param row      Номер строки, начиная с 1 (0 - вне таблицы).
+         * @param fullName ФИО.
+         * @param group    Группа.
+         * @param date     Дата в формате гггг-мм-дд или {@code null}, если дата не проверяется.
+         */
+        public Record(String source, int row, String fullName, String group, String date) {
+            this.source = source;
+            this.row = row;
+            this.fullName = fullName;
+            this.group = group;
+            this.date = date;
+        }
+
+        /**
+         * @return Источник (имя листа или "Ввод").
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return Номер строки, начиная с 1.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return ФИО.
+         */
+        public String getFullName() {
+            return fullName;
+        }
+
+        /**
+         * @return Группа.
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * @return Дата или {@code null}.
+         */
+        public String getDate() {
+            return date;
+        }
+    }
+
+    /**
+     * Нарушение правила в одной ячейке.
+     */
+    public static final class Violation {
+        private final String source;
+        private final int row;
+        private final String column;
+        private final String reason;
+        private final String value;
+
+        /**
+         * Создать нарушение.
+         *
+         * @param source Источник (имя листа или файла).
+         * @param row    Номер строки, начиная с 1 (0 - вне таблицы).
+         * @param column Колонка.
+         * @param reason Причина.
+         * @param value  Значение ячейки.
+         */
+        public Violation(String source, int row, String column, String reason, String value) {
+            this.source = source;
+            this.row = row;
+            this.column = column;
+            this.reason = reason;
+            this.value = value;
+        }
+
+        /**
+         * @return Источник (имя листа или файла).
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return Номер строки, начиная с 1 (0 - вне таблицы).
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return Колонка.
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * @return Причина.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return Значение ячейки.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Получить описание нарушения для показа пользователю.
+         *
+         * @return Например: {@code Лист "2024-03", строка 5, ФИО: некорректное ФИО: Иванов}.
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            if (source != null && !source.isEmpty()) {
+                text.append("Лист \"").append(source).append("\", ");
+            }
+            if (row > 0) {
+                text.append("строка ").append(row).append(", ");
+            }
+            text.append(column).append(": ").append(reason);
+            if (value != null && !value.isEmpty()) {
+                text.append(": ").append(value);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Сводный отчет о нарушениях. Добавление синхронизировано: отчет могут дополнять
+     * несколько потоков импорта.
+     */
+    public static final class Report {
+        private final List<Violation> violations = new ArrayList<>();
+
+        /**
+         * Добавить нарушение.
+         *
+         * @param violation Нарушение ({@code null} игнорируется).
+         */
+        public synchronized void add(Violation violation) {
+            if (violation != null) {
+                violations.add(violation);
+            }
+        }
+
+        /**
+         * Добавить нарушения.
+         *
+         * @param added Нарушения.
+         */
+        public synchronized void addAll(List<Violation> added) {
+            violations.addAll(added);
+        }
+
+        /**
+         * Добавить нарушения другого отчета, указав файл перед источником.
+         *
+         * @param file  Имя файла.
+         * @param other Отчет о файле.
+         */
+        public void addAll(String file, Report other) {
+            List<Violation> added = new ArrayList<>();
+            for (Violation violation : other.getViolations()) {
+                String source = violation.source == null || violation.source.isEmpty()
+                        ? file : file + ": " + violation.source;
+                added.add(new Violation(source, violation.row, violation.column, violation.reason, violation.value));
+            }
+            addAll(added);
+        }
+
+        /**
+         * Получить нарушения в порядке добавления.
+         *
+         * @return Неизменяемая копия списка.
+         */
+        public synchronized List<Violation> getViolations() {
+            return Collections.unmodifiableList(new ArrayList<>(violations));
+        }
+
+        /**
+         * @return Количество нарушений.
+         */
+        public synchronized int size() {
+            return violations.size();
+        }
+
+        /**
+         * @return {@code true}, если нарушений нет.
+         */
+        public synchronized boolean isEmpty() {
+            return violations.isEmpty();
+        }
+
+        /**
+         * Сохранить отчет в CSV (разделитель ";", UTF-8 с BOM, чтобы Excel правильно показал кириллицу).
+         *
+         * @param file Файл отчета.
+         * @throws IOException при ошибке записи.
+         */
+        public void writeTo(Path file) throws IOException {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write('\uFEFF');
+                writer.write("Источник;Строка;Колонка;Причина;Значение");
+                writer.newLine();
+                for (Violation violation : getViolations()) {
+                    writer.write(csv(violation.source));
+                    writer.write(';');
+                    writer.write(violation.row > 0 ? Integer.toString(violation.row) : "");
+                    writer.write(';');
+                    writer.write(csv(violation.column));
+                    writer.write(';');
+                    writer.write(csv(violation.reason));
+                    writer.write(';');
+                    writer.write(csv(violation.value));
+                    writer.newLine();
+                }
+            }
+        }
+
+        private static String csv(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(';') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final boolean manualEntry;
+
+    private RecordValidator(boolean manualEntry) {
+        this.manualEntry = manualEntry;
+    }
+
+    /**
+     * Получить правила ручного ввода.
+     *
+     * @return Общий экземпляр.
+     */
+    public static RecordValidator forManualEntry() {
+        return MANUAL_ENTRY;
+    }
+
+    /**
+     * Получить правила импорта файлов.
+     *
+     * @return Общий экземпляр.
+     */
+    public static RecordValidator forImport() {
+        return IMPORT;
+    }
+
+    /**
+     * Разобрать дату в формате гггг-мм-дд без поправок (31 февраля - ошибка).
+     *
+     * @param date Текст даты.
+     * @return Дата.
+     * @throws DateTimeParseException если дата некорректна.
+     */
+    public static LocalDate parseDate(String date) {
+        return LocalDate.parse(date, DATE);
+    }
+
+    /**
+     * Проверить запись.
+     *
+     * @param record Запись.
+     * @return Нарушения; пустой список, если запись корректна.
+     */
+    public List<Violation> validate(Record record) {
+        List<Violation> violations = new ArrayList<>(0);
+        String fullName = trim(record.fullName);
+        String group = trim(record.group);
+
+        if (fullName.isEmpty()) {
+            violations.add(violation(record, COLUMN_NAME, "ФИО не указано", fullName));
+        } else if (!(manualEntry ? MANUAL_NAME : IMPORT_NAME).matcher(fullName).matches()) {
+            violations.add(violation(record, COLUMN_NAME, manualEntry
+                    ? "ФИО должно быть в формате: Фамилия Имя Отчество, без лишних пробелов и специальных символов"
+                    : "некорректное ФИО", fullName));
+        }
+
+        if (group.isEmpty()) {
+            violations.add(violation(record, COLUMN_GROUP, "группа не указана", group));
+        } else if (manualEntry && !MANUAL_GROUP.matcher(group).matches()) {
+            violations.add(violation(record, COLUMN_GROUP, "номер группы должен содержать ровно 8 цифр", group));
+        } else if (group.length() > MAX_GROUP_LENGTH) {
+            violations.add(violation(record, COLUMN_GROUP, "номер группы длиннее " + MAX_GROUP_LENGTH + " символов", group));
+        }
+
+        if (record.date != null) {
+            String date = record.date.trim();
+            if (date.isEmpty()) {
+                violations.add(violation(record, COLUMN_DATE, "дата не указана", date));
+            } else {
+                try {
+                    LocalDate parsed = parseDate(date);
+                    if (parsed.getYear() > LocalDate.now().getYear()) {
+                        violations.add(violation(record, COLUMN_DATE, "год не может быть больше текущего", date));
+                    }
+                } catch (DateTimeParseException e) {
+                    violations.add(violation(record, COLUMN_DATE, "некорректная дата, используйте формат гггг-мм-дд", date));
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Проверить текст отметки в колонке дня.
+     *
+     * @param source Источник.
+     * @param row    Номер строки, начиная с 1.
+     * @param column Колонка (заголовок дня).
+     * @param value  Текст ячейки.
+     * @return Нарушение или {@code null}, если отметка распознана или ячейка пустая.
+     */
+    public Violation checkMark(String source, int row, String column, String value) {
+        String mark = trim(value);
+        if (mark.isEmpty() || AttendanceState.fromMark(mark) != AttendanceState.UNKNOWN) {
+            return null;
+        }
+        return new Violation(source, row, column, "нераспознанная отметка", mark);
+    }
+
+    private static Violation violation(Record record, String column, String reason, String value) {
+        return new Violation(record.source, record.row, column, reason, value);
+    }
+
+    private static String trim(String value) {
+        return value == null ? "" : value.trim();
+    }
+}
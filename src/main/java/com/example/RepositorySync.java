@@ -0,0 +1,152 @@
+package com.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.Timer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись изменений хранилища в базу данных ({@link AttendanceRepository}) по мере работы.
+ * <p>
+ * Подписчик только запоминает измененных студентов. Раз в {@link #FLUSH_DELAY_MILLIS} мс
+ * (после первого изменения) в потоке событий Swing снимаются копии этих студентов, а запись
+ * выполняет фоновый поток {@code db-writer} одной транзакцией. Поэтому сотни отметок переклички
+ * или импорта попадают в базу одним пакетом, а окно не ждет диска.
+ * </p>
+ * Удаление студентов и очистка списка в окне базу не меняют: база может хранить историю,
+ * которая в окно не загружена.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class RepositorySync implements AttendanceStore.Listener, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RepositorySync.class);
+
+    /**
+     * Задержка записи после первого изменения, мс.
+     */
+    public static final int FLUSH_DELAY_MILLIS = 1000;
+
+    private final AttendanceRepository repository;
+    private final AttendanceStore store;
+    // Порядок добавления сохраняется, чтобы новые студенты попадали в базу в порядке списка
+    private final Set<Student> dirty = new LinkedHashSet<>();
+    private final Timer flushTimer;
+    private final ExecutorService writer;
+    private boolean suspended;
+
+    /**
+     * Начать запись изменений хранилища в базу.
+     *
+     * @param repository База данных.
+     * @param store      Хранилище студентов.
+     */
+    public RepositorySync(AttendanceRepository repository, AttendanceStore store) {
+        this.repository = repository;
+        this.store = store;
+        this.flushTimer = new Timer(FLUSH_DELAY_MILLIS, e -> flush());
+        this.flushTimer.setRepeats(false);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        store.addListener(this);
+    }
+
+    /**
+     * Временно не записывать изменения, например пока в окно загружаются данные из самой базы.
+     *
+     * @param suspended {@code true} - не записывать изменения.
+     */
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i <= toIndex; i++) {
+            markDirty(store.get(i));
+        }
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        markDirty(student);
+    }
+
+    @Override
+    public void groupChanged(Student student, String oldGroup) {
+        markDirty(student);
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        dirty.remove(student);
+    }
+
+    @Override
+    public void storeCleared() {
+        dirty.clear();
+    }
+
+    private void markDirty(Student student) {
+        if (suspended) {
+            return;
+        }
+        dirty.add(student);
+        if (!flushTimer.isRunning()) {
+            flushTimer.start();
+        }
+    }
+
+    /**
+     * Передать накопленные изменения фоновому потоку. Вызывается в потоке событий Swing.
+     */
+    public void flush() {
+        flushTimer.stop();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Student> copies = new ArrayList<>(dirty.size());
+        for (Student student : dirty) {
+            copies.add(student.copy());
+        }
+        dirty.clear();
+        writer.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                repository.saveAll(copies, null, null);
+                Metrics.get().recordSince("db.sync", started);
+                Metrics.get().increment("db.sync.students", copies.size());
+            } catch (SQLException e) {
+                Metrics.get().increment("db.sync.errors", 1);
+                LOGGER.error("Ошибка записи изменений в базу", e);
+            }
+        });
+    }
+
+    /**
+     * Записать оставшиеся изменения и прекратить синхронизацию.
+     */
+    @Override
+    public void close() {
+        store.removeListener(this);
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
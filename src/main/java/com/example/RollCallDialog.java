@@ -0,0 +1,268 @@
+package com.example;
+
+import com.toedter.calendar.JDateChooser;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Перекличка: отметка всей группы за выбранный день в одной таблице.
+ * <p>
+ * Отметки сначала копятся в окне и записываются в хранилище только кнопкой "Сохранить" одним
+ * пакетом ({@link AttendanceStore#runBatch(Runnable)}), поэтому таблица главного окна обновляется
+ * один раз. Работа с клавиатуры: стрелки - переход по строкам, P (З) - присутствовал,
+ * A (Ф) - отсутствовал, пробел - переключить, Delete - снять отметку; после отметки выделение
+ * переходит на следующую строку. Удобный сценарий - "Все присутствуют", затем отметить отсутствующих.
+ * </p>
+ * Строки таблицы вычисляются по требованию, поэтому группа из тысяч студентов не замедляет окно.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class RollCallDialog extends JDialog {
+
+    private final AttendanceStore store;
+    private final JComboBox<String> groupComboBox;
+    private final JDateChooser dateChooser;
+    private final JLabel summaryLabel = new JLabel();
+    private final RollCallModel model = new RollCallModel();
+    private final JTable table = new JTable(model);
+
+    // Студенты группы, отметки до изменения и отметки в окне
+    private List<Student> students = new ArrayList<>();
+    private AttendanceState[] original = new AttendanceState[0];
+    private AttendanceState[] marks = new AttendanceState[0];
+    private long epochDay;
+    private String loadedGroup;
+
+    /**
+     * Создать окно переклички.
+     *
+     * @param owner   Главное окно.
+     * @param store   Хранилище студентов.
+     * @param subject Предмет (показывается в заголовке).
+     */
+    public RollCallDialog(Frame owner, AttendanceStore store, String subject) {
+        super(owner, "Перекличка: " + subject, true);
+        this.store = store;
+        setSize(600, 600);
+        setLayout(new BorderLayout(5, 5));
+
+        // Выбор группы и даты
+        JPanel selectionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        selectionPanel.add(new JLabel("Группа:"));
+        groupComboBox = new JComboBox<>(store.getGroups().toArray(new String[0]));
+        selectionPanel.add(groupComboBox);
+        selectionPanel.add(new JLabel("Дата:"));
+        dateChooser = new JDateChooser(new Date(), "yyyy-MM-dd");
+        dateChooser.setPreferredSize(new Dimension(130, dateChooser.getPreferredSize().height));
+        selectionPanel.add(dateChooser);
+        add(selectionPanel, BorderLayout.NORTH);
+
+        // Таблица группы
+        table.setSelectionMode(ListSelectionModel.SINGLE_INTERVAL_SELECTION);
+        table.getColumnModel().getColumn(0).setMaxWidth(60);
+        table.getColumnModel().getColumn(2).setMaxWidth(90);
+        table.setDefaultRenderer(AttendanceState.class, new AttendanceCellRenderer());
+        bindKeys();
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        // Кнопки
+        JButton allPresentButton = new JButton("Все присутствуют");
+        allPresentButton.addActionListener(e -> markAllPresent());
+        JButton saveButton = new JButton("Сохранить");
+        saveButton.addActionListener(e -> {
+            commit();
+            dispose();
+        });
+        JButton cancelButton = new JButton("Отмена");
+        cancelButton.addActionListener(e -> dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        buttonPanel.add(summaryLabel);
+        buttonPanel.add(allPresentButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        groupComboBox.addActionListener(e -> reloadIfConfirmed());
+        dateChooser.addPropertyChangeListener("date", e -> reloadIfConfirmed());
+        reload();
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Записать изменившиеся отметки в хранилище одним пакетом.
+     *
+     * @return Количество измененных отметок.
+     */
+    public int commit() {
+        long started = System.nanoTime();
+        int[] changed = {0};
+        store.runBatch(() -> {
+            for (int i = 0; i < students.size(); i++) {
+                if (marks[i] != original[i]) {
+                    students.get(i).setState(epochDay, marks[i]);
+                    original[i] = marks[i];
+                    changed[0]++;
+                }
+            }
+        });
+        Metrics.get().recordSince("openStudentMap.marks", started);
+        return changed[0];
+    }
+
+    private boolean hasChanges() {
+        for (int i = 0; i < marks.length; i++) {
+            if (marks[i] != original[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Сменить группу или дату; несохраненные отметки сохраняются по подтверждению пользователя.
+     */
+    private void reloadIfConfirmed() {
+        if (hasChanges()) {
+            int answer = JOptionPane.showConfirmDialog(this, "Сохранить отметки группы " + loadedGroup + "?",
+                    "Перекличка", JOptionPane.YES_NO_OPTION);
+            if (answer == JOptionPane.YES_OPTION) {
+                commit();
+            }
+        }
+        reload();
+    }
+
+    private void reload() {
+        loadedGroup = (String) groupComboBox.getSelectedItem();
+        Date date = dateChooser.getDate() != null ? dateChooser.getDate() : new Date();
+        epochDay = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        students = loadedGroup == null ? new ArrayList<>() : new ArrayList<>(store.getByGroup(loadedGroup));
+        original = new AttendanceState[students.size()];
+        for (int i = 0; i < students.size(); i++) {
+            original[i] = students.get(i).getState(epochDay);
+        }
+        marks = original.clone();
+        model.fireTableDataChanged();
+        if (!students.isEmpty()) {
+            table.setRowSelectionInterval(0, 0);
+        }
+        updateSummary();
+    }
+
+    private void markAllPresent() {
+        for (int i = 0; i < marks.length; i++) {
+            marks[i] = AttendanceState.PRESENT;
+        }
+        model.fireTableRowsUpdated(0, Math.max(0, marks.length - 1));
+        updateSummary();
+        table.requestFocusInWindow();
+    }
+
+    /**
+     * Отметить выделенные строки и перейти к следующей строке.
+     */
+    private void markSelected(AttendanceState state, boolean toggle) {
+        int[] rows = table.getSelectedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        for (int row : rows) {
+            if (toggle) {
+                marks[row] = marks[row] == AttendanceState.PRESENT ? AttendanceState.ABSENT : AttendanceState.PRESENT;
+            } else {
+                marks[row] = state;
+            }
+            model.fireTableCellUpdated(row, 2);
+        }
+        int next = rows[rows.length - 1] + 1;
+        if (rows.length == 1 && next < students.size()) {
+            table.setRowSelectionInterval(next, next);
+            table.scrollRectToVisible(table.getCellRect(next, 0, true));
+        }
+        updateSummary();
+    }
+
+    private void updateSummary() {
+        int present = 0;
+        int absent = 0;
+        for (AttendanceState mark : marks) {
+            if (mark == AttendanceState.PRESENT) {
+                present++;
+            } else if (mark == AttendanceState.ABSENT) {
+                absent++;
+            }
+        }
+        summaryLabel.setText("Присутствуют: " + present + ", отсутствуют: " + absent + " из " + marks.length);
+    }
+
+    private void bindKeys() {
+        InputMap inputs = table.getInputMap(JComponent.WHEN_FOCUSED);
+        ActionMap actions = table.getActionMap();
+        bind(inputs, actions, "present", () -> markSelected(AttendanceState.PRESENT, false),
+                KeyStroke.getKeyStroke(KeyEvent.VK_P, 0), KeyStroke.getKeyStroke('з'), KeyStroke.getKeyStroke('З'));
+        bind(inputs, actions, "absent", () -> markSelected(AttendanceState.ABSENT, false),
+                KeyStroke.getKeyStroke(KeyEvent.VK_A, 0), KeyStroke.getKeyStroke('ф'), KeyStroke.getKeyStroke('Ф'));
+        bind(inputs, actions, "toggle", () -> markSelected(null, true),
+                KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0));
+        bind(inputs, actions, "clearMark", () -> markSelected(AttendanceState.UNKNOWN, false),
+                KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), KeyStroke.getKeyStroke(KeyEvent.VK_BACK_SPACE, 0));
+    }
+
+    private static void bind(InputMap inputs, ActionMap actions, String name, Runnable action, KeyStroke... keys) {
+        for (KeyStroke key : keys) {
+            inputs.put(key, name);
+        }
+        actions.put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Модель таблицы переклички: номер, ФИО, отметка в окне.
+     */
+    private final class RollCallModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return students.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 3;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "№" : column == 1 ? "ФИО" : "Отметка";
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? AttendanceState.class : Object.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return students.get(row).getFullName();
+                default:
+                    return marks[row];
+            }
+        }
+    }
+}
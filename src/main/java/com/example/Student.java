@@ -1,11 +1,17 @@
 package com.example;
 
-import java.util.HashSet;
+import java.time.LocalDate;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Класс, представляющий студента с данными о его посещаемости.
  * Хранит информацию о фамилии, имени, отчестве, группе, посещениях и отсутствиях.
+ * <p>
+ * Части ФИО берутся из общего {@link NameDictionary}, группа хранится кодом {@link GroupDictionary},
+ * а полное имя собирается при обращении, если студент создан по частям ФИО. Так на миллион
+ * студентов повторяющиеся имена, отчества и номера групп не занимают память миллион раз.
+ * </p>
  *
  * @author Soldatov N. V.
  * @version 22.0.2
@@ -14,14 +20,15 @@ public class Student {
     private String lastName;
     private String firstName;
     private String patronymic; // Отчество
-    private String group;
-    private String fullName;
-    private final Set<String> attendanceDates = new HashSet<>(); // Даты посещений
-    private final Set<String> absenceDates = new HashSet<>();    // Даты отсутствий
+    private int groupCode; // Код группы в GroupDictionary
+    private final String fullName; // Задается только конструктором по полному имени
+    private final AttendanceCalendar attendance; // Посещения и отсутствия по дням
+    private AttendanceStore store; // Хранилище, которому принадлежит студент
+    private int storeIndex = -1;   // Номер студента в хранилище
 
     /**
      * Конструктор для создания студента с указанием фамилии, имени, отчества и группы.
-     * Полное имя студента будет сформировано автоматически.
+     * Полное имя студента формируется при обращении к {@link #getFullName()}.
      *
      * @param lastName    Фамилия студента.
      * @param firstName   Имя студента.
@@ -29,11 +36,12 @@ public class Student {
      * @param group       Группа студента.
      */
     public Student(String lastName, String firstName, String patronymic, String group) {
-        this.lastName = lastName;
-        this.firstName = firstName;
-        this.patronymic = patronymic;
-        this.group = group;
-        this.fullName = getFullName(); // Формирование полного имени
+        this.lastName = NameDictionary.intern(lastName);
+        this.firstName = NameDictionary.intern(firstName);
+        this.patronymic = NameDictionary.intern(patronymic);
+        this.groupCode = GroupDictionary.code(group);
+        this.attendance = new AttendanceCalendar();
+        this.fullName = null;
     }
 
     /**
@@ -44,20 +52,49 @@ public class Student {
      */
     public Student(String fullName, String group) {
         this.fullName = fullName;
-        this.group = group;
+        this.groupCode = GroupDictionary.code(group);
+        this.attendance = new AttendanceCalendar();
+    }
+
+    /**
+     * Конструктор копирования, используемый в {@link #copy()}.
+     *
+     * @param source Исходный студент.
+     */
+    private Student(Student source) {
+        this.lastName = source.lastName;
+        this.firstName = source.firstName;
+        this.patronymic = source.patronymic;
+        this.groupCode = source.groupCode;
+        this.fullName = source.fullName;
+        this.attendance = source.attendance.copy();
+    }
+
+    /**
+     * Создать копию студента вместе с отметками, не привязанную к хранилищу.
+     * Фоновые задачи (экспорт, аналитика) работают с такими копиями,
+     * пока пользователь продолжает отмечать студентов в окне.
+     *
+     * @return Копия студента.
+     */
+    public Student copy() {
+        return new Student(this);
     }
 
     /**
      * Метод для очистки всех данных о посещениях и отсутствиях.
      */
     public void clearAttendance() {
-        attendanceDates.clear();
-        absenceDates.clear();
+        if (store != null) {
+            attendance.forEach((epochDay, state) -> store.onStateChanged(this, epochDay, state, AttendanceState.UNKNOWN));
+        }
+        attendance.clear();
     }
 
     /**
      * Получить полное имя студента.
-     * Если оно уже задано, возвращает его. В противном случае собирает его из фамилии, имени и отчества.
+     * Если оно задано конструктором, возвращает его. В противном случае собирает его из фамилии, имени и отчества
+     * (новая строка при каждом вызове).
      *
      * @return Полное имя студента.
      */
@@ -105,7 +142,16 @@ public class Student {
      * @return Группа студента.
      */
     public String getGroup() {
-        return group;
+        return GroupDictionary.name(groupCode);
+    }
+
+    /**
+     * Получить код группы студента в {@link GroupDictionary}.
+     *
+     * @return Код группы.
+     */
+    int getGroupCode() {
+        return groupCode;
     }
 
     /**
@@ -114,47 +160,151 @@ public class Student {
      * @param group Новая группа.
      */
     public void setGroup(String group) {
-        this.group = group;
+        String oldGroup = getGroup();
+        this.groupCode = GroupDictionary.code(group);
+        if (store != null) {
+            store.onGroupChanged(this, oldGroup);
+        }
     }
 
     /**
      * Получить все даты посещений студента.
+     * Возвращается отсортированная копия; для проверок отдельных дней используйте {@link #getState(long)}.
      *
-     * @return Множество дат посещений.
+     * @return Множество дат посещений в формате yyyy-MM-dd.
      */
     public Set<String> getAttendanceDates() {
-        return attendanceDates;
+        return collectDates(AttendanceState.PRESENT);
     }
 
     /**
      * Получить все даты отсутствий студента.
+     * Возвращается отсортированная копия; для проверок отдельных дней используйте {@link #getState(long)}.
      *
-     * @return Множество дат отсутствий.
+     * @return Множество дат отсутствий в формате yyyy-MM-dd.
      */
     public Set<String> getAbsenceDates() {
-        return absenceDates;
+        return collectDates(AttendanceState.ABSENT);
     }
 
     /**
      * Добавить дату посещения студента.
-     * Если студент был ранее отмечен как отсутствующий в этот день, дата будет удалена из списка отсутствий.
+     * Если студент был ранее отмечен как отсутствующий в этот день, отметка отсутствия снимается.
      *
-     * @param date Дата посещения.
+     * @param date Дата посещения в формате yyyy-MM-dd.
      */
     public void addAttendanceDate(String date) {
-        attendanceDates.add(date);
-        absenceDates.remove(date); // Удалить из отсутствий, если есть
+        setState(LocalDate.parse(date).toEpochDay(), AttendanceState.PRESENT);
     }
 
     /**
      * Добавить дату отсутствия студента.
-     * Если студент был ранее отмечен как посещающий в этот день, дата будет удалена из списка посещений.
+     * Если студент был ранее отмечен как посещающий в этот день, отметка посещения снимается.
      *
-     * @param date Дата отсутствия.
+     * @param date Дата отсутствия в формате yyyy-MM-dd.
      */
     public void addAbsenceDate(String date) {
-        absenceDates.add(date);
-        attendanceDates.remove(date); // Удалить из посещений, если есть
+        setState(LocalDate.parse(date).toEpochDay(), AttendanceState.ABSENT);
+    }
+
+    /**
+     * Установить отметку за день.
+     *
+     * @param epochDay Номер дня ({@link LocalDate#toEpochDay()}).
+     * @param state    Новое состояние; {@link AttendanceState#UNKNOWN} снимает отметку.
+     * @return Предыдущее состояние за этот день.
+     */
+    public AttendanceState setState(long epochDay, AttendanceState state) {
+        AttendanceState previous = attendance.setState(epochDay, state);
+        if (store != null && previous != state) {
+            store.onStateChanged(this, epochDay, previous, state);
+        }
+        return previous;
+    }
+
+    /**
+     * Получить отметку за день.
+     *
+     * @param epochDay Номер дня ({@link LocalDate#toEpochDay()}).
+     * @return Состояние за этот день.
+     */
+    public AttendanceState getState(long epochDay) {
+        return attendance.getState(epochDay);
+    }
+
+    /**
+     * Подсчитать количество посещений в диапазоне дат.
+     *
+     * @param fromEpochDay Первый день (включительно).
+     * @param toEpochDay   Последний день (включительно).
+     * @return Количество дней, когда студент присутствовал.
+     */
+    public int countPresent(long fromEpochDay, long toEpochDay) {
+        return attendance.count(fromEpochDay, toEpochDay, AttendanceState.PRESENT);
+    }
+
+    /**
+     * Подсчитать количество отсутствий в диапазоне дат.
+     *
+     * @param fromEpochDay Первый день (включительно).
+     * @param toEpochDay   Последний день (включительно).
+     * @return Количество дней, когда студент отсутствовал.
+     */
+    public int countAbsent(long fromEpochDay, long toEpochDay) {
+        return attendance.count(fromEpochDay, toEpochDay, AttendanceState.ABSENT);
+    }
+
+    /**
+     * Получить календарь отметок студента.
+     *
+     * @return Календарь отметок.
+     */
+    public AttendanceCalendar getAttendance() {
+        return attendance;
+    }
+
+    /**
+     * Получить хранилище, которому принадлежит студент.
+     *
+     * @return Хранилище или {@code null}.
+     */
+    AttendanceStore getStore() {
+        return store;
+    }
+
+    /**
+     * Получить номер студента в хранилище.
+     *
+     * @return Номер или -1.
+     */
+    int getStoreIndex() {
+        return storeIndex;
+    }
+
+    /**
+     * Привязать студента к хранилищу. Вызывается только из {@link AttendanceStore}.
+     */
+    void attach(AttendanceStore store, int storeIndex) {
+        this.store = store;
+        this.storeIndex = storeIndex;
+    }
+
+    /**
+     * Отвязать студента от хранилища. Вызывается только из {@link AttendanceStore}.
+     */
+    void detach() {
+        this.store = null;
+        this.storeIndex = -1;
+    }
+
+    private Set<String> collectDates(AttendanceState state) {
+        Set<String> dates = new TreeSet<>();
+        attendance.forEach((epochDay, dayState) -> {
+            if (dayState == state) {
+                dates.add(LocalDate.ofEpochDay(epochDay).toString());
+            }
+        });
+        return dates;
     }
 
     /**
@@ -165,9 +315,11 @@ public class Student {
      */
     @Override
     public String toString() {
+        Set<String> attendanceDates = getAttendanceDates();
+        Set<String> absenceDates = getAbsenceDates();
         String attendanceStr = attendanceDates.isEmpty() ? "Нет посещений" : String.join(", ", attendanceDates);
         String absenceStr = absenceDates.isEmpty() ? "Нет отсутствий" : String.join(", ", absenceDates);
         return String.format("ФИО: %s, Группа: %s, Посещения: %s, Отсутствия: %s",
-                getFullName(), group, attendanceStr, absenceStr);
+                getFullName(), getGroup(), attendanceStr, absenceStr);
     }
 }
@@ -0,0 +1,391 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Движок фильтрации студентов на основе заранее построенных индексов.
+ * <p>
+ * Для поиска по ФИО поддерживается индекс триграмм нормализованных ФИО (нижний регистр, "ё" → "е"):
+ * кандидатами становятся студенты из самого короткого списка триграмм запроса, и только они
+ * проверяются на вхождение подстроки. Для группы и даты используются индексы {@link AttendanceStore}.
+ * </p>
+ * Последний результат поиска по ФИО запоминается: если новый запрос содержит предыдущий
+ * (пользователь дописывает символы), проверяются только ранее найденные студенты.
+ * Движок подписан на хранилище, но в потоке событий только ставит изменения состава студентов в очередь
+ * (под отдельной короткой блокировкой, не дожидаясь идущего поиска). Очередь применяется при следующем
+ * поиске по ФИО: удаленные студенты убираются из собственного списка движка одним сжатием, номера
+ * в индексе триграмм переносятся по таблице новых номеров, как в {@link AttendanceStore#removeAll},
+ * а добавленные студенты индексируются.
+ * Поиск по ФИО ({@link #findByName(String)}) читает только собственные данные движка (ФИО студента
+ * после создания не меняется), поэтому выполняется в любом потоке; устаревший результат вызывающий
+ * распознает по {@link #getChangeCount()}. Поиск по группе и дате читает индексы хранилища
+ * и выполняется в потоке интерфейса.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class StudentFilter implements AttendanceStore.Listener {
+
+    /**
+     * Тип фильтра.
+     */
+    public enum Type {
+        /**
+         * Подстрока ФИО без учета регистра.
+         */
+        NAME,
+
+        /**
+         * Точный номер группы без учета регистра.
+         */
+        GROUP,
+
+        /**
+         * Студенты, присутствовавшие в указанный день (гггг-мм-дд).
+         */
+        DATE_PRESENT,
+
+        /**
+         * Студенты, отсутствовавшие в указанный день (гггг-мм-дд).
+         */
+        DATE_ABSENT
+    }
+
+    /**
+     * Список номеров студентов, растущий по мере добавления.
+     */
+    private static final class Postings {
+        int[] items = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+    }
+
+    /**
+     * Изменение состава студентов, ожидающее применения к индексу.
+     */
+    private static final class Change {
+        final Student added; // null - удаление
+        final int removedIndex;
+
+        Change(Student added, int removedIndex) {
+            this.added = added;
+            this.removedIndex = removedIndex;
+        }
+    }
+
+    private static final Change CLEARED = new Change(null, -1);
+
+    private final AttendanceStore store;
+    // Собственная копия списка студентов: номера в индексе относятся к ней, а не к хранилищу
+    private final List<Student> students = new ArrayList<>();
+    private final List<String> normalizedNames = new ArrayList<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    // Очередь изменений от потока событий; защищена своей блокировкой, а не блокировкой поиска
+    private final Object pendingLock = new Object();
+    private List<Change> pending = new ArrayList<>();
+    private int changeCount; // Только поток интерфейса
+
+    // Последний результат поиска по ФИО для сужения при наборе
+    private String lastQuery;
+    private int[] lastMatches;
+    private int lastVersion = -1;
+
+    // Увеличивается при изменении состава студентов (отметки на поиск по ФИО не влияют)
+    private int version;
+
+    /**
+     * Создать движок и построить индексы для текущих студентов хранилища.
+     *
+     * @param store Хранилище студентов.
+     */
+    public StudentFilter(AttendanceStore store) {
+        this.store = store;
+        for (Student student : store.getStudents()) {
+            students.add(student);
+            normalizedNames.add(normalize(student.getFullName()));
+        }
+        indexTrigrams();
+        store.addListener(this);
+    }
+
+    /**
+     * Привести строку к виду для поиска: нижний регистр, "ё" заменяется на "е", лишние пробелы удаляются.
+     *
+     * @param text Исходная строка.
+     * @return Нормализованная строка.
+     */
+    public static String normalize(String text) {
+        return AttendanceStore.normalizeName(text).toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    /**
+     * Получить количество изменений состава студентов, полученных от хранилища. Вызывается в потоке
+     * интерфейса: если значение изменилось во время фонового поиска по ФИО, результат устарел.
+     *
+     * @return Количество изменений.
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Найти студентов по фильтру. Поиск по группе и дате - только в потоке интерфейса.
+     *
+     * @param type  Тип фильтра.
+     * @param input Ввод пользователя.
+     * @return Студенты в порядке хранилища; пустой список, если ввод некорректен.
+     */
+    public List<Student> apply(Type type, String input) {
+        switch (type) {
+            case NAME:
+                return findByName(input);
+            case GROUP:
+                return new ArrayList<>(store.getByGroup(input));
+            case DATE_PRESENT:
+                return findByDate(input, AttendanceState.PRESENT);
+            case DATE_ABSENT:
+                return findByDate(input, AttendanceState.ABSENT);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Найти студентов, в ФИО которых встречается подстрока. Может вызываться в фоновом потоке:
+     * хранилище при поиске не читается.
+     *
+     * @param input Подстрока ФИО.
+     * @return Найденные студенты.
+     */
+    public synchronized List<Student> findByName(String input) {
+        applyPending();
+        String query = normalize(input);
+        int[] matches;
+        if (lastQuery != null && lastVersion == version && query.contains(lastQuery)) {
+            matches = verify(lastMatches, lastMatches.length, query); // Сужение предыдущего результата
+        } else if (query.length() >= 3) {
+            Postings candidates = shortestPostings(query);
+            matches = candidates == null ? new int[0] : verify(candidates.items, candidates.size, query);
+        } else {
+            matches = scanAll(query);
+        }
+        lastQuery = query;
+        lastMatches = matches;
+        lastVersion = version;
+
+        List<Student> result = new ArrayList<>(matches.length);
+        for (int index : matches) {
+            result.add(students.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Найти студентов с заданной отметкой за день. Вызывается в потоке интерфейса.
+     *
+     * @param input Дата в формате гггг-мм-дд.
+     * @param state Искомое состояние.
+     * @return Найденные студенты; пустой список, если дата некорректна.
+     */
+    public List<Student> findByDate(String input, AttendanceState state) {
+        long day;
+        try {
+            day = LocalDate.parse(input.trim()).toEpochDay();
+        } catch (DateTimeParseException ex) {
+            return Collections.emptyList();
+        }
+        List<Student> result = new ArrayList<>();
+        store.forEachMarkedOn(day, student -> {
+            if (student.getState(day) == state) {
+                result.add(student);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        changeCount++;
+        synchronized (pendingLock) {
+            for (int i = fromIndex; i <= toIndex; i++) {
+                pending.add(new Change(store.get(i), -1));
+            }
+        }
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        changeCount++;
+        synchronized (pendingLock) {
+            pending.add(new Change(null, index));
+        }
+    }
+
+    @Override
+    public void storeCleared() {
+        changeCount++;
+        synchronized (pendingLock) {
+            pending = new ArrayList<>(); // Все, что было до очистки, уже не нужно
+            pending.add(CLEARED);
+        }
+    }
+
+    /**
+     * Применить накопленные изменения состава студентов. Удаления копятся и применяются одним
+     * сжатием перед следующим добавлением или в конце: серия {@link AttendanceStore#removeAll}
+     * приходит по убыванию номеров, поэтому каждый номер серии относится к списку до нее.
+     */
+    private void applyPending() {
+        List<Change> changes;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = pending;
+            pending = new ArrayList<>();
+        }
+        BitSet removed = new BitSet();
+        for (Change change : changes) {
+            if (change == CLEARED) {
+                removed.clear();
+                students.clear();
+                normalizedNames.clear();
+                trigrams.clear();
+            } else if (change.added != null) {
+                compact(removed);
+                students.add(change.added);
+                normalizedNames.add(normalize(change.added.getFullName()));
+                index(students.size() - 1);
+            } else {
+                if (!removed.isEmpty() && change.removedIndex >= removed.nextSetBit(0)) {
+                    compact(removed); // Номер уже относится к списку после предыдущих удалений
+                }
+                removed.set(change.removedIndex);
+            }
+        }
+        compact(removed);
+        lastQuery = null;
+        lastMatches = null;
+        version++;
+    }
+
+    /**
+     * Убрать студентов с отмеченными номерами за один проход и перенести номера в индексе триграмм.
+     *
+     * @param removed Номера удаляемых студентов; очищается.
+     */
+    private void compact(BitSet removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        int size = students.size();
+        int[] remap = new int[size];
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (removed.get(i)) {
+                remap[i] = -1;
+            } else {
+                remap[i] = kept;
+                if (kept != i) {
+                    students.set(kept, students.get(i));
+                    normalizedNames.set(kept, normalizedNames.get(i));
+                }
+                kept++;
+            }
+        }
+        students.subList(kept, size).clear();
+        normalizedNames.subList(kept, size).clear();
+        // Порядок номеров в списках триграмм сохраняется, поэтому они остаются отсортированными
+        Iterator<Postings> lists = trigrams.values().iterator();
+        while (lists.hasNext()) {
+            Postings postings = lists.next();
+            int count = 0;
+            for (int i = 0; i < postings.size; i++) {
+                int index = remap[postings.items[i]];
+                if (index >= 0) {
+                    postings.items[count++] = index;
+                }
+            }
+            postings.size = count;
+            if (count == 0) {
+                lists.remove();
+            }
+        }
+        removed.clear();
+    }
+
+    private void indexTrigrams() {
+        trigrams.clear();
+        for (int i = 0; i < normalizedNames.size(); i++) {
+            index(i);
+        }
+    }
+
+    private void index(int index) {
+        String name = normalizedNames.get(index);
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            Postings postings = trigrams.computeIfAbsent(trigram(name, i), k -> new Postings());
+            // Повторная триграмма в одном ФИО добавляется один раз
+            if (postings.size == 0 || postings.items[postings.size - 1] != index) {
+                postings.add(index);
+            }
+        }
+    }
+
+    private Postings shortestPostings(String query) {
+        Postings shortest = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Postings postings = trigrams.get(trigram(query, i));
+            if (postings == null) {
+                return null; // Триграммы нет ни у одного студента
+            }
+            if (shortest == null || postings.size < shortest.size) {
+                shortest = postings;
+            }
+        }
+        return shortest;
+    }
+
+    private int[] verify(int[] candidates, int count, String query) {
+        int[] matches = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (normalizedNames.get(candidates[i]).contains(query)) {
+                matches[size++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private int[] scanAll(String query) {
+        int[] matches = new int[normalizedNames.size()];
+        int size = 0;
+        for (int i = 0; i < normalizedNames.size(); i++) {
+            if (normalizedNames.get(i).contains(query)) {
+                matches[size++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+}
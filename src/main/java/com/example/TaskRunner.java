@@ -0,0 +1,382 @@
+package com.example;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import java.awt.Component;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполнение долгих операций окна в фоновых потоках.
+ * <p>
+ * Задача выполняется на основе {@link SwingWorker} в пуле фоновых потоков, а результат передается
+ * в {@link Callback} в потоке интерфейса. Поддерживаются:
+ * </p>
+ * <ul>
+ *     <li>прогресс - если задан заголовок, показывается {@link ProgressMonitor} (появляется,
+ *     только если задача длится дольше полусекунды), кнопка "Отмена" отменяет задачу;</li>
+ *     <li>объединение повторных запросов - новая задача с тем же ключом отменяет предыдущую,
+ *     и результат предыдущей уже не доставляется, а ее получатель узнает о замене
+ *     ({@link Callback#superseded()}). Задача, начавшая необратимые изменения ({@link Context#commit()}),
+ *     не отменяется и не заменяется: новая задача с тем же ключом запускается после доставки ее итога,
+ *     поэтому данные не остаются очищенными и заполненными наполовину;</li>
+ *     <li>пакетная публикация изменений - действия, переданные через {@link Context#publish(Runnable)},
+ *     выполняются в потоке интерфейса порциями не дольше {@link #FRAME_BUDGET_NANOS}, между порциями
+ *     окно успевает перерисоваться. Итог задачи доставляется после выполнения всех действий.</li>
+ * </ul>
+ * Методы вызываются из потока интерфейса.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class TaskRunner {
+
+    /**
+     * Время, которое действия задачи могут занимать поток интерфейса за один кадр (60 кадров в секунду).
+     */
+    public static final long FRAME_BUDGET_NANOS = 8_000_000;
+
+    /**
+     * Окружение задачи в фоновом потоке.
+     */
+    public interface Context {
+        /**
+         * Сообщить ход выполнения.
+         *
+         * @param done  Выполнено.
+         * @param total Всего.
+         */
+        void progress(long done, long total);
+
+        /**
+         * Проверить, отменена ли задача (пользователем или более новой задачей с тем же ключом).
+         * После {@link #commit()} всегда {@code false}.
+         *
+         * @return {@code true}, если задачу нужно прервать.
+         */
+        boolean isCancelled();
+
+        /**
+         * Отметить начало необратимых изменений: вызывается в фоновом потоке перед публикацией
+         * действий, которые нельзя прервать на середине (например, очистка и заполнение таблицы).
+         * После этого задачу нельзя отменить или заменить, и все опубликованные действия выполняются.
+         *
+         * @throws CancellationException если задача уже отменена; тогда публиковать ничего не нужно.
+         */
+        void commit();
+
+        /**
+         * Выполнить действие в потоке интерфейса, например изменить модель.
+         * Действия выполняются по порядку и пакетами, но не позже доставки итога задачи.
+         *
+         * @param action Действие.
+         */
+        void publish(Runnable action);
+    }
+
+    /**
+     * Фоновая часть задачи.
+     *
+     * @param <T> Тип результата.
+     */
+    public interface Task<T> {
+        /**
+         * Выполнить задачу в фоновом потоке.
+         *
+         * @param context Окружение задачи.
+         * @return Результат.
+         * @throws Exception при ошибке; {@link CancellationException} означает отмену.
+         */
+        T run(Context context) throws Exception;
+    }
+
+    /**
+     * Получатель итога задачи в потоке интерфейса.
+     *
+     * @param <T> Тип результата.
+     */
+    public interface Callback<T> {
+        /**
+         * Задача завершилась успешно.
+         *
+         * @param result Результат.
+         */
+        void succeeded(T result);
+
+        /**
+         * Задача завершилась с ошибкой.
+         *
+         * @param error Причина.
+         */
+        default void failed(Throwable error) {
+        }
+
+        /**
+         * Задача отменена пользователем. Не вызывается, если задачу заменила более новая с тем же ключом.
+         */
+        default void cancelled() {
+        }
+
+        /**
+         * Задачу заменила более новая с тем же ключом или ее отменил {@link TaskRunner#cancel(String)};
+         * итог уже не доставляется. Вызывается сразу при замене, до запуска новой задачи, чтобы
+         * задача могла вернуть то, что приостановила при запуске. Задача, вызвавшая
+         * {@link Context#commit()}, не заменяется, и для нее этот метод не вызывается.
+         */
+        default void superseded() {
+        }
+    }
+
+    /**
+     * Запущенная задача.
+     */
+    public interface Handle {
+        /**
+         * Отменить задачу.
+         */
+        void cancel();
+
+        /**
+         * Проверить, завершена ли задача.
+         *
+         * @return {@code true}, если итог уже доставлен или задача отменена.
+         */
+        boolean isDone();
+    }
+
+    private final Component parent;
+    private final ExecutorService executor;
+    private final Map<String, Worker<?>> running = new HashMap<>();
+
+    /**
+     * Создать исполнитель задач.
+     *
+     * @param parent Окно, над которым показываются индикаторы прогресса.
+     */
+    public TaskRunner(Component parent) {
+        this.parent = parent;
+        AtomicInteger counter = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "task-runner-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запустить задачу.
+     *
+     * @param key      Ключ объединения (может быть {@code null}): предыдущая задача с тем же ключом отменяется.
+     * @param title    Заголовок индикатора прогресса ({@code null} - без индикатора).
+     * @param task     Фоновая часть.
+     * @param callback Получатель итога.
+     * @param <T>      Тип результата.
+     * @return Запущенная задача.
+     */
+    public <T> Handle submit(String key, String title, Task<T> task, Callback<T> callback) {
+        Worker<T> worker = new Worker<>(key, title, task, callback);
+        Worker<?> blocker = null;
+        if (key != null) {
+            Worker<?> previous = running.remove(key);
+            if (previous != null) {
+                // Начавшую изменения задачу нельзя прервать - новая ждет ее; ожидавшую - заменяет в очереди
+                blocker = previous.supersede() ? previous.blocker : previous;
+            }
+            running.put(key, worker);
+        }
+        if (blocker != null && !blocker.delivered) {
+            worker.blocker = blocker;
+            blocker.next = worker;
+        } else {
+            executor.execute(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Отменить задачу с ключом, если она выполняется.
+     *
+     * @param key Ключ объединения.
+     */
+    public void cancel(String key) {
+        Worker<?> worker = running.remove(key);
+        if (worker == null) {
+            return;
+        }
+        if (!worker.supersede()) {
+            running.put(key, worker); // Изменения уже начаты: задача завершится сама
+        } else if (worker.blocker != null && !worker.blocker.delivered) {
+            running.put(key, worker.blocker); // Следующая задача по-прежнему ждет начатую
+        }
+    }
+
+    /**
+     * Задача вместе с очередью действий для потока интерфейса.
+     */
+    private final class Worker<T> extends SwingWorker<T, Runnable> implements Handle {
+        private final String key;
+        private final Task<T> task;
+        private final Callback<T> callback;
+        private final ProgressMonitor monitor;
+        private final ArrayDeque<Runnable> actions = new ArrayDeque<>(); // Только поток интерфейса
+        private boolean drainScheduled;
+        private boolean finished;
+        private boolean delivered;
+        private Worker<?> blocker; // Задача с тем же ключом, после которой запускается эта
+        private Worker<?> next;    // Задача, ожидающая итога этой
+        private volatile boolean superseded;
+        private volatile boolean committed;
+
+        Worker(String key, String title, Task<T> task, Callback<T> callback) {
+            this.key = key;
+            this.task = task;
+            this.callback = callback;
+            this.monitor = title != null ? new ProgressMonitor(parent, title, null, 0, 100) : null;
+            if (monitor != null) {
+                addPropertyChangeListener(event -> {
+                    if ("progress".equals(event.getPropertyName())) {
+                        monitor.setProgress((Integer) event.getNewValue());
+                    }
+                });
+            }
+        }
+
+        // Окружение задачи: методы SwingWorker с теми же именами финальные
+        private final Context context = new Context() {
+            @Override
+            public void progress(long done, long total) {
+                setProgress((int) Math.min(100, done * 100 / Math.max(1, total)));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return !committed && (Worker.this.isCancelled() || Thread.currentThread().isInterrupted()
+                        || (monitor != null && monitor.isCanceled()));
+            }
+
+            @Override
+            public void commit() {
+                synchronized (Worker.this) {
+                    if (isCancelled() || superseded) {
+                        throw new CancellationException("Задача отменена");
+                    }
+                    committed = true;
+                }
+            }
+
+            @Override
+            public void publish(Runnable action) {
+                Worker.this.publish(action);
+            }
+        };
+
+        @Override
+        protected T doInBackground() throws Exception {
+            return task.run(context);
+        }
+
+        @Override
+        protected void process(List<Runnable> chunks) {
+            if (superseded) {
+                return;
+            }
+            actions.addAll(chunks);
+            drain();
+        }
+
+        @Override
+        protected void done() {
+            if (monitor != null) {
+                monitor.close();
+            }
+            finished = true;
+            drain();
+        }
+
+        /**
+         * Выполнить накопленные действия в пределах бюджета кадра, остаток - в следующем событии.
+         * После последнего действия завершенной задачи доставляется ее итог.
+         */
+        private void drain() {
+            drainScheduled = false;
+            long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+            while (!actions.isEmpty() && !superseded) {
+                actions.poll().run();
+                if (System.nanoTime() > deadline && !actions.isEmpty()) {
+                    if (!drainScheduled) {
+                        drainScheduled = true;
+                        SwingUtilities.invokeLater(this::drain);
+                    }
+                    return;
+                }
+            }
+            if (finished && !drainScheduled) {
+                deliver();
+            }
+        }
+
+        private void deliver() {
+            finished = false; // Итог доставляется один раз
+            delivered = true;
+            if (key != null && running.get(key) == this) {
+                running.remove(key);
+            }
+            if (next != null) {
+                executor.execute(next); // Ожидавшая задача; если ее уже заменили, она завершится сразу
+                next = null;
+            }
+            if (superseded) {
+                return;
+            }
+            try {
+                callback.succeeded(get());
+            } catch (CancellationException ex) {
+                callback.cancelled();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof CancellationException) {
+                    callback.cancelled();
+                } else {
+                    callback.failed(ex.getCause());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Отменить задачу без доставки итога и сообщить об этом получателю.
+         *
+         * @return {@code false}, если задача уже начала необратимые изменения и будет доведена до конца.
+         */
+        boolean supersede() {
+            synchronized (this) {
+                if (committed) {
+                    return false;
+                }
+                superseded = true;
+            }
+            cancel(true);
+            callback.superseded();
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (committed) {
+                    return;
+                }
+            }
+            cancel(true);
+        }
+    }
+}
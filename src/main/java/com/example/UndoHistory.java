@@ -0,0 +1,559 @@
+package com.example;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * История отмены и повтора изменений посещаемости с ограниченным объемом памяти.
+ * <p>
+ * История подписывается на хранилище и складывает его события в записи: пакет изменений
+ * ({@link AttendanceStore#runBatch(Runnable)}, например сохранение переклички) становится одной записью,
+ * изменение вне пакета (ячейка таблицы) - отдельной. Отметка хранится одним числом {@code long}:
+ * номер студента в таблице записи, день, прежнее и новое состояние, поэтому запись о 10 000 отметок
+ * занимает не больше 160 КБ. Кроме отметок запись помнит добавленных и удаленных студентов, а очистка
+ * списка ({@link #clearStore()}) - всех удаленных студентов.
+ * </p>
+ * <p>
+ * Отмена и повтор применяются одним пакетом изменений хранилища, так что таблица обновляется один раз
+ * на всю запись. Объем истории оценивается по размеру записей и не превышает бюджета: при превышении
+ * удаляются самые старые записи. Если одно действие не помещается в бюджет целиком, история
+ * сбрасывается, ведь отменить изменения до него уже нельзя.
+ * </p>
+ * Загрузка данных из файлов или базы в историю не попадает: на это время запись приостанавливается
+ * ({@link #setSuspended(boolean)}), а очистка хранилища в обход {@link #clearStore()} сбрасывает историю.
+ * Методы вызываются в потоке событий Swing.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class UndoHistory implements AttendanceStore.Listener {
+
+    /**
+     * Бюджет памяти истории по умолчанию, байт: хватает на отмену очистки списка примерно из 200 000 студентов.
+     */
+    public static final long DEFAULT_BUDGET = 64L << 20;
+
+    // День хранится в 24 битах со смещением: от 22 000 лет до 1970 года до 22 000 лет после
+    private static final long DAY_BIAS = 1L << 23;
+    private static final long DAY_MASK = (1L << 24) - 1;
+
+    // Оценка памяти: запись с ее списками, студент, удерживаемый только историей, и блок его календаря
+    private static final long ENTRY_BYTES = 96;
+    private static final long STUDENT_BYTES = 256;
+    private static final long BLOCK_BYTES = 40;
+
+    private final AttendanceStore store;
+    private final ArrayDeque<Entry> undo = new ArrayDeque<>(); // Первой идет последняя запись
+    private final ArrayDeque<Entry> redo = new ArrayDeque<>(); // Первой идет последняя отмененная
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private long budget;
+    private long bytes;
+    private Entry recording;
+    private String pendingTitle;
+    private List<Student> clearing;
+    private boolean inBatch;
+    private boolean applying;
+    private boolean suspended;
+
+    /**
+     * Создать историю и подписать ее на изменения хранилища.
+     *
+     * @param store  Хранилище студентов.
+     * @param budget Наибольший объем истории в памяти, байт.
+     */
+    public UndoHistory(AttendanceStore store, long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Бюджет истории должен быть положительным: " + budget);
+        }
+        this.store = store;
+        this.budget = budget;
+        store.addListener(this);
+    }
+
+    /**
+     * Добавить подписчика на изменение состава истории (новая запись, отмена, повтор, сброс).
+     *
+     * @param listener Подписчик.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Выполнить изменения одной записью истории с указанным названием.
+     *
+     * @param title   Название действия для меню ("Отменить: ...").
+     * @param changes Изменения хранилища.
+     */
+    public void edit(String title, Runnable changes) {
+        String previous = pendingTitle;
+        pendingTitle = title;
+        try {
+            store.runBatch(changes);
+        } finally {
+            pendingTitle = previous;
+        }
+    }
+
+    /**
+     * Удалить всех студентов так, чтобы это можно было отменить.
+     */
+    public void clearStore() {
+        if (store.size() == 0) {
+            return;
+        }
+        clearing = new ArrayList<>(store.getStudents());
+        try {
+            edit("Очистка списка", store::clear);
+        } finally {
+            clearing = null;
+        }
+    }
+
+    /**
+     * Проверить, есть ли что отменять.
+     *
+     * @return {@code true}, если есть записи для отмены.
+     */
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    /**
+     * Проверить, есть ли что повторять.
+     *
+     * @return {@code true}, если есть отмененные записи.
+     */
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * Получить название действия, которое будет отменено.
+     *
+     * @return Название или {@code null}.
+     */
+    public String getUndoTitle() {
+        return undo.isEmpty() ? null : undo.peekFirst().title;
+    }
+
+    /**
+     * Получить название действия, которое будет повторено.
+     *
+     * @return Название или {@code null}.
+     */
+    public String getRedoTitle() {
+        return redo.isEmpty() ? null : redo.peekFirst().title;
+    }
+
+    /**
+     * Отменить последнее действие.
+     *
+     * @return {@code false}, если отменять нечего.
+     */
+    public boolean undo() {
+        Entry entry = undo.pollFirst();
+        if (entry == null) {
+            return false;
+        }
+        apply(entry, true);
+        redo.addFirst(entry);
+        fireChanged();
+        return true;
+    }
+
+    /**
+     * Повторить последнее отмененное действие.
+     *
+     * @return {@code false}, если повторять нечего.
+     */
+    public boolean redo() {
+        Entry entry = redo.pollFirst();
+        if (entry == null) {
+            return false;
+        }
+        apply(entry, false);
+        undo.addFirst(entry);
+        fireChanged();
+        return true;
+    }
+
+    /**
+     * Забыть все записи, например после загрузки новых данных.
+     */
+    public void reset() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+        fireChanged();
+    }
+
+    /**
+     * Временно не записывать изменения, например пока в окно загружаются данные.
+     *
+     * @param suspended {@code true} - не записывать изменения.
+     */
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+    }
+
+    /**
+     * Получить бюджет памяти.
+     *
+     * @return Бюджет, байт.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Изменить бюджет памяти. Записи сверх нового бюджета удаляются, начиная с самых старых.
+     *
+     * @param budget Бюджет, байт.
+     */
+    public void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Бюджет истории должен быть положительным: " + budget);
+        }
+        this.budget = budget;
+        if (evict()) {
+            fireChanged();
+        }
+    }
+
+    /**
+     * Получить оценку занятой историей памяти.
+     *
+     * @return Объем, байт.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Получить количество записей для отмены и повтора.
+     *
+     * @return Количество записей.
+     */
+    public int size() {
+        return undo.size() + redo.size();
+    }
+
+    @Override
+    public void batchStarted() {
+        inBatch = true;
+    }
+
+    @Override
+    public void batchFinished() {
+        inBatch = false;
+        commit();
+    }
+
+    @Override
+    public void attendanceChanged(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+        if (applying || suspended) {
+            return;
+        }
+        Entry entry = record();
+        entry.addMark(student, epochDay, oldState, newState);
+        if (entry.capacityBytes() > budget) {
+            entry.discard(); // Запись не уложится в бюджет: дальше отметки не копятся
+        }
+        if (!inBatch) {
+            commit();
+        }
+    }
+
+    @Override
+    public void studentsAdded(int fromIndex, int toIndex) {
+        if (applying || suspended) {
+            return;
+        }
+        Entry entry = record();
+        for (int i = fromIndex; i <= toIndex; i++) {
+            entry.addStudent(store.get(i));
+        }
+        if (!inBatch) {
+            commit();
+        }
+    }
+
+    @Override
+    public void studentRemoved(Student student, int index) {
+        if (applying || suspended) {
+            return;
+        }
+        record().removeStudent(student);
+        if (!inBatch) {
+            commit();
+        }
+    }
+
+    @Override
+    public void storeCleared() {
+        if (applying) {
+            return;
+        }
+        if (clearing == null || suspended) {
+            // Данные заменены в обход истории: прежние записи относятся к другим студентам
+            recording = null;
+            reset();
+            return;
+        }
+        record().clear(clearing);
+        if (!inBatch) {
+            commit();
+        }
+    }
+
+    private Entry record() {
+        if (recording == null) {
+            recording = new Entry(pendingTitle);
+        }
+        return recording;
+    }
+
+    /**
+     * Закрыть записываемую запись: положить ее в историю, сбросить отмененные записи
+     * и уложиться в бюджет.
+     */
+    private void commit() {
+        Entry entry = recording;
+        recording = null;
+        if (entry == null || entry.isEmpty()) {
+            return;
+        }
+        if (entry.overflow || entry.finish() > budget) {
+            // Действие больше бюджета: отменить его нельзя, а значит и все, что было раньше
+            reset();
+            return;
+        }
+        for (Entry dropped : redo) {
+            bytes -= dropped.bytes;
+        }
+        redo.clear();
+        undo.addFirst(entry);
+        bytes += entry.bytes;
+        evict();
+        fireChanged();
+    }
+
+    /**
+     * Удалить самые старые записи, пока история больше бюджета: сначала записи для отмены,
+     * затем отмененные записи, которые повторялись бы последними.
+     */
+    private boolean evict() {
+        boolean evicted = false;
+        while (bytes > budget && !(undo.isEmpty() && redo.isEmpty())) {
+            Entry entry = undo.isEmpty() ? redo.pollLast() : undo.pollLast();
+            bytes -= entry.bytes;
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    private void apply(Entry entry, boolean backward) {
+        long started = System.nanoTime();
+        applying = true;
+        try {
+            store.runBatch(() -> {
+                if (backward) {
+                    entry.undo(store);
+                } else {
+                    entry.redo(store);
+                }
+            });
+        } finally {
+            applying = false;
+        }
+        Metrics.get().recordSince(backward ? "undo" : "redo", started);
+    }
+
+    private void fireChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners) {
+            listener.stateChanged(event);
+        }
+    }
+
+    /**
+     * Запись истории - одно действие пользователя.
+     * <p>
+     * Отметка упакована в {@code long}: старшие 32 бита - номер студента в {@link #students},
+     * далее 24 бита дня со смещением и по 4 бита на прежнее и новое состояние.
+     * Сначала применяются изменения списка студентов, затем отметки; отмена идет в обратном порядке.
+     * </p>
+     */
+    private static final class Entry {
+        private String title;
+        private long[] marks = new long[4];
+        private int markCount;
+        private Student[] students = new Student[1];
+        private int studentCount;
+        private List<Student> added;
+        private List<Student> removed;
+        private boolean cleared;
+        private boolean overflow;
+        private long bytes;
+
+        // Только во время записи: номера студентов записи
+        private Student lastStudent;
+        private int lastId;
+        private Map<Student, Integer> ids;
+
+        Entry(String title) {
+            this.title = title;
+        }
+
+        boolean isEmpty() {
+            return !overflow && markCount == 0 && added == null && removed == null && !cleared;
+        }
+
+        long capacityBytes() {
+            return overflow ? 0 : 8L * (marks.length + students.length);
+        }
+
+        void discard() {
+            overflow = true;
+            marks = null;
+            students = null;
+            ids = null;
+            lastStudent = null;
+        }
+
+        void addMark(Student student, long epochDay, AttendanceState oldState, AttendanceState newState) {
+            if (overflow) {
+                return;
+            }
+            long biased = epochDay + DAY_BIAS;
+            if (biased < 0 || biased > DAY_MASK) {
+                discard(); // День вне упаковки; такое действие не отменяется
+                return;
+            }
+            if (markCount == marks.length) {
+                marks = Arrays.copyOf(marks, markCount * 2);
+            }
+            marks[markCount++] = (long) idOf(student) << 32 | biased << 8 | oldState.ordinal() << 4 | newState.ordinal();
+        }
+
+        void addStudent(Student student) {
+            if (added == null) {
+                added = new ArrayList<>();
+            }
+            added.add(student);
+        }
+
+        void removeStudent(Student student) {
+            if (removed == null) {
+                removed = new ArrayList<>();
+            }
+            removed.add(student);
+        }
+
+        void clear(List<Student> all) {
+            cleared = true;
+            removed = all;
+        }
+
+        /**
+         * Завершить запись: освободить вспомогательные структуры, обрезать массивы и оценить объем.
+         *
+         * @return Оценка объема записи, байт.
+         */
+        long finish() {
+            ids = null;
+            lastStudent = null;
+            marks = Arrays.copyOf(marks, markCount);
+            students = Arrays.copyOf(students, studentCount);
+            bytes = ENTRY_BYTES + 8L * markCount + 8L * studentCount;
+            if (added != null) {
+                bytes += 8L * added.size();
+            }
+            if (removed != null) {
+                // Удаленные студенты держатся в памяти только историей
+                for (Student student : removed) {
+                    bytes += 8 + STUDENT_BYTES + BLOCK_BYTES * student.getAttendance().blockCount();
+                }
+            }
+            title = title != null ? title
+                    : markCount == 0 ? "Изменение списка студентов"
+                    : markCount == 1 ? "Изменение отметки"
+                    : "Изменение отметок (" + markCount + ")";
+            return bytes;
+        }
+
+        void undo(AttendanceStore store) {
+            for (int i = markCount - 1; i >= 0; i--) {
+                long mark = marks[i];
+                students[(int) (mark >>> 32)].setState(day(mark), AttendanceState.ofOrdinal((int) (mark >>> 4) & 0xF));
+            }
+            if (added != null) {
+                for (int i = added.size() - 1; i >= 0; i--) {
+                    store.remove(added.get(i));
+                }
+            }
+            if (removed != null) {
+                store.putAll(removed);
+            }
+        }
+
+        void redo(AttendanceStore store) {
+            if (cleared) {
+                store.clear();
+            } else if (removed != null) {
+                for (Student student : removed) {
+                    store.remove(student);
+                }
+            }
+            if (added != null) {
+                store.putAll(added);
+            }
+            for (int i = 0; i < markCount; i++) {
+                long mark = marks[i];
+                students[(int) (mark >>> 32)].setState(day(mark), AttendanceState.ofOrdinal((int) mark & 0xF));
+            }
+        }
+
+        private static long day(long mark) {
+            return (mark >>> 8 & DAY_MASK) - DAY_BIAS;
+        }
+
+        private int idOf(Student student) {
+            if (student == lastStudent) {
+                return lastId;
+            }
+            Integer id = null;
+            if (ids != null) {
+                id = ids.get(student);
+            } else if (studentCount > 0) {
+                // Второй студент: дальше номера ищутся по таблице
+                ids = new IdentityHashMap<>();
+                for (int i = 0; i < studentCount; i++) {
+                    ids.put(students[i], i);
+                }
+                id = ids.get(student);
+            }
+            if (id == null) {
+                if (studentCount == students.length) {
+                    students = Arrays.copyOf(students, studentCount * 2);
+                }
+                id = studentCount;
+                students[studentCount++] = student;
+                if (ids != null) {
+                    ids.put(student, id);
+                }
+            }
+            lastStudent = student;
+            lastId = id;
+            return id;
+        }
+    }
+}
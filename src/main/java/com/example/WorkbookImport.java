@@ -0,0 +1,538 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Импорт нескольких книг Excel и файлов CSV с объединением в уже загруженные данные.
+ * <p>
+ * Файлы читаются параллельно в {@link ForkJoinPool} (каждый - своим {@link ExcelImporter} или {@link CsvImporter}), затем
+ * объединяются в порядке списка: студенты сопоставляются по ФИО, отметки за один день из разных
+ * файлов сводятся правилом {@link ConflictPolicy}. Итог применяется к хранилищу методом
+ * {@link #apply(AttendanceStore, List, ConflictPolicy)} по тому же правилу, поэтому повторный импорт
+ * дополняет данные, а не заменяет их.
+ * </p>
+ * Для каждого файла считается, сколько студентов и отметок он добавил и сколько конфликтов
+ * с предыдущими файлами разрешено; для всего импорта - время и пропускная способность.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class WorkbookImport {
+
+    /**
+     * Правило выбора отметки, когда два источника расходятся в одном дне.
+     * Если в одном источнике отметки нет, берется отметка другого.
+     */
+    public enum ConflictPolicy {
+        /**
+         * "Присутствовал" побеждает "отсутствовал".
+         */
+        PRESENT_WINS("Присутствие важнее отсутствия"),
+
+        /**
+         * "Отсутствовал" побеждает "присутствовал".
+         */
+        ABSENT_WINS("Отсутствие важнее присутствия"),
+
+        /**
+         * Побеждает более поздний файл (для хранилища - импортируемые данные).
+         */
+        LATEST_FILE_WINS("Побеждает более поздний файл"),
+
+        /**
+         * Побеждает уже имеющаяся отметка; новые данные только заполняют пустые дни.
+         */
+        KEEP_EXISTING("Сохранять имеющиеся отметки");
+
+        private final String title;
+
+        ConflictPolicy(String title) {
+            this.title = title;
+        }
+
+        /**
+         * Выбрать отметку.
+         *
+         * @param existing Имеющаяся отметка.
+         * @param incoming Новая отметка.
+         * @return Итоговая отметка.
+         */
+        public AttendanceState resolve(AttendanceState existing, AttendanceState incoming) {
+            if (existing == AttendanceState.UNKNOWN || existing == incoming) {
+                return incoming;
+            }
+            if (incoming == AttendanceState.UNKNOWN) {
+                return existing;
+            }
+            switch (this) {
+                case PRESENT_WINS:
+                    return AttendanceState.PRESENT;
+                case ABSENT_WINS:
+                    return AttendanceState.ABSENT;
+                case LATEST_FILE_WINS:
+                    return incoming;
+                default:
+                    return existing;
+            }
+        }
+
+        /**
+         * Получить название правила для показа пользователю.
+         *
+         * @return Название.
+         */
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    /**
+     * Итог чтения и объединения одного файла.
+     */
+    public static final class FileReport {
+        private final File file;
+        private ExcelImporter.Result result;
+        private String error;
+        private long elapsedNanos;
+        private int newStudents;
+        private int addedMarks;
+        private int conflicts;
+
+        FileReport(File file) {
+            this.file = file;
+        }
+
+        /**
+         * @return Файл.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return Результат импорта или {@code null}, если файл не прочитан.
+         */
+        public ExcelImporter.Result getResult() {
+            return result;
+        }
+
+        /**
+         * @return Причина ошибки чтения или {@code null}.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return Время чтения файла в миллисекундах.
+         */
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        /**
+         * @return Количество студентов в файле.
+         */
+        public int getStudents() {
+            return result == null ? 0 : result.getStudents().size();
+        }
+
+        /**
+         * @return Количество отметок в файле.
+         */
+        public int getMarks() {
+            return result == null ? 0 : result.getMarkCount();
+        }
+
+        /**
+         * @return Количество студентов, которых не было в предыдущих файлах.
+         */
+        public int getNewStudents() {
+            return newStudents;
+        }
+
+        /**
+         * @return Количество отметок, изменивших объединенные данные.
+         */
+        public int getAddedMarks() {
+            return addedMarks;
+        }
+
+        /**
+         * @return Количество дней, в которых файл расходится с предыдущими файлами.
+         */
+        public int getConflicts() {
+            return conflicts;
+        }
+    }
+
+    /**
+     * Объединенные данные всех файлов.
+     */
+    public static final class Merged {
+        private final List<Student> students;
+        private final List<FileReport> files;
+        private final long elapsedNanos;
+        private final long bytes;
+
+        Merged(List<Student> students, List<FileReport> files, long elapsedNanos, long bytes) {
+            this.students = students;
+            this.files = files;
+            this.elapsedNanos = elapsedNanos;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return Объединенные студенты, не привязанные к хранилищу.
+         */
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        /**
+         * @return Итоги по файлам в порядке списка.
+         */
+        public List<FileReport> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return Количество файлов, которые не удалось прочитать.
+         */
+        public int getFailedCount() {
+            int failed = 0;
+            for (FileReport file : files) {
+                if (file.result == null) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        /**
+         * @return Общее количество отметок во всех файлах.
+         */
+        public long getMarkCount() {
+            long marks = 0;
+            for (FileReport file : files) {
+                marks += file.getMarks();
+            }
+            return marks;
+        }
+
+        /**
+         * @return Время чтения и объединения в миллисекундах.
+         */
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        /**
+         * @return Прочитано отметок в секунду.
+         */
+        public long getMarksPerSecond() {
+            return getMarkCount() * 1_000_000_000L / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * @return Прочитано мегабайт в секунду.
+         */
+        public double getMegabytesPerSecond() {
+            return bytes / (1024.0 * 1024.0) * 1_000_000_000L / Math.max(1, elapsedNanos);
+        }
+    }
+
+    /**
+     * Итог применения объединенных данных к хранилищу.
+     */
+    public static final class Applied {
+        private int addedStudents;
+        private int changedMarks;
+        private int conflicts;
+
+        /**
+         * Добавить итог следующей порции.
+         *
+         * @param other Итог порции.
+         */
+        public void add(Applied other) {
+            addedStudents += other.addedStudents;
+            changedMarks += other.changedMarks;
+            conflicts += other.conflicts;
+        }
+
+        /**
+         * @return Количество новых студентов в хранилище.
+         */
+        public int getAddedStudents() {
+            return addedStudents;
+        }
+
+        /**
+         * @return Количество добавленных или измененных отметок.
+         */
+        public int getChangedMarks() {
+            return changedMarks;
+        }
+
+        /**
+         * @return Количество дней, в которых импорт расходился с имеющимися отметками.
+         */
+        public int getConflicts() {
+            return conflicts;
+        }
+    }
+
+    private final List<File> files;
+    private final ConflictPolicy policy;
+    private final int parallelism;
+
+    /**
+     * Создать импорт.
+     *
+     * @param files       Файлы xlsx и csv; при {@link ConflictPolicy#LATEST_FILE_WINS} более поздним считается файл,
+     *                    стоящий дальше в списке.
+     * @param policy      Правило разрешения конфликтов.
+     * @param parallelism Количество потоков чтения.
+     */
+    public WorkbookImport(List<File> files, ConflictPolicy policy, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + parallelism);
+        }
+        this.files = new ArrayList<>(files);
+        this.policy = policy;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Развернуть каталоги в списки файлов xlsx и csv (рекурсивно, по имени).
+     *
+     * @param inputs Файлы и каталоги.
+     * @return Файлы.
+     * @throws IOException              при ошибке обхода каталога.
+     * @throws IllegalArgumentException если файл не найден.
+     */
+    public static List<File> expand(List<File> inputs) throws IOException {
+        List<File> result = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(input.toPath())) {
+                    result.addAll(walk.filter(Files::isRegularFile)
+                            .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xlsx")
+                                    || CsvImporter.isCsv(path.toFile()))
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()));
+                }
+            } else if (input.isFile()) {
+                result.add(input);
+            } else {
+                throw new IllegalArgumentException("Файл не найден: " + input);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Прочитать один файл: CSV - {@link CsvImporter}, остальные - {@link ExcelImporter}.
+     *
+     * @param file      Файл xlsx или csv.
+     * @param progress  Получатель хода импорта (может быть {@code null}).
+     * @param cancelled Признак отмены (может быть {@code null}).
+     * @return Результат импорта.
+     * @throws IOException           при ошибке чтения или некорректном формате файла.
+     * @throws CancellationException если импорт был отменен.
+     */
+    public static ExcelImporter.Result readFile(File file, ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        return CsvImporter.isCsv(file) ? new CsvImporter(file).read(progress, cancelled)
+                : new ExcelImporter(file).read(progress, cancelled);
+    }
+
+    /**
+     * Прочитать файлы параллельно и объединить их.
+     * Ошибка чтения одного файла не прерывает импорт остальных: она записывается в его итог.
+     *
+     * @param progress  Получатель хода импорта в файлах (может быть {@code null}).
+     * @param cancelled Признак отмены (может быть {@code null}).
+     * @return Объединенные данные.
+     * @throws CancellationException если импорт был отменен.
+     */
+    public Merged read(ProgressListener progress, BooleanSupplier cancelled) {
+        long started = System.nanoTime();
+        FileReport[] reports = new FileReport[files.size()];
+        AtomicInteger done = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, files.size())));
+        try {
+            pool.invoke(new ReadTask(reports, 0, reports.length, done, progress, cancelled));
+        } finally {
+            pool.shutdownNow();
+        }
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new CancellationException("Импорт отменен");
+        }
+
+        // Объединение в порядке файлов, чтобы правило "побеждает более поздний файл" было детерминированным
+        Map<String, Student> merged = new LinkedHashMap<>();
+        long bytes = 0;
+        for (FileReport report : reports) {
+            bytes += report.file.length();
+            if (report.result != null) {
+                mergeFile(merged, report);
+            }
+        }
+        List<FileReport> fileReports = new ArrayList<>(reports.length);
+        Collections.addAll(fileReports, reports);
+        return new Merged(new ArrayList<>(merged.values()), fileReports, System.nanoTime() - started, bytes);
+    }
+
+    /**
+     * Применить объединенных студентов к хранилищу. Вызывается в потоке интерфейса; изменения
+     * выполняются одним пакетом хранилища, поэтому большой список лучше применять порциями.
+     *
+     * @param store    Хранилище.
+     * @param incoming Студенты импорта (не привязанные к хранилищу).
+     * @param policy   Правило разрешения конфликтов с имеющимися отметками.
+     * @return Итог применения.
+     */
+    public static Applied apply(AttendanceStore store, List<Student> incoming, ConflictPolicy policy) {
+        Applied applied = new Applied();
+        store.runBatch(() -> {
+            List<Student> added = new ArrayList<>();
+            for (Student student : incoming) {
+                Student existing = store.get(student.getFullName());
+                if (existing == null) {
+                    added.add(student);
+                    applied.addedStudents++;
+                    applied.changedMarks += markCount(student);
+                    continue;
+                }
+                if (!sameGroup(existing.getGroup(), student.getGroup())) {
+                    applied.conflicts++;
+                    if (policy == ConflictPolicy.LATEST_FILE_WINS || existing.getGroup() == null
+                            || existing.getGroup().isEmpty()) {
+                        existing.setGroup(student.getGroup());
+                    }
+                }
+                student.getAttendance().forEach((day, state) -> {
+                    AttendanceState current = existing.getState(day);
+                    if (current != AttendanceState.UNKNOWN && current != state) {
+                        applied.conflicts++;
+                    }
+                    AttendanceState resolved = policy.resolve(current, state);
+                    if (resolved != current) {
+                        existing.setState(day, resolved);
+                        applied.changedMarks++;
+                    }
+                });
+            }
+            store.putAll(added);
+        });
+        return applied;
+    }
+
+    private void mergeFile(Map<String, Student> merged, FileReport report) {
+        for (Student student : report.result.getStudents()) {
+            String key = AttendanceStore.normalizeName(student.getFullName());
+            Student target = merged.get(key);
+            if (target == null) {
+                merged.put(key, student);
+                report.newStudents++;
+                report.addedMarks += markCount(student);
+                continue;
+            }
+            if (!sameGroup(target.getGroup(), student.getGroup())) {
+                report.conflicts++;
+                if (policy == ConflictPolicy.LATEST_FILE_WINS) {
+                    target.setGroup(student.getGroup());
+                }
+            }
+            student.getAttendance().forEach((day, state) -> {
+                AttendanceState current = target.getState(day);
+                if (current != AttendanceState.UNKNOWN && current != state) {
+                    report.conflicts++;
+                }
+                AttendanceState resolved = policy.resolve(current, state);
+                if (resolved != current) {
+                    target.setState(day, resolved);
+                    report.addedMarks++;
+                }
+            });
+        }
+    }
+
+    private static int markCount(Student student) {
+        return student.getAttendance().count(AttendanceState.PRESENT) + student.getAttendance().count(AttendanceState.ABSENT);
+    }
+
+    private static boolean sameGroup(String first, String second) {
+        return AttendanceStore.groupKey(first).equals(AttendanceStore.groupKey(second));
+    }
+
+    /**
+     * Чтение диапазона файлов: диапазон делится пополам, пока в нем больше одного файла.
+     */
+    private final class ReadTask extends RecursiveAction {
+        private final FileReport[] reports;
+        private final int from;
+        private final int to;
+        private final AtomicInteger done;
+        private final ProgressListener progress;
+        private final BooleanSupplier cancelled;
+
+        ReadTask(FileReport[] reports, int from, int to, AtomicInteger done,
+                 ProgressListener progress, BooleanSupplier cancelled) {
+            this.reports = reports;
+            this.from = from;
+            this.to = to;
+            this.done = done;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ReadTask(reports, from, middle, done, progress, cancelled),
+                        new ReadTask(reports, middle, to, done, progress, cancelled));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            FileReport report = new FileReport(files.get(from));
+            long started = System.nanoTime();
+            try {
+                if (cancelled == null || !cancelled.getAsBoolean()) {
+                    report.result = readFile(report.file, null, cancelled);
+                } else {
+                    report.error = "Импорт отменен";
+                }
+            } catch (IOException | RuntimeException e) {
+                report.error = e instanceof CancellationException ? "Импорт отменен" : String.valueOf(e.getMessage());
+            }
+            report.elapsedNanos = System.nanoTime() - started;
+            reports[from] = report;
+            if (progress != null) {
+                progress.onProgress(done.incrementAndGet(), reports.length);
+            }
+        }
+    }
+}
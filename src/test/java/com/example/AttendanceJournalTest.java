@@ -0,0 +1,93 @@
+package com.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Восстановление данных из журнала, когда новое поколение начинается во время изменения
+ * нескольких студентов сразу.
+ *
+ * @author Soldatov N. V.
+ * @version 22.0.2
+ */
+public class AttendanceJournalTest {
+
+    /**
+     * Маленький порог, чтобы поколение переключалось много раз, в том числе посреди серий уведомлений.
+     */
+    private static final long THRESHOLD_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresStoreWhenSnapshotIsDueDuringBulkAddAndRemove() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        AttendanceStore store = new AttendanceStore();
+        AttendanceJournal journal = AttendanceJournal.open(directory, store, THRESHOLD_BYTES);
+        Random random = new Random(42);
+        int next = 0;
+        for (int round = 0; round < 20; round++) {
+            List<Student> added = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                added.add(student(next++, random));
+            }
+            // Замена существующих студентов: putAll удаляет прежних одной серией уведомлений
+            for (int i = 0; i < 10 && store.size() > 0; i++) {
+                Student previous = store.get(random.nextInt(store.size()));
+                added.add(new Student(previous.getFullName(), "Группа" + random.nextInt(3)));
+            }
+            store.putAll(added);
+
+            List<Student> removed = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                removed.add(store.get(random.nextInt(store.size())));
+            }
+            store.removeAll(removed);
+
+            Student marked = store.get(random.nextInt(store.size()));
+            marked.setState(19_000 + random.nextInt(300), AttendanceState.ABSENT);
+            marked.setGroup("Группа" + random.nextInt(3));
+        }
+        List<String> expected = describe(store);
+        long generation = journal.getGeneration();
+        journal.close();
+        assertTrue("поколение должно смениться несколько раз, сменилось: " + generation, generation > 5);
+
+        AttendanceStore restored = new AttendanceStore();
+        AttendanceJournal.open(directory, restored, THRESHOLD_BYTES).close();
+        assertEquals(expected, describe(restored));
+    }
+
+    private static Student student(int number, Random random) {
+        Student student = new Student("Фамилия" + number, "Имя", "Отчество", "Группа" + random.nextInt(3));
+        for (int i = 0; i < 20; i++) {
+            student.setState(19_000 + random.nextInt(300),
+                    random.nextBoolean() ? AttendanceState.PRESENT : AttendanceState.ABSENT);
+        }
+        return student;
+    }
+
+    /**
+     * Описание хранилища по порядку: ФИО, группа и все отметки каждого студента.
+     */
+    private static List<String> describe(AttendanceStore store) {
+        List<String> lines = new ArrayList<>(store.size());
+        for (Student student : store.getStudents()) {
+            StringBuilder line = new StringBuilder(student.getFullName()).append(';').append(student.getGroup());
+            student.getAttendance().forEach((day, state) -> line.append(';').append(day).append('=').append(state));
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}